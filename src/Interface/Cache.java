@@ -1,8 +1,11 @@
 package Interface;
 
 import core.CacheMonitor;
+import utils.Maps;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 
 public interface Cache<K, V> {
     /**
@@ -37,6 +40,17 @@ public interface Cache<K, V> {
      */
     V get(K key);
 
+    /**
+     * Returns the value to which the specified key is mapped, or null, like {@link #get(Object)}, but without
+     * recording a hit, a miss or a latency in the statistics and without counting as an access for eviction.
+     * An expired entry is not returned, but is left for the cache to remove.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this
+     * cache contains no live mapping for the key
+     */
+    V peek(K key);
+
     /**
      * Removes the mapping for a key from this cache if it is present.
      *
@@ -46,6 +60,48 @@ public interface Cache<K, V> {
      */
     V remove(K key);
 
+    /**
+     * Returns the values to which the specified keys are mapped, leaving out the keys this cache contains no
+     * mapping for. Implementations should take their locks once per batch rather than once per key; this
+     * default simply calls {@link #get(Object)} for every key.
+     *
+     * @param keys the keys whose associated values are to be returned
+     * @return a map of the keys found to their values
+     */
+    default Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = Maps.newHashMapWithExpectedSize(keys.size());
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Associates every value of the specified map with its key in this cache, as {@link #put(Object, Object)}
+     * would one at a time.
+     *
+     * @param entries the mappings to be stored in this cache
+     */
+    default void putAll(Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the mappings for the specified keys from this cache, as {@link #remove(Object)} would one at a time.
+     *
+     * @param keys the keys whose mappings are to be removed from the cache
+     */
+    default void removeAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            remove(key);
+        }
+    }
+
     /**
      * Removes all the mappings from this cache. The cache will be empty after
      * this call returns.
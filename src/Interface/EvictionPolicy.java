@@ -1,10 +1,64 @@
 package Interface;
 
-import domain.AccessStatistics;
+import domain.CacheNode;
 
-import java.time.Duration;
-import java.util.Map;
+/**
+ * Decides which entry a {@link core.PolicyCache} evicts when it is full.
+ *
+ * The cache owns the hash map and the expiration of the entries; the policy only keeps its own ordering of the
+ * nodes, typically by linking them into lists, and is told about every event through these callbacks. All of
+ * them are called while the cache holds its lock, and every one of them must run in constant time, so that a
+ * policy never scans the entries.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public interface EvictionPolicy<K, V> {
 
-public interface EvictionPolicy<K>{
-    boolean shouldEvict(int cacheSize, Duration ttl, Map<K, AccessStatistics<K>> statistics);
+    /**
+     * Creates the node of a new entry. Policies that keep extra state per entry return a subclass of
+     * {@link CacheNode} holding it.
+     *
+     * @param key            the key of the entry
+     * @param value          the value of the entry
+     * @param expirationTime the ticker time at which the entry expires, or {@link CacheNode#NO_EXPIRATION}
+     * @return the new node
+     */
+    default CacheNode<K, V> newNode(K key, V value, long expirationTime) {
+        return new CacheNode<>(key, value, expirationTime);
+    }
+
+    /**
+     * Called when a node is added to the cache.
+     *
+     * @param node the new node
+     */
+    void onInsert(CacheNode<K, V> node);
+
+    /**
+     * Called when the entry of a node is read or overwritten.
+     *
+     * @param node the accessed node
+     */
+    void onAccess(CacheNode<K, V> node);
+
+    /**
+     * Called when a node leaves the cache, whether it was evicted, expired or removed explicitly.
+     *
+     * @param node the removed node
+     */
+    void onRemove(CacheNode<K, V> node);
+
+    /**
+     * Returns the node to evict next, without removing it; the cache then removes it and calls
+     * {@link #onRemove(CacheNode)}. Only called while the cache holds at least one entry.
+     *
+     * @return the victim
+     */
+    CacheNode<K, V> selectVictim();
+
+    /**
+     * Forgets every node, when the cache is cleared.
+     */
+    void clear();
 }
@@ -0,0 +1,48 @@
+package Interface;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Carries the messages of a {@link core.InvalidationBus} between processes. A transport only moves opaque
+ * messages of a bounded size; the bus encodes the keys, batches them, and detects lost messages.
+ *
+ * Delivery may be unreliable, unordered and duplicated, as with UDP, and a transport may deliver a process its own
+ * messages back.
+ */
+public interface InvalidationTransport extends AutoCloseable {
+    /**
+     * Returns the largest message this transport can carry, in bytes.
+     *
+     * @return the maximum message size
+     */
+    int maxMessageSize();
+
+    /**
+     * Sends the message to every other member of the group. The remaining bytes of the buffer are the message,
+     * and the buffer may be reused once this method returns.
+     *
+     * @param message the message to send
+     * @throws IOException if the message could not be sent
+     */
+    void send(ByteBuffer message) throws IOException;
+
+    /**
+     * Starts delivering the messages received from the group to the receiver, on a thread chosen by the
+     * transport, one message at a time. The remaining bytes of the buffer are the message, and the buffer may be
+     * reused once the receiver returns.
+     *
+     * @param receiver the consumer of the received messages
+     * @throws IOException if the transport could not start listening
+     */
+    void start(Consumer<ByteBuffer> receiver) throws IOException;
+
+    /**
+     * Stops sending and receiving, and releases the transport's resources.
+     *
+     * @throws IOException if the resources could not be released
+     */
+    @Override
+    void close() throws IOException;
+}
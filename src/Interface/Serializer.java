@@ -0,0 +1,111 @@
+package Interface;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts cached values to and from bytes, for caches that keep their values outside the Java heap.
+ *
+ * @param <V> the type of the serialized values
+ */
+public interface Serializer<V> {
+    /**
+     * Returns the number of bytes the serialized form of the value takes.
+     *
+     * @param value the value to measure
+     * @return the serialized size of the value in bytes
+     */
+    int serializedSize(V value);
+
+    /**
+     * Writes the serialized form of the value into the buffer, starting at its position. The buffer has
+     * exactly {@link #serializedSize(Object)} bytes remaining.
+     *
+     * @param value  the value to serialize
+     * @param buffer the buffer to write to
+     */
+    void serialize(V value, ByteBuffer buffer);
+
+    /**
+     * Reads a value from the buffer, whose remaining bytes are the value's serialized form. The buffer may be
+     * reused once this method returns, so the value must not keep a reference to it.
+     *
+     * @param buffer the buffer to read from
+     * @return the deserialized value
+     */
+    V deserialize(ByteBuffer buffer);
+
+    /**
+     * Returns a serializer that stores strings as UTF-8.
+     *
+     * @return a UTF-8 string serializer
+     */
+    static Serializer<String> utf8() {
+        return new Serializer<String>() {
+            @Override
+            public int serializedSize(String value) {
+                return value.getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            @Override
+            public void serialize(String value, ByteBuffer buffer) {
+                buffer.put(value.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String deserialize(ByteBuffer buffer) {
+                return StandardCharsets.UTF_8.decode(buffer).toString();
+            }
+        };
+    }
+
+    /**
+     * Returns a serializer that stores byte arrays as they are.
+     *
+     * @return a byte array serializer
+     */
+    static Serializer<byte[]> bytes() {
+        return new Serializer<byte[]>() {
+            @Override
+            public int serializedSize(byte[] value) {
+                return value.length;
+            }
+
+            @Override
+            public void serialize(byte[] value, ByteBuffer buffer) {
+                buffer.put(value);
+            }
+
+            @Override
+            public byte[] deserialize(ByteBuffer buffer) {
+                byte[] value = new byte[buffer.remaining()];
+                buffer.get(value);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Returns a serializer writing a {@code Long} as its eight big-endian bytes.
+     *
+     * @return a serializer of longs
+     */
+    static Serializer<Long> longs() {
+        return new Serializer<Long>() {
+            @Override
+            public int serializedSize(Long value) {
+                return Long.BYTES;
+            }
+
+            @Override
+            public void serialize(Long value, ByteBuffer buffer) {
+                buffer.putLong(value);
+            }
+
+            @Override
+            public Long deserialize(ByteBuffer buffer) {
+                return buffer.getLong();
+            }
+        };
+    }
+}
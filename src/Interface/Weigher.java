@@ -0,0 +1,32 @@
+package Interface;
+
+/**
+ * Computes the weight of cache entries, for caches bounded by a total weight instead of an entry count.
+ * A weight is typically an estimate of the memory the entry takes, in whatever unit the maximum weight uses.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+    /**
+     * Returns the weight of the entry. The weight is computed when the entry is written and must not change
+     * while the entry is cached.
+     *
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     * @return the weight of the entry, which must not be negative
+     */
+    int weigh(K key, V value);
+
+    /**
+     * Returns a weigher that gives every entry a weight of 1, so that the total weight is the entry count.
+     *
+     * @param <K> the type of the key in the cache
+     * @param <V> the type of the value in the cache
+     * @return a weigher counting entries
+     */
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+}
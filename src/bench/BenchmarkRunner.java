@@ -0,0 +1,47 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link CacheBenchmark} with 1, 2, 4, ... threads up to the number of processors, with the GC profiler
+ * reporting the allocation rate of every run, and writes the results of each thread count to a CSV file.
+ *
+ * The optional first argument restricts the run to one cache type, for example {@code LRU_TINYLFU}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads = nextThreadCount(threads, processors)) {
+            OptionsBuilder builder = new OptionsBuilder();
+            builder.include(CacheBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.CSV)
+                    .result("bench-" + threads + "-threads.csv");
+            if (args.length > 0) {
+                builder.param("cacheType", args[0]);
+            }
+            Options options = builder.build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * Doubles the thread count, making sure the last run uses every processor.
+     */
+    private static int nextThreadCount(int threads, int processors) {
+        if (threads == processors) {
+            return processors + 1;
+        }
+        return Math.min(threads * 2, processors);
+    }
+}
@@ -0,0 +1,96 @@
+package bench;
+
+import Interface.Cache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a mix of gets and puts on a warm cache.
+ *
+ * The keys and the choice between get and put are drawn before the measurement into arrays that the threads
+ * walk from random starting points, so the measured loop does nothing but index two arrays and call the cache.
+ * The keys are boxed up front as well: with the GC profiler, the allocation rate reported is the cache's own.
+ * The key space is four times the cache's maximum size, so that skewed distributions miss now and then and
+ * the puts exercise eviction.
+ *
+ * Run {@link BenchmarkRunner} to sweep the thread counts, or pass {@code -t} and {@code -prof gc} to JMH directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+    private static final int OPERATIONS = 1 << 20;
+    private static final int MASK = OPERATIONS - 1;
+    private static final int KEY_SPACE_FACTOR = 4;
+    private static final long SEED = 0x5DEECE66DL;
+
+    @Param({"LRU", "LRU_BUFFERED", "LRU_TINYLFU", "LFU", "CONCURRENT_LRU", "LONG_LRU", "ARC", "CLOCK", "POLICY_LRU", "OFF_HEAP"})
+    CacheType cacheType;
+
+    @Param({"ZIPFIAN", "SCRAMBLED_ZIPFIAN", "UNIFORM"})
+    Distribution distribution;
+
+    /** The percentage of operations that are gets: read-only, 75/25, 50/50 and write-heavy. */
+    @Param({"100", "75", "50", "25"})
+    int readPercentage;
+
+    @Param("65536")
+    int maximumSize;
+
+    Cache<Long, Long> cache;
+    Long[] keys;
+    boolean[] reads;
+
+    /**
+     * The position of one thread in the operation arrays.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int index = ThreadLocalRandom.current().nextInt();
+    }
+
+    @Setup
+    public void setUp() {
+        cache = cacheType.create(maximumSize);
+        long[] drawn = distribution.generator((long) KEY_SPACE_FACTOR * maximumSize, SEED).nextKeys(OPERATIONS);
+        keys = new Long[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            keys[i] = drawn[i];
+        }
+        reads = new boolean[OPERATIONS];
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < OPERATIONS; i++) {
+            reads[i] = random.nextInt(100) < readPercentage;
+        }
+        for (Long key : keys) {
+            cache.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Long operation(ThreadState state) {
+        int i = state.index++ & MASK;
+        Long key = keys[i];
+        if (reads[i]) {
+            return cache.get(key);
+        }
+        cache.put(key, key);
+        return key;
+    }
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import Interface.Cache;
+import Interface.Serializer;
+import core.ARCCache;
+import core.ClockCache;
+import core.ConcurrentLRUCache;
+import core.LFUCache;
+import core.LRUCache;
+import core.LRUEvictionPolicy;
+import core.LongLongLRUCache;
+import core.OffHeapCache;
+import core.PolicyCache;
+
+/**
+ * The cache configurations the benchmarks compare. A new implementation is benchmarked by adding a constant
+ * here and listing it in the {@code cacheType} parameter of the benchmarks.
+ */
+public enum CacheType {
+    LRU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new LRUCache<>(maximumSize);
+        }
+    },
+    LRU_BUFFERED {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return LRUCache.newBuilder().maximumSize(maximumSize).bufferedReads(true).build();
+        }
+    },
+    LRU_TINYLFU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return LRUCache.newBuilder().maximumSize(maximumSize).bufferedReads(true).tinyLfuAdmission(true).build();
+        }
+    },
+    LFU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new LFUCache<>(maximumSize);
+        }
+    },
+    CONCURRENT_LRU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new ConcurrentLRUCache<>(maximumSize);
+        }
+    },
+    LONG_LRU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new LongLongLRUCache(maximumSize);
+        }
+    },
+    ARC {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new ARCCache<>(maximumSize);
+        }
+    },
+    CLOCK {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new ClockCache<>(maximumSize);
+        }
+    },
+    POLICY_LRU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new PolicyCache<>(maximumSize, new LRUEvictionPolicy<>());
+        }
+    },
+    OFF_HEAP {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            // Every value takes one 64-byte chunk of the smallest size class.
+            return new OffHeapCache<>(Math.max(64L * maximumSize, 1L << 20), Serializer.longs());
+        }
+    };
+
+    /**
+     * Returns a new, empty cache of this type.
+     *
+     * @param maximumSize the maximum number of entries
+     * @return the cache
+     */
+    abstract Cache<Long, Long> create(int maximumSize);
+}
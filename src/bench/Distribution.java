@@ -0,0 +1,41 @@
+package bench;
+
+import utils.KeyGenerator;
+
+/**
+ * The key distributions of the benchmark workloads.
+ */
+public enum Distribution {
+    /** Skewed popularity, with the popular keys being the smallest ones. */
+    ZIPFIAN {
+        @Override
+        KeyGenerator generator(long items, long seed) {
+            return KeyGenerator.zipfian(items, EXPONENT, seed);
+        }
+    },
+    /** Skewed popularity, with the popular keys scattered across the key space. */
+    SCRAMBLED_ZIPFIAN {
+        @Override
+        KeyGenerator generator(long items, long seed) {
+            return KeyGenerator.scrambledZipfian(items, EXPONENT, seed);
+        }
+    },
+    /** Every key equally popular, the worst case for any eviction policy. */
+    UNIFORM {
+        @Override
+        KeyGenerator generator(long items, long seed) {
+            return KeyGenerator.uniform(items, seed);
+        }
+    };
+
+    static final double EXPONENT = 0.99;
+
+    /**
+     * Returns a generator of keys between 0 and {@code items}.
+     *
+     * @param items the number of distinct keys
+     * @param seed  the seed of the random numbers
+     * @return the generator
+     */
+    abstract KeyGenerator generator(long items, long seed);
+}
@@ -0,0 +1,432 @@
+package core;
+
+import Interface.Cache;
+import domain.CacheNode;
+import utils.LongLinkedIndex;
+import utils.Maps;
+import utils.Ticker;
+import utils.Utility;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache implementing the Adaptive Replacement Cache policy of Megiddo and Modha, "ARC: A Self-Tuning, Low
+ * Overhead Replacement Cache" (FAST 2003), which balances recency against frequency on its own as the workload
+ * shifts.
+ *
+ * The resident entries are split between two LRU lists: T1 holds the keys seen once recently, and T2 the keys
+ * seen at least twice. Two ghost lists remember the keys recently evicted from each: B1 for T1 and B2 for T2.
+ * A miss on a key found in B1 means T1 was too small, so the target size {@code p} of T1 grows; a miss on a key
+ * in B2 shrinks it. When the cache is full, the victim is taken from T1 while T1 is larger than {@code p}, and
+ * from T2 otherwise. The current target is reported by {@link CacheMonitor.CacheStats#getAdaptationParameter()}.
+ *
+ * The ghost lists keep only a 64-bit hash of every key, in a {@link LongLinkedIndex}, so they cost a few words
+ * per key instead of a node and a reference to the key. Two keys with equal hash codes share a ghost entry,
+ * which only makes the adaptation slightly less precise.
+ *
+ * A get that misses does not insert anything, so ghost hits are detected when the missing key is put. Entries
+ * put with a time-to-live are reclaimed through a {@link TimerWheel}; expired and explicitly removed entries do
+ * not enter the ghost lists, since their removal says nothing about the policy. All operations take a single lock.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class ARCCache<K, V> implements Cache<K, V> {
+    static final byte T1 = 1;
+    static final byte T2 = 2;
+
+    private final int capacity;
+    private final Map<K, CacheNode<K, V>> map;
+    private final Utility<K, V> t1;
+    private final Utility<K, V> t2;
+    private final LongLinkedIndex b1;
+    private final LongLinkedIndex b2;
+    private final ReentrantLock lock;
+    private final CacheMonitor<K> monitor;
+    private final TimerWheel<K, V> timerWheel;
+    private final Ticker ticker;
+    private int t1Size;
+    private int t2Size;
+    private int p;
+
+    /**
+     * Constructs a new ARCCache with the given capacity.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     */
+    public ARCCache(int capacity) {
+        this(capacity, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs a new ARCCache with the given capacity, reading expiration times from the given ticker.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     * @param ticker   the time source used for expiration
+     */
+    public ARCCache(int capacity, Ticker ticker) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be greater than 0.");
+        }
+        this.capacity = capacity;
+        this.map = new HashMap<>();
+        this.t1 = new Utility<>();
+        this.t2 = new Utility<>();
+        this.b1 = new LongLinkedIndex(capacity);
+        this.b2 = new LongLinkedIndex(capacity);
+        this.lock = new ReentrantLock();
+        this.monitor = new CacheMonitor<>();
+        this.ticker = ticker;
+        this.timerWheel = new TimerWheel<>(ticker.read());
+    }
+
+    @Override
+    public void put(K key, V value) {
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            timerWheel.advance(ticker.read(), this::expire);
+            putLocked(key, value, CacheNode.NO_EXPIRATION, false);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL value cannot be negative");
+        }
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            putLocked(key, value, CacheNode.expirationTime(now, ttl), true);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    private void putLocked(K key, V value, long expirationTime, boolean hasTtl) {
+        monitor.onPut(key);
+        CacheNode<K, V> node = map.get(key);
+        if (node != null) {
+            node.setValue(value);
+            if (hasTtl) {
+                node.setExpirationTime(expirationTime);
+                timerWheel.reschedule(node);
+            }
+            onHit(node);
+            return;
+        }
+        long hash = hash(key);
+        int ghost = b1.find(hash);
+        if (ghost != LongLinkedIndex.NONE) {
+            p = Math.min(capacity, p + Math.max(b2.size() / b1.size(), 1));
+            b1.remove(ghost);
+            if (t1Size + t2Size >= capacity) {
+                replace(false);
+            }
+            insert(new CacheNode<>(key, value, expirationTime), T2, hasTtl);
+            return;
+        }
+        ghost = b2.find(hash);
+        if (ghost != LongLinkedIndex.NONE) {
+            p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+            b2.remove(ghost);
+            if (t1Size + t2Size >= capacity) {
+                replace(true);
+            }
+            insert(new CacheNode<>(key, value, expirationTime), T2, hasTtl);
+            return;
+        }
+        if (t1Size + b1.size() >= capacity) {
+            if (t1Size < capacity) {
+                b1.remove(b1.tail());
+                if (t1Size + t2Size >= capacity) {
+                    replace(false);
+                }
+            } else {
+                evict(t1.getTail(), false);
+            }
+        } else if (t1Size + t2Size + b1.size() + b2.size() >= capacity) {
+            if (t1Size + t2Size + b1.size() + b2.size() >= 2 * capacity && b2.size() > 0) {
+                b2.remove(b2.tail());
+            }
+            if (t1Size + t2Size >= capacity) {
+                replace(false);
+            }
+        }
+        insert(new CacheNode<>(key, value, expirationTime), T1, hasTtl);
+    }
+
+    @Override
+    public V get(K key) {
+        long start = monitor.startTimer();
+        V value;
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            value = getLocked(key, now);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordGet(start);
+        return value;
+    }
+
+    private V getLocked(K key, long now) {
+        CacheNode<K, V> node = map.get(key);
+        if (node == null) {
+            monitor.onMiss(key);
+            return null;
+        }
+        if (node.isExpired(now)) {
+            unlink(node);
+            monitor.onEviction(key, CacheMonitor.RemovalCause.EXPIRED);
+            monitor.onMiss(key);
+            return null;
+        }
+        onHit(node);
+        monitor.onHit(key);
+        return node.getValue();
+    }
+
+    @Override
+    public V peek(K key) {
+        lock.lock();
+        try {
+            CacheNode<K, V> node = map.get(key);
+            return node == null || node.isExpired(ticker.read()) ? null : node.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        lock.lock();
+        try {
+            CacheNode<K, V> node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the values of the keys found in the cache, taking the lock once for the whole batch.
+     *
+     * @param keys the keys of the entries to look up
+     * @return a map of the keys found to their values
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = Maps.newHashMapWithExpectedSize(keys.size());
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            for (K key : keys) {
+                V value = getLocked(key, now);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Adds or updates the entries of the map, taking the lock once for the whole batch.
+     *
+     * @param entries the entries to add or update
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        lock.lock();
+        try {
+            timerWheel.advance(ticker.read(), this::expire);
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                putLocked(entry.getKey(), entry.getValue(), CacheNode.NO_EXPIRATION, false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current target size of T1, the list of keys seen once recently.
+     *
+     * @return the adaptation parameter {@code p}, between 0 and the capacity
+     */
+    public int getTargetRecencySize() {
+        lock.lock();
+        try {
+            return p;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+            t1.clear();
+            t2.clear();
+            b1.clear();
+            b2.clear();
+            timerWheel.clear();
+            t1Size = 0;
+            t2Size = 0;
+            p = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        int size;
+        int target;
+        lock.lock();
+        try {
+            size = map.size();
+            target = p;
+        } finally {
+            lock.unlock();
+        }
+        return monitor.statsBuilder().size(size).adaptationParameter(target).build();
+    }
+
+    /**
+     * Moves a resident node to the most recently used end of T2.
+     */
+    private void onHit(CacheNode<K, V> node) {
+        if (node.getQueueType() == T1) {
+            t1.removeFromList(node);
+            t1Size--;
+            t2.addNode(node);
+            t2Size++;
+            node.setQueueType(T2);
+        } else {
+            t2.moveToHead(node);
+        }
+    }
+
+    /**
+     * Evicts the least recently used entry of T1 into B1 if T1 exceeds its target, or that of T2 into B2
+     * otherwise. {@code inB2} tells whether the key being inserted was found in B2.
+     */
+    private void replace(boolean inB2) {
+        if (t1Size > 0 && (t1Size > p || (inB2 && t1Size == p))) {
+            evict(t1.getTail(), true);
+        } else if (t2Size > 0) {
+            evict(t2.getTail(), true);
+        } else {
+            evict(t1.getTail(), true);
+        }
+    }
+
+    /**
+     * Evicts a resident node for size, remembering its key in the ghost list of its queue if asked to.
+     */
+    private void evict(CacheNode<K, V> node, boolean remember) {
+        unlink(node);
+        monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.SIZE);
+        if (remember) {
+            remember(node.getQueueType() == T1 ? b1 : b2, hash(node.getKey()));
+        }
+    }
+
+    private static void remember(LongLinkedIndex ghosts, long hash) {
+        int slot = ghosts.find(hash);
+        if (slot != LongLinkedIndex.NONE) {
+            ghosts.moveToHead(slot);
+            return;
+        }
+        if (ghosts.isFull()) {
+            ghosts.remove(ghosts.tail());
+        }
+        ghosts.insert(hash);
+    }
+
+    private void insert(CacheNode<K, V> node, byte queue, boolean hasTtl) {
+        node.setQueueType(queue);
+        map.put(node.getKey(), node);
+        if (queue == T1) {
+            t1.addNode(node);
+            t1Size++;
+        } else {
+            t2.addNode(node);
+            t2Size++;
+        }
+        if (hasTtl) {
+            timerWheel.schedule(node);
+        }
+    }
+
+    /**
+     * Removes a resident node from the map, its list and the timer wheel. Must be called while holding the lock.
+     */
+    private void unlink(CacheNode<K, V> node) {
+        map.remove(node.getKey());
+        timerWheel.deschedule(node);
+        removeFromQueue(node);
+    }
+
+    private void removeFromQueue(CacheNode<K, V> node) {
+        if (node.getQueueType() == T1) {
+            t1.removeFromList(node);
+            t1Size--;
+        } else {
+            t2.removeFromList(node);
+            t2Size--;
+        }
+    }
+
+    /**
+     * Removes an entry whose time-to-live has elapsed, as found by the timer wheel.
+     */
+    private void expire(CacheNode<K, V> node) {
+        if (map.remove(node.getKey(), node)) {
+            removeFromQueue(node);
+            monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.EXPIRED);
+        }
+    }
+
+    private static long hash(Object key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
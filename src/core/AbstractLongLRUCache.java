@@ -0,0 +1,202 @@
+package core;
+
+import Interface.Cache;
+import domain.CacheNode;
+import utils.LongLinkedIndex;
+import utils.Ticker;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The shared skeleton of the LRU caches keyed by primitive {@code long}s. Keys, LRU links and expiration
+ * times live in primitive arrays indexed by the slot numbers of a {@link LongLinkedIndex}; subclasses keep
+ * their values in one more parallel array.
+ *
+ * Expiration is checked when an entry is read, and expired entries are preferred as eviction victims
+ * only when they reach the LRU tail.
+ *
+ * @param <V> the type of the value in the cache
+ */
+abstract class AbstractLongLRUCache<V> implements Cache<Long, V> {
+
+    final LongLinkedIndex index;
+    final long[] expirationTimes;
+    final ReentrantLock lock;
+    final CacheMonitor<Long> monitor;
+    final Ticker ticker;
+
+    AbstractLongLRUCache(int capacity, Ticker ticker) {
+        this.index = new LongLinkedIndex(capacity);
+        this.expirationTimes = new long[capacity];
+        this.lock = new ReentrantLock();
+        this.monitor = new CacheMonitor<>();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Releases the value stored in the slot so that it can be garbage collected.
+     *
+     * @param slot the slot being freed
+     */
+    abstract void releaseValue(int slot);
+
+    /**
+     * Returns the slot of the live entry for the key and marks it as the most recently used one, or
+     * returns {@link LongLinkedIndex#NONE}, removing the entry if it expired. Must be called while holding the lock.
+     */
+    int findForRead(long key) {
+        int slot = index.find(key);
+        if (slot == LongLinkedIndex.NONE) {
+            monitor.onMiss(null);
+            return slot;
+        }
+        long expiration = expirationTimes[slot];
+        if (expiration != CacheNode.NO_EXPIRATION && ticker.read() - expiration > 0) {
+            removeSlot(slot);
+            monitor.onEviction(null, CacheMonitor.RemovalCause.EXPIRED);
+            monitor.onMiss(null);
+            return LongLinkedIndex.NONE;
+        }
+        index.moveToHead(slot);
+        monitor.onHit(null);
+        return slot;
+    }
+
+    /**
+     * Returns the slot for writing the key without a time-to-live. An existing entry keeps its expiration time,
+     * a new one never expires. Must be called while holding the lock.
+     */
+    int slotForWrite(long key) {
+        return slotForWrite(key, CacheNode.NO_EXPIRATION, false);
+    }
+
+    /**
+     * Returns the slot for writing the key with the given expiration time. Must be called while holding the lock.
+     */
+    int slotForWrite(long key, long expirationTime) {
+        return slotForWrite(key, expirationTime, true);
+    }
+
+    /**
+     * Returns the slot for writing the key, reusing the key's slot or claiming a new one and evicting the
+     * least recently used entry if the cache is full. The expiration time of a reused slot is only replaced
+     * if {@code replaceExpiration} is set.
+     */
+    private int slotForWrite(long key, long expirationTime, boolean replaceExpiration) {
+        monitor.onPut(null);
+        int slot = index.find(key);
+        if (slot != LongLinkedIndex.NONE) {
+            index.moveToHead(slot);
+            if (replaceExpiration) {
+                expirationTimes[slot] = expirationTime;
+            }
+            return slot;
+        }
+        if (index.isFull()) {
+            int victim = index.tail();
+            removeSlot(victim);
+            monitor.onEviction(null, CacheMonitor.RemovalCause.SIZE);
+        }
+        slot = index.insert(key);
+        expirationTimes[slot] = expirationTime;
+        return slot;
+    }
+
+    /**
+     * Removes the entry held in the slot. Must be called while holding the lock.
+     */
+    void removeSlot(int slot) {
+        releaseValue(slot);
+        index.remove(slot);
+    }
+
+    /**
+     * Returns the expiration time of an entry written now with the given time-to-live.
+     */
+    long expirationTime(Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL value cannot be negative");
+        }
+        return CacheNode.expirationTime(ticker.read(), ttl);
+    }
+
+    /**
+     * Returns whether the cache holds a live entry for the key, without changing its recency.
+     *
+     * @param key the key to look up
+     * @return true if the key is cached and not expired
+     */
+    public boolean containsKey(long key) {
+        lock.lock();
+        try {
+            return findQuietly(key) != LongLinkedIndex.NONE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the slot of the live entry for the key, or {@link LongLinkedIndex#NONE}, without recording the
+     * lookup or changing the entry's recency. Must be called while holding the lock.
+     */
+    int findQuietly(long key) {
+        int slot = index.find(key);
+        if (slot == LongLinkedIndex.NONE) {
+            return slot;
+        }
+        long expiration = expirationTimes[slot];
+        return expiration == CacheNode.NO_EXPIRATION || ticker.read() - expiration <= 0 ? slot : LongLinkedIndex.NONE;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clears all entries from the cache.
+     */
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            for (int slot = index.head(); slot != LongLinkedIndex.NONE; slot = index.next(slot)) {
+                releaseValue(slot);
+            }
+            index.clear();
+            Arrays.fill(expirationTimes, CacheNode.NO_EXPIRATION);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the estimated memory the cache spends on each entry, in bytes, not counting the value objects.
+     *
+     * @return the per-entry overhead in bytes
+     */
+    public long estimatedEntryOverhead() {
+        return index.bytesPerSlot() + Long.BYTES + valueBytesPerSlot();
+    }
+
+    /**
+     * Returns the bytes used by one slot of the value array.
+     */
+    abstract long valueBytesPerSlot();
+
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        return monitor.statsBuilder().size(size()).build();
+    }
+}
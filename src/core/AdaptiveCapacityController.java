@@ -0,0 +1,481 @@
+package core;
+
+import utils.Ticker;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Resizes an {@link LRUCache} at runtime from the occupancy of the heap and the cache's own hit ratio, so that
+ * the cache can use the memory that is free most of the time and give it back during a traffic spike.
+ *
+ * The heap occupancy is the usage of the tenured heap pools after their last collection, as a fraction of their
+ * maximum, which measures the live data rather than the garbage waiting to be collected. When it reaches the
+ * high watermark, the cache is shrunk by the shrink factor through {@link LRUCache#setMaximum(long)}, which
+ * evicts the excess in small batches instead of clearing the cache. Shrinking is checked on every periodic
+ * evaluation and also as soon as the JVM reports a garbage collection or a collection usage threshold crossed,
+ * but happens at most once per interval, since the occupancy after a collection lags behind the evictions.
+ *
+ * While the occupancy stays under the low watermark and the cache is full, the cache is grown by the growth
+ * factor, one step per interval, up to the configured maximum. Growth follows the hit-ratio curve: once the cache
+ * is full again after a step, the hit ratio measured over the last interval is compared with the one before the
+ * step, and if it improved by less than the minimum gain, the cache has reached the flat part of its curve and
+ * growth stops. Growth resumes if the hit ratio later drops by more than the minimum gain, which means the
+ * workload changed, or after the cache had to shrink. The hit ratio requires the cache to record statistics;
+ * without them growth is decided by the heap alone.
+ *
+ * All decisions run on a single scheduler thread. {@link #start()} installs the collection usage thresholds
+ * and the notification listeners and schedules the evaluations; {@link #close()} undoes all of it.
+ */
+public final class AdaptiveCapacityController implements AutoCloseable {
+    /** The fraction of the maximum above which the cache counts as full. */
+    static final double FULL_FRACTION = 0.95;
+    /** The type of the notification HotSpot collectors send after every collection. */
+    private static final String GARBAGE_COLLECTION_NOTIFICATION = "com.sun.management.gc.notification";
+
+    private final LRUCache<?, ?> cache;
+    private final long minimum;
+    private final long maximum;
+    private final double highWatermark;
+    private final double lowWatermark;
+    private final double shrinkFactor;
+    private final double growthFactor;
+    private final double minimumGain;
+    private final long minimumRequests;
+    private final long intervalNanos;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final DoubleSupplier heapOccupancy;
+    private final Ticker ticker;
+    private final ReentrantLock lock;
+    private final List<MemoryPoolMXBean> tenuredPools;
+    private final List<NotificationEmitter> emitters;
+    private final NotificationListener listener;
+    private ScheduledFuture<?> future;
+    private long[] previousThresholds;
+
+    private long lastHits;
+    private long lastMisses;
+    private long lastShrinkTime;
+    private boolean shrunk;
+    private double ratioBeforeGrowth = Double.NaN;
+    private double plateauRatio = Double.NaN;
+
+    private AdaptiveCapacityController(Builder builder) {
+        this.cache = builder.cache;
+        this.minimum = builder.minimum;
+        this.maximum = builder.maximum;
+        this.highWatermark = builder.highWatermark;
+        this.lowWatermark = builder.lowWatermark;
+        this.shrinkFactor = builder.shrinkFactor;
+        this.growthFactor = builder.growthFactor;
+        this.minimumGain = builder.minimumGain;
+        this.minimumRequests = builder.minimumRequests;
+        this.intervalNanos = builder.interval.toNanos();
+        this.ownsScheduler = builder.scheduler == null;
+        this.scheduler = ownsScheduler ? Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "cache-capacity-controller");
+            thread.setDaemon(true);
+            return thread;
+        }) : builder.scheduler;
+        this.tenuredPools = tenuredPools();
+        this.heapOccupancy = builder.heapOccupancy != null ? builder.heapOccupancy : this::tenuredOccupancy;
+        this.ticker = builder.ticker;
+        this.lock = new ReentrantLock();
+        this.emitters = new ArrayList<>();
+        this.listener = this::onNotification;
+    }
+
+    /**
+     * Returns a builder of a controller resizing the given cache.
+     *
+     * @param cache the cache to resize
+     * @return a new builder
+     */
+    public static Builder newBuilder(LRUCache<?, ?> cache) {
+        return new Builder(cache);
+    }
+
+    /**
+     * Sets the collection usage thresholds of the tenured pools to the high watermark, listens to the memory
+     * and garbage collector notifications, and schedules the periodic evaluations.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            if (future != null) {
+                throw new IllegalStateException("Controller already started");
+            }
+            previousThresholds = new long[tenuredPools.size()];
+            for (int i = 0; i < tenuredPools.size(); i++) {
+                MemoryPoolMXBean pool = tenuredPools.get(i);
+                previousThresholds[i] = pool.getCollectionUsageThreshold();
+                long max = pool.getUsage().getMax();
+                if (max > 0) {
+                    pool.setCollectionUsageThreshold((long) (max * highWatermark));
+                }
+            }
+            addListener(ManagementFactory.getMemoryMXBean());
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                addListener(collector);
+            }
+            future = scheduler.scheduleWithFixedDelay(this::evaluate, intervalNanos, intervalNanos,
+                    TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the evaluations, removes the listeners and restores the collection usage thresholds. The cache keeps
+     * its current maximum.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+                removeListeners();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Runs one periodic decision: shrinks the cache if the heap is above the high watermark, or grows it if the
+     * heap is below the low watermark and the hit-ratio curve has not flattened yet. This runs on the scheduler
+     * every interval once started.
+     */
+    public void evaluate() {
+        lock.lock();
+        try {
+            double occupancy = heapOccupancy.getAsDouble();
+            CacheMonitor.CacheStats stats = cache.getStats();
+            double ratio = intervalHitRatio(stats);
+            long current = cache.getMaximum();
+            if (occupancy >= highWatermark) {
+                shrink(current);
+            } else if (occupancy < lowWatermark && stats.getTotalWeight() >= current * FULL_FRACTION) {
+                considerGrowth(current, ratio);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Shrinks the cache if the heap is above the high watermark, as checked after a garbage collection.
+     */
+    void relieve() {
+        lock.lock();
+        try {
+            if (heapOccupancy.getAsDouble() >= highWatermark) {
+                shrink(cache.getMaximum());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void shrink(long current) {
+        long now = ticker.read();
+        if (shrunk && now - lastShrinkTime < intervalNanos) {
+            return;
+        }
+        long target = Math.max(minimum, (long) (current * shrinkFactor));
+        if (target < current) {
+            cache.setMaximum(target);
+            shrunk = true;
+            lastShrinkTime = now;
+            ratioBeforeGrowth = Double.NaN;
+            plateauRatio = Double.NaN;
+        }
+    }
+
+    /**
+     * Grows a full cache one step unless the last step did not pay off. Must be called while holding the lock.
+     */
+    private void considerGrowth(long current, double ratio) {
+        if (!Double.isNaN(plateauRatio)) {
+            if (Double.isNaN(ratio) || ratio >= plateauRatio - minimumGain) {
+                return;
+            }
+            plateauRatio = Double.NaN;
+        }
+        if (!Double.isNaN(ratioBeforeGrowth) && !Double.isNaN(ratio)) {
+            double gain = ratio - ratioBeforeGrowth;
+            ratioBeforeGrowth = Double.NaN;
+            if (gain < minimumGain) {
+                plateauRatio = ratio;
+                return;
+            }
+        }
+        long target = Math.min(maximum, Math.max(current + 1, (long) Math.ceil(current * growthFactor)));
+        if (target > current) {
+            ratioBeforeGrowth = ratio;
+            cache.setMaximum(target);
+        }
+    }
+
+    /**
+     * Returns the hit ratio of the requests since the previous evaluation, or NaN if there were too few of them.
+     */
+    private double intervalHitRatio(CacheMonitor.CacheStats stats) {
+        long hits = stats.getHits() - lastHits;
+        long misses = stats.getMisses() - lastMisses;
+        lastHits = stats.getHits();
+        lastMisses = stats.getMisses();
+        long requests = hits + misses;
+        return requests < minimumRequests || requests == 0 ? Double.NaN : (double) hits / requests;
+    }
+
+    private void onNotification(Notification notification, Object handback) {
+        String type = notification.getType();
+        if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)
+                || GARBAGE_COLLECTION_NOTIFICATION.equals(type)) {
+            try {
+                scheduler.execute(this::relieve);
+            } catch (RejectedExecutionException ignored) {
+                // The controller is shutting down.
+            }
+        }
+    }
+
+    /**
+     * Removes the notification listeners and restores the collection usage thresholds. Must be called while
+     * holding the lock.
+     */
+    private void removeListeners() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException ignored) {
+                // Already removed.
+            }
+        }
+        emitters.clear();
+        for (int i = 0; i < tenuredPools.size(); i++) {
+            tenuredPools.get(i).setCollectionUsageThreshold(previousThresholds[i]);
+        }
+    }
+
+    private void addListener(Object bean) {
+        if (bean instanceof NotificationEmitter) {
+            NotificationEmitter emitter = (NotificationEmitter) bean;
+            emitter.addNotificationListener(listener, null, null);
+            emitters.add(emitter);
+        }
+    }
+
+    /**
+     * Returns the highest occupancy among the tenured pools after their last collection, falling back to the
+     * current usage of a pool that was not collected yet.
+     */
+    private double tenuredOccupancy() {
+        double occupancy = 0;
+        for (MemoryPoolMXBean pool : tenuredPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage == null || usage.getMax() <= 0 || usage.getUsed() == 0) {
+                usage = pool.getUsage();
+            }
+            if (usage.getMax() > 0) {
+                occupancy = Math.max(occupancy, (double) usage.getUsed() / usage.getMax());
+            }
+        }
+        return occupancy;
+    }
+
+    /**
+     * Returns the heap pools holding the long-lived objects, which are the ones supporting a usage threshold.
+     */
+    private static List<MemoryPoolMXBean> tenuredPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+                    && pool.isCollectionUsageThresholdSupported()) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    /**
+     * A builder of {@link AdaptiveCapacityController} instances.
+     */
+    public static final class Builder {
+        private final LRUCache<?, ?> cache;
+        private long minimum = 1;
+        private long maximum;
+        private double highWatermark = 0.85;
+        private double lowWatermark = 0.70;
+        private double shrinkFactor = 0.75;
+        private double growthFactor = 1.10;
+        private double minimumGain = 0.01;
+        private long minimumRequests = 1000;
+        private Duration interval = Duration.ofSeconds(5);
+        private ScheduledExecutorService scheduler;
+        private DoubleSupplier heapOccupancy;
+        private Ticker ticker = Ticker.systemTicker();
+
+        private Builder(LRUCache<?, ?> cache) {
+            if (cache == null) {
+                throw new NullPointerException("cache");
+            }
+            this.cache = cache;
+            this.maximum = cache.getMaximum();
+        }
+
+        /**
+         * Sets the range the maximum of the cache is kept in. By default the cache is never grown beyond its
+         * maximum at the time the builder was created, and is shrunk down to a single entry if needed.
+         *
+         * @param minimum the smallest maximum the cache is shrunk to
+         * @param maximum the largest maximum the cache is grown to
+         * @return this builder
+         */
+        public Builder capacityRange(long minimum, long maximum) {
+            if (minimum <= 0 || maximum < minimum) {
+                throw new IllegalArgumentException("Capacity range should satisfy 0 < minimum <= maximum.");
+            }
+            this.minimum = minimum;
+            this.maximum = maximum;
+            return this;
+        }
+
+        /**
+         * Sets the heap occupancies, as fractions of the maximum heap, at or above which the cache is shrunk and
+         * below which it may grow. The defaults are 0.85 and 0.70.
+         *
+         * @param low  the occupancy below which the cache may grow
+         * @param high the occupancy at or above which the cache is shrunk
+         * @return this builder
+         */
+        public Builder watermarks(double low, double high) {
+            if (!(low > 0 && low <= high && high < 1)) {
+                throw new IllegalArgumentException("Watermarks should satisfy 0 < low <= high < 1.");
+            }
+            this.lowWatermark = low;
+            this.highWatermark = high;
+            return this;
+        }
+
+        /**
+         * Sets the factors the maximum is multiplied by when shrinking and growing. The defaults are 0.75 and 1.10.
+         *
+         * @param shrinkFactor the factor applied on memory pressure, between 0 and 1
+         * @param growthFactor the factor applied per growth step, greater than 1
+         * @return this builder
+         */
+        public Builder factors(double shrinkFactor, double growthFactor) {
+            if (!(shrinkFactor > 0 && shrinkFactor < 1) || !(growthFactor > 1)) {
+                throw new IllegalArgumentException("Factors should satisfy 0 < shrink < 1 < growth.");
+            }
+            this.shrinkFactor = shrinkFactor;
+            this.growthFactor = growthFactor;
+            return this;
+        }
+
+        /**
+         * Sets the hit-ratio improvement a growth step must bring for the cache to keep growing, and the number
+         * of requests an interval must see for its hit ratio to be trusted. The defaults are 0.01 and 1000.
+         *
+         * @param minimumGain     the smallest worthwhile increase of the hit ratio per growth step
+         * @param minimumRequests the smallest number of requests per interval
+         * @return this builder
+         */
+        public Builder minimumGain(double minimumGain, long minimumRequests) {
+            if (minimumGain < 0 || minimumRequests < 0) {
+                throw new IllegalArgumentException("Minimum gain and requests cannot be negative.");
+            }
+            this.minimumGain = minimumGain;
+            this.minimumRequests = minimumRequests;
+            return this;
+        }
+
+        /**
+         * Sets the delay between two periodic evaluations, which is also the shortest delay between two shrinks.
+         * The default is 5 seconds.
+         *
+         * @param interval the delay between two evaluations
+         * @return this builder
+         */
+        public Builder interval(Duration interval) {
+            if (interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("Interval should be positive.");
+            }
+            this.interval = interval;
+            return this;
+        }
+
+        /**
+         * Runs the evaluations on the given scheduler instead of a thread owned by the controller. It should run
+         * its tasks one at a time, since the evictions of a shrink happen on it.
+         *
+         * @param scheduler the scheduler running the evaluations
+         * @return this builder
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Replaces the reading of the tenured heap pools with the given source of heap occupancy, between 0 and 1.
+         *
+         * @param heapOccupancy the source of heap occupancy
+         * @return this builder
+         */
+        public Builder heapOccupancy(DoubleSupplier heapOccupancy) {
+            this.heapOccupancy = heapOccupancy;
+            return this;
+        }
+
+        /**
+         * Sets the time source used to space out the shrinks.
+         *
+         * @param ticker the time source
+         * @return this builder
+         */
+        public Builder ticker(Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * Builds the controller. It does nothing until {@link AdaptiveCapacityController#start()} is called,
+         * except through {@link AdaptiveCapacityController#evaluate()}.
+         *
+         * @return a new controller
+         */
+        public AdaptiveCapacityController build() {
+            if (maximum < minimum) {
+                throw new IllegalStateException("The cache's maximum is below the minimum capacity");
+            }
+            return new AdaptiveCapacityController(this);
+        }
+    }
+}
@@ -1,73 +1,658 @@
 package core;
 
+import utils.LatencyHistogram;
+
 import java.time.Duration;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Counts what happens in a cache: hits, misses, puts, removals by cause, loads and refreshes, along with
+ * histograms of the get, put and load latencies.
+ *
+ * The counters are {@link LongAdder}s and the histograms are striped as well, so threads recording at the
+ * same time do not contend on a shared cache line, and nothing here takes a lock. Monitoring can be turned off
+ * for every cache by starting the JVM with {@code -Dcache.stats.enabled=false}, or for one {@link LRUCache} or
+ * {@link LFUCache} through its builder. A disabled monitor allocates no counters, never reads the clock, and
+ * its methods return immediately; its statistics only hold what the cache itself reports, such as the size.
+ *
+ * @param <K> the type of the key in the cache
+ */
 public class CacheMonitor<K> {
-    private final AtomicInteger hits;
-    private final AtomicInteger misses;
-    private final AtomicInteger evictions;
-    private final AtomicInteger size;
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("cache.stats.enabled", "true"));
+
+    private final boolean enabled;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder puts;
+    private final LongAdder[] removals;
+    private final LongAdder loadSuccesses;
+    private final LongAdder loadFailures;
+    private final LongAdder totalLoadTime;
+    private final LongAdder refreshSuccesses;
+    private final LongAdder refreshFailures;
+    private final LongAdder totalRefreshTime;
+    private final LatencyHistogram getLatency;
+    private final LatencyHistogram putLatency;
+    private final LatencyHistogram loadLatency;
+
+    /**
+     * The reasons for which a cache removes an entry on its own.
+     */
+    public enum RemovalCause {
+        /** The entry was evicted to keep the cache within its maximum size or weight. */
+        SIZE,
+        /** The entry's time-to-live elapsed. */
+        EXPIRED,
+        /** The garbage collector reclaimed the entry's weakly held key or softly held value. */
+        COLLECTED
+    }
+
+    /**
+     * Constructs a monitor that records statistics unless they were disabled for the whole JVM.
+     */
+    public CacheMonitor() {
+        this(ENABLED);
+    }
 
     public CacheMonitor(Duration ttl) {
-        hits = new AtomicInteger(0);
-        misses = new AtomicInteger(0);
-        evictions = new AtomicInteger(0);
-        size = new AtomicInteger(0);
+        this();
+    }
+
+    /**
+     * Constructs a monitor that records statistics only if {@code enabled} is true and they were not disabled
+     * for the whole JVM.
+     *
+     * @param enabled whether the statistics of this cache should be recorded
+     */
+    public CacheMonitor(boolean enabled) {
+        this.enabled = enabled && ENABLED;
+        if (this.enabled) {
+            hits = new LongAdder();
+            misses = new LongAdder();
+            puts = new LongAdder();
+            removals = new LongAdder[RemovalCause.values().length];
+            for (int i = 0; i < removals.length; i++) {
+                removals[i] = new LongAdder();
+            }
+            loadSuccesses = new LongAdder();
+            loadFailures = new LongAdder();
+            totalLoadTime = new LongAdder();
+            refreshSuccesses = new LongAdder();
+            refreshFailures = new LongAdder();
+            totalRefreshTime = new LongAdder();
+            getLatency = new LatencyHistogram();
+            putLatency = new LatencyHistogram();
+            loadLatency = new LatencyHistogram();
+        } else {
+            hits = null;
+            misses = null;
+            puts = null;
+            removals = null;
+            loadSuccesses = null;
+            loadFailures = null;
+            totalLoadTime = null;
+            refreshSuccesses = null;
+            refreshFailures = null;
+            totalRefreshTime = null;
+            getLatency = null;
+            putLatency = null;
+            loadLatency = null;
+        }
+    }
+
+    /**
+     * Returns whether this monitor records statistics.
+     *
+     * @return true if the statistics are recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the start time of an operation whose latency is recorded, or 0 without reading the clock if the
+     * monitor is disabled.
+     *
+     * @return the current {@link System#nanoTime()}, or 0
+     */
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0L;
     }
 
     public void onHit(K key) {
-        hits.incrementAndGet();
+        if (enabled) {
+            hits.increment();
+        }
     }
 
     public void onMiss(K key) {
-        misses.incrementAndGet();
+        if (enabled) {
+            misses.increment();
+        }
     }
 
-    public void onEviction(K key) {
-        evictions.incrementAndGet();
-        size.decrementAndGet();
+    public void onPut(K key) {
+        if (enabled) {
+            puts.increment();
+        }
     }
 
-    public void onPut(K key) {
-        size.incrementAndGet();
+    /**
+     * Records an entry that the cache removed on its own.
+     *
+     * @param key   the key of the removed entry
+     * @param cause the reason it was removed
+     */
+    public void onEviction(K key, RemovalCause cause) {
+        if (enabled) {
+            removals[cause.ordinal()].increment();
+        }
     }
 
-    public CacheStats getStats() {
-        return new CacheStats(hits.get(), misses.get(), evictions.get(), size.get());
+    /**
+     * Records the latency of a get that started at the given time.
+     *
+     * @param startTime the value {@link #startTimer()} returned when the get started
+     */
+    public void recordGet(long startTime) {
+        if (enabled) {
+            getLatency.record(System.nanoTime() - startTime);
+        }
     }
 
-    public void onCacheHit() {
+    /**
+     * Records the latency of a put that started at the given time.
+     *
+     * @param startTime the value {@link #startTimer()} returned when the put started
+     */
+    public void recordPut(long startTime) {
+        if (enabled) {
+            putLatency.record(System.nanoTime() - startTime);
+        }
+    }
 
+    /**
+     * Records a load that computed the value of a missing key.
+     *
+     * @param key       the key that was loaded
+     * @param startTime the value {@link #startTimer()} returned when the load started
+     */
+    public void onLoadSuccess(K key, long startTime) {
+        if (enabled) {
+            long elapsed = System.nanoTime() - startTime;
+            loadSuccesses.increment();
+            totalLoadTime.add(elapsed);
+            loadLatency.record(elapsed);
+        }
     }
 
+    /**
+     * Records a load whose loader threw.
+     *
+     * @param key       the key that was loaded
+     * @param startTime the value {@link #startTimer()} returned when the load started
+     */
+    public void onLoadFailure(K key, long startTime) {
+        if (enabled) {
+            long elapsed = System.nanoTime() - startTime;
+            loadFailures.increment();
+            totalLoadTime.add(elapsed);
+            loadLatency.record(elapsed);
+        }
+    }
+
+    /**
+     * Records a background refresh that loaded a new value.
+     *
+     * @param key          the key that was refreshed
+     * @param elapsedNanos the time the reload took, in nanoseconds
+     */
+    public void onRefreshSuccess(K key, long elapsedNanos) {
+        if (enabled) {
+            refreshSuccesses.increment();
+            totalRefreshTime.add(elapsedNanos);
+        }
+    }
+
+    /**
+     * Records a background refresh whose reload threw.
+     *
+     * @param key          the key that was refreshed
+     * @param elapsedNanos the time the reload took, in nanoseconds
+     */
+    public void onRefreshFailure(K key, long elapsedNanos) {
+        if (enabled) {
+            refreshFailures.increment();
+            totalRefreshTime.add(elapsedNanos);
+        }
+    }
+
+    /**
+     * Returns a builder filled with the recorded counters and latencies, to which the cache adds what it
+     * knows itself, such as its size.
+     *
+     * @return a builder of the cache's statistics
+     */
+    public CacheStats.Builder statsBuilder() {
+        CacheStats.Builder builder = CacheStats.newBuilder();
+        if (!enabled) {
+            return builder;
+        }
+        long[] removalCounts = new long[removals.length];
+        for (int i = 0; i < removals.length; i++) {
+            removalCounts[i] = removals[i].sum();
+        }
+        return builder
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .puts(puts.sum())
+                .removals(removalCounts)
+                .loads(loadSuccesses.sum(), loadFailures.sum(), totalLoadTime.sum())
+                .refreshes(refreshSuccesses.sum(), refreshFailures.sum(), totalRefreshTime.sum())
+                .getLatency(getLatency.snapshot())
+                .putLatency(putLatency.snapshot())
+                .loadLatency(loadLatency.snapshot());
+    }
+
+    public CacheStats getStats() {
+        return statsBuilder().build();
+    }
+
+    /**
+     * An immutable snapshot of a cache's statistics.
+     */
     public static class CacheStats {
-        private final int hits;
-        private final int misses;
-        private final int evictions;
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        private final long[] removals;
         private final int size;
+        private final long sketchMemoryBytes;
+        private final long totalWeight;
+        private final long adaptationParameter;
+        private final long loadSuccesses;
+        private final long loadFailures;
+        private final long totalLoadTime;
+        private final long refreshSuccesses;
+        private final long refreshFailures;
+        private final long totalRefreshTime;
+        private final LatencyHistogram.Snapshot getLatency;
+        private final LatencyHistogram.Snapshot putLatency;
+        private final LatencyHistogram.Snapshot loadLatency;
+
+        private CacheStats(Builder builder) {
+            this.hits = builder.hits;
+            this.misses = builder.misses;
+            this.puts = builder.puts;
+            this.removals = builder.removals.clone();
+            this.size = builder.size;
+            this.sketchMemoryBytes = builder.sketchMemoryBytes;
+            this.totalWeight = builder.totalWeight < 0 ? builder.size : builder.totalWeight;
+            this.adaptationParameter = builder.adaptationParameter;
+            this.loadSuccesses = builder.loadSuccesses;
+            this.loadFailures = builder.loadFailures;
+            this.totalLoadTime = builder.totalLoadTime;
+            this.refreshSuccesses = builder.refreshSuccesses;
+            this.refreshFailures = builder.refreshFailures;
+            this.totalRefreshTime = builder.totalRefreshTime;
+            this.getLatency = builder.getLatency;
+            this.putLatency = builder.putLatency;
+            this.loadLatency = builder.loadLatency;
+        }
 
-        public CacheStats(int hits, int misses, int evictions, int size) {
-            this.hits = hits;
-            this.misses = misses;
-            this.evictions = evictions;
-            this.size = size;
+        /**
+         * Returns an empty builder of statistics.
+         *
+         * @return a new builder
+         */
+        public static Builder newBuilder() {
+            return new Builder();
         }
 
-        public int getHits() {
+        /**
+         * Returns a builder holding these statistics, to derive a modified copy from.
+         *
+         * @return a new builder
+         */
+        public Builder toBuilder() {
+            return new Builder()
+                    .hits(hits)
+                    .misses(misses)
+                    .puts(puts)
+                    .removals(removals)
+                    .size(size)
+                    .sketchMemoryBytes(sketchMemoryBytes)
+                    .totalWeight(totalWeight)
+                    .adaptationParameter(adaptationParameter)
+                    .loads(loadSuccesses, loadFailures, totalLoadTime)
+                    .refreshes(refreshSuccesses, refreshFailures, totalRefreshTime)
+                    .getLatency(getLatency)
+                    .putLatency(putLatency)
+                    .loadLatency(loadLatency);
+        }
+
+        public long getHits() {
             return hits;
         }
 
-        public int getMisses() {
+        public long getMisses() {
             return misses;
         }
 
-        public int getEvictions() {
-            return evictions;
+        /**
+         * Returns the number of lookups, hits and misses together.
+         *
+         * @return the number of lookups
+         */
+        public long getRequestCount() {
+            return hits + misses;
+        }
+
+        /**
+         * Returns the fraction of the lookups that were hits, or 0 if there was no lookup.
+         *
+         * @return the hit ratio, between 0 and 1
+         */
+        public double getHitRatio() {
+            long requests = getRequestCount();
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        /**
+         * Returns the number of entries written.
+         *
+         * @return the number of puts
+         */
+        public long getPuts() {
+            return puts;
+        }
+
+        /**
+         * Returns the number of entries the cache removed on its own, for any cause.
+         *
+         * @return the number of evicted and expired entries
+         */
+        public long getEvictions() {
+            long total = 0;
+            for (long count : removals) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Returns the number of entries the cache removed for the given cause.
+         *
+         * @param cause the cause of the removals
+         * @return the number of entries removed for the cause
+         */
+        public long getEvictionCount(RemovalCause cause) {
+            return removals[cause.ordinal()];
+        }
+
+        /**
+         * Returns the number of entries removed because their time-to-live elapsed.
+         *
+         * @return the number of expired entries
+         */
+        public long getExpirations() {
+            return getEvictionCount(RemovalCause.EXPIRED);
+        }
+
+        /**
+         * Returns the number of entries removed because the garbage collector reclaimed their key or value.
+         *
+         * @return the number of collected entries
+         */
+        public long getCollections() {
+            return getEvictionCount(RemovalCause.COLLECTED);
         }
 
         public int getSize() {
             return size;
         }
+
+        /**
+         * Returns the memory used by the TinyLFU frequency sketch, or 0 if admission is disabled.
+         *
+         * @return the size of the frequency sketch in bytes
+         */
+        public long getSketchMemoryBytes() {
+            return sketchMemoryBytes;
+        }
+
+        /**
+         * Returns the total weight of the cached entries, which is the entry count unless the cache has a weigher.
+         *
+         * @return the total weight of the entries
+         */
+        public long getTotalWeight() {
+            return totalWeight;
+        }
+
+        /**
+         * Returns the target size of the recency list of an adaptive cache such as {@link ARCCache}, which grows
+         * while recently evicted one-time keys come back and shrinks while frequent ones do; 0 for other caches.
+         *
+         * @return the adaptation parameter of the cache
+         */
+        public long getAdaptationParameter() {
+            return adaptationParameter;
+        }
+
+        /**
+         * Returns the number of loads that computed a value.
+         *
+         * @return the number of successful loads
+         */
+        public long getLoadSuccessCount() {
+            return loadSuccesses;
+        }
+
+        /**
+         * Returns the number of loads whose loader threw.
+         *
+         * @return the number of failed loads
+         */
+        public long getLoadFailureCount() {
+            return loadFailures;
+        }
+
+        /**
+         * Returns the total time spent in loads, in nanoseconds.
+         *
+         * @return the total load time in nanoseconds
+         */
+        public long getTotalLoadTime() {
+            return totalLoadTime;
+        }
+
+        /**
+         * Returns the number of background refreshes that loaded a new value.
+         *
+         * @return the number of successful refreshes
+         */
+        public long getRefreshSuccessCount() {
+            return refreshSuccesses;
+        }
+
+        /**
+         * Returns the number of background refreshes whose reload threw.
+         *
+         * @return the number of failed refreshes
+         */
+        public long getRefreshFailureCount() {
+            return refreshFailures;
+        }
+
+        /**
+         * Returns the total time spent reloading values in background refreshes, in nanoseconds.
+         *
+         * @return the total refresh time in nanoseconds
+         */
+        public long getTotalRefreshTime() {
+            return totalRefreshTime;
+        }
+
+        /**
+         * Returns the average time a background refresh took, in nanoseconds, or 0 if none ran.
+         *
+         * @return the average refresh time in nanoseconds
+         */
+        public double getAverageRefreshTime() {
+            long refreshes = refreshSuccesses + refreshFailures;
+            return refreshes == 0 ? 0.0 : (double) totalRefreshTime / refreshes;
+        }
+
+        /**
+         * Returns the latencies of the single-key gets. Bulk lookups are counted as hits and misses, but not here.
+         *
+         * @return the get latency histogram
+         */
+        public LatencyHistogram.Snapshot getGetLatency() {
+            return getLatency;
+        }
+
+        /**
+         * Returns the latencies of the single-key puts.
+         *
+         * @return the put latency histogram
+         */
+        public LatencyHistogram.Snapshot getPutLatency() {
+            return putLatency;
+        }
+
+        /**
+         * Returns the latencies of the loads, successful or not.
+         *
+         * @return the load latency histogram
+         */
+        public LatencyHistogram.Snapshot getLoadLatency() {
+            return loadLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{hits=" + hits + ", misses=" + misses + ", hitRatio=" + getHitRatio()
+                    + ", puts=" + puts + ", evictions=" + getEvictions() + ", expirations=" + getExpirations()
+                    + ", collections=" + getCollections()
+                    + ", size=" + size + ", getP50=" + getLatency.getP50() + ", getP99=" + getLatency.getP99()
+                    + ", getP999=" + getLatency.getP999() + "}";
+        }
+
+        /**
+         * A builder of {@link CacheStats}; every value it is not given is 0.
+         */
+        public static final class Builder {
+            private long hits;
+            private long misses;
+            private long puts;
+            private long[] removals = new long[RemovalCause.values().length];
+            private int size;
+            private long sketchMemoryBytes;
+            private long totalWeight = -1;
+            private long adaptationParameter;
+            private long loadSuccesses;
+            private long loadFailures;
+            private long totalLoadTime;
+            private long refreshSuccesses;
+            private long refreshFailures;
+            private long totalRefreshTime;
+            private LatencyHistogram.Snapshot getLatency = LatencyHistogram.Snapshot.EMPTY;
+            private LatencyHistogram.Snapshot putLatency = LatencyHistogram.Snapshot.EMPTY;
+            private LatencyHistogram.Snapshot loadLatency = LatencyHistogram.Snapshot.EMPTY;
+
+            private Builder() {
+            }
+
+            public Builder hits(long hits) {
+                this.hits = hits;
+                return this;
+            }
+
+            public Builder misses(long misses) {
+                this.misses = misses;
+                return this;
+            }
+
+            public Builder puts(long puts) {
+                this.puts = puts;
+                return this;
+            }
+
+            /**
+             * Sets the number of removals of every cause, indexed by {@link RemovalCause#ordinal()}.
+             *
+             * @param removals the removal counts
+             * @return this builder
+             */
+            public Builder removals(long[] removals) {
+                if (removals.length != this.removals.length) {
+                    throw new IllegalArgumentException("Expected one count per removal cause");
+                }
+                this.removals = removals.clone();
+                return this;
+            }
+
+            public Builder size(int size) {
+                this.size = size;
+                return this;
+            }
+
+            public Builder sketchMemoryBytes(long sketchMemoryBytes) {
+                this.sketchMemoryBytes = sketchMemoryBytes;
+                return this;
+            }
+
+            /**
+             * Sets the total weight of the entries; if never set, the size is used.
+             *
+             * @param totalWeight the total weight of the entries
+             * @return this builder
+             */
+            public Builder totalWeight(long totalWeight) {
+                this.totalWeight = totalWeight;
+                return this;
+            }
+
+            public Builder adaptationParameter(long adaptationParameter) {
+                this.adaptationParameter = adaptationParameter;
+                return this;
+            }
+
+            public Builder loads(long successes, long failures, long totalTime) {
+                this.loadSuccesses = successes;
+                this.loadFailures = failures;
+                this.totalLoadTime = totalTime;
+                return this;
+            }
+
+            public Builder refreshes(long successes, long failures, long totalTime) {
+                this.refreshSuccesses = successes;
+                this.refreshFailures = failures;
+                this.totalRefreshTime = totalTime;
+                return this;
+            }
+
+            public Builder getLatency(LatencyHistogram.Snapshot getLatency) {
+                this.getLatency = getLatency;
+                return this;
+            }
+
+            public Builder putLatency(LatencyHistogram.Snapshot putLatency) {
+                this.putLatency = putLatency;
+                return this;
+            }
+
+            public Builder loadLatency(LatencyHistogram.Snapshot loadLatency) {
+                this.loadLatency = loadLatency;
+                return this;
+            }
+
+            public CacheStats build() {
+                return new CacheStats(this);
+            }
+        }
     }
 }
@@ -0,0 +1,147 @@
+package core;
+
+import Interface.Serializer;
+import domain.CacheNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes the binary snapshot files used to warm a cache up after a restart.
+ *
+ * A snapshot starts with a magic number, a format version, the wall-clock time it was written at and the entry
+ * count, followed by the entries in
+ * the order the cache wants them back, most valuable first. Every entry is written as its remaining
+ * time-to-live in nanoseconds (or -1 if it never expires), an {@code int} tag whose meaning belongs to the
+ * cache (the LRU queue, or the LFU frequency), then the key and the value, each as a length followed by the
+ * bytes of its {@link Serializer}. Remaining times rather than ticker times are stored, because ticker times
+ * do not survive a restart; the wall-clock time elapsed until the snapshot is loaded is subtracted from them.
+ *
+ * Files are written to a temporary file that then replaces the target, so a crash never leaves a truncated
+ * snapshot behind.
+ */
+final class CacheSnapshot {
+
+    static final int MAGIC = 0x43534e50;
+    static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CacheSnapshot() {
+    }
+
+    /**
+     * Receives the entries read from a snapshot, in the order they were written.
+     */
+    interface EntryConsumer<K, V> {
+        /**
+         * Accepts one entry of the snapshot.
+         *
+         * @param key            the key of the entry
+         * @param value          the value of the entry
+         * @param expirationTime the ticker time at which the entry expires, or {@link CacheNode#NO_EXPIRATION}
+         * @param tag            the cache-specific tag written with the entry
+         */
+        void accept(K key, V value, long expirationTime, int tag);
+    }
+
+    /**
+     * Writes the nodes to the file. The tags and expiration times must have been copied while the cache was
+     * locked; the keys and values are read from the nodes now.
+     */
+    static <K, V> void write(Path file, List<? extends CacheNode<K, V>> nodes, int[] tags, long[] expirationTimes,
+                             long now, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer scratch = ByteBuffer.allocate(256);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                CacheNode<K, V> node = nodes.get(i);
+                long expirationTime = expirationTimes[i];
+                out.writeLong(expirationTime == CacheNode.NO_EXPIRATION ? -1L : Math.max(0L, expirationTime - now));
+                out.writeInt(tags[i]);
+                scratch = writeField(out, scratch, keySerializer, node.getKey());
+                scratch = writeField(out, scratch, valueSerializer, node.getValue());
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the entries of the file, handing the ones that have not expired yet to the consumer.
+     *
+     * @return the number of entries in the file
+     */
+    static <K, V> int read(Path file, long now, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                           EntryConsumer<K, V> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cache snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            long elapsed = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, System.currentTimeMillis() - in.readLong()));
+            int count = in.readInt();
+            ByteBuffer scratch = ByteBuffer.allocate(256);
+            for (int i = 0; i < count; i++) {
+                long remaining = in.readLong();
+                int tag = in.readInt();
+                scratch = readField(in, scratch);
+                K key = keySerializer.deserialize(scratch);
+                scratch = readField(in, scratch);
+                V value = valueSerializer.deserialize(scratch);
+                if (remaining < 0) {
+                    consumer.accept(key, value, CacheNode.NO_EXPIRATION, tag);
+                } else if (remaining > elapsed) {
+                    consumer.accept(key, value, now + (remaining - elapsed), tag);
+                }
+            }
+            return count;
+        }
+    }
+
+    private static <T> ByteBuffer writeField(DataOutputStream out, ByteBuffer scratch, Serializer<T> serializer,
+                                             T field) throws IOException {
+        int length = serializer.serializedSize(field);
+        if (scratch.capacity() < length) {
+            scratch = ByteBuffer.allocate(Math.max(length, scratch.capacity() * 2));
+        }
+        scratch.clear().limit(length);
+        serializer.serialize(field, scratch);
+        out.writeInt(length);
+        out.write(scratch.array(), 0, length);
+        return scratch;
+    }
+
+    /**
+     * Reads a length-prefixed field into the scratch buffer, growing it if needed, and returns the buffer
+     * with the field's bytes as its remaining ones.
+     */
+    private static ByteBuffer readField(DataInputStream in, ByteBuffer scratch) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted snapshot: negative field length");
+        }
+        if (scratch.capacity() < length) {
+            scratch = ByteBuffer.allocate(Math.max(length, scratch.capacity() * 2));
+        }
+        in.readFully(scratch.array(), 0, length);
+        scratch.clear().limit(length);
+        return scratch;
+    }
+}
@@ -0,0 +1,301 @@
+package core;
+
+import Interface.Cache;
+import domain.CacheNode;
+import domain.ClockCacheNode;
+import utils.Maps;
+import utils.Ticker;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache evicting with the CLOCK policy, whose reads never take a lock and never relink a node.
+ *
+ * The entries sit in the slots of a fixed ring, and every node carries a small counter that a hit increments
+ * up to {@link ClockCacheNode#MAX_FREQUENCY}; once it is saturated, a hit writes nothing, so concurrent readers
+ * of the same hot entries do not fight over cache lines the way the relinking of an LRU list makes them.
+ * {@link #get(Object)} is a lookup in a {@link ConcurrentHashMap} followed by that increment.
+ *
+ * Writes take a single lock. When a new key arrives while the ring is full, the clock hand sweeps the ring,
+ * decrementing the counter of every entry it passes, and evicts the first entry whose counter is already 0.
+ * An entry is inserted with a counter of 0, so keys that are never read again are the first to go, while an
+ * entry read since the hand last passed it survives one more revolution per hit. Freed slots are reused before
+ * the hand is moved.
+ *
+ * Entries put with a time-to-live are reclaimed through a {@link TimerWheel} advanced by the writes, and a
+ * read that finds an expired entry removes it under the lock.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class ClockCache<K, V> implements Cache<K, V> {
+    private final int capacity;
+    private final ConcurrentHashMap<K, ClockCacheNode<K, V>> map;
+    private final ClockCacheNode<K, V>[] ring;
+    private final int[] freeSlots;
+    private final ReentrantLock lock;
+    private final CacheMonitor<K> monitor;
+    private final TimerWheel<K, V> timerWheel;
+    private final Ticker ticker;
+    private int freeCount;
+    private int hand;
+
+    /**
+     * Constructs a new ClockCache with the given capacity.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     */
+    public ClockCache(int capacity) {
+        this(capacity, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs a new ClockCache with the given capacity, reading expiration times from the given ticker.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     * @param ticker   the time source used for expiration
+     */
+    @SuppressWarnings("unchecked")
+    public ClockCache(int capacity, Ticker ticker) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be greater than 0.");
+        }
+        this.capacity = capacity;
+        this.map = new ConcurrentHashMap<>(capacity);
+        this.ring = (ClockCacheNode<K, V>[]) new ClockCacheNode[capacity];
+        this.freeSlots = new int[capacity];
+        this.lock = new ReentrantLock();
+        this.monitor = new CacheMonitor<>();
+        this.ticker = ticker;
+        this.timerWheel = new TimerWheel<>(ticker.read());
+        resetSlots();
+    }
+
+    @Override
+    public void put(K key, V value) {
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            timerWheel.advance(ticker.read(), this::expire);
+            putLocked(key, value, CacheNode.NO_EXPIRATION, false);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL value cannot be negative");
+        }
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            putLocked(key, value, CacheNode.expirationTime(now, ttl), true);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    private void putLocked(K key, V value, long expirationTime, boolean hasTtl) {
+        monitor.onPut(key);
+        ClockCacheNode<K, V> node = map.get(key);
+        if (node != null) {
+            node.setValue(value);
+            if (hasTtl) {
+                node.setExpirationTime(expirationTime);
+                timerWheel.reschedule(node);
+            }
+            node.recordAccess();
+            return;
+        }
+        if (freeCount == 0) {
+            evict();
+        }
+        node = new ClockCacheNode<>(key, value, expirationTime);
+        int slot = freeSlots[--freeCount];
+        node.setSlot(slot);
+        ring[slot] = node;
+        map.put(key, node);
+        if (hasTtl) {
+            timerWheel.schedule(node);
+        }
+    }
+
+    /**
+     * Sweeps the clock hand until it finds an entry that was not accessed since it last passed, and evicts it.
+     * The ring is full, and every pass decrements a counter, so the sweep ends within a few revolutions.
+     */
+    private void evict() {
+        while (true) {
+            ClockCacheNode<K, V> node = ring[hand];
+            hand = hand + 1 == capacity ? 0 : hand + 1;
+            if (node.tryAge()) {
+                removeNode(node);
+                monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.SIZE);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        long start = monitor.startTimer();
+        V value = getUnlocked(key);
+        monitor.recordGet(start);
+        return value;
+    }
+
+    private V getUnlocked(K key) {
+        ClockCacheNode<K, V> node = map.get(key);
+        if (node == null) {
+            monitor.onMiss(key);
+            return null;
+        }
+        if (node.isExpired(ticker.read())) {
+            lock.lock();
+            try {
+                if (map.get(key) == node) {
+                    removeNode(node);
+                    monitor.onEviction(key, CacheMonitor.RemovalCause.EXPIRED);
+                }
+            } finally {
+                lock.unlock();
+            }
+            monitor.onMiss(key);
+            return null;
+        }
+        node.recordAccess();
+        monitor.onHit(key);
+        return node.getValue();
+    }
+
+    @Override
+    public V peek(K key) {
+        ClockCacheNode<K, V> node = map.get(key);
+        return node == null || node.isExpired(ticker.read()) ? null : node.getValue();
+    }
+
+    @Override
+    public V remove(K key) {
+        lock.lock();
+        try {
+            ClockCacheNode<K, V> node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            removeNode(node);
+            return node.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the values of the keys found in the cache. Like {@link #get(Object)}, this takes no lock.
+     *
+     * @param keys the keys of the entries to look up
+     * @return a map of the keys found to their values
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = Maps.newHashMapWithExpectedSize(keys.size());
+        for (K key : keys) {
+            V value = getUnlocked(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds or updates the entries of the map, taking the lock once for the whole batch.
+     *
+     * @param entries the entries to add or update
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        lock.lock();
+        try {
+            timerWheel.advance(ticker.read(), this::expire);
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                putLocked(entry.getKey(), entry.getValue(), CacheNode.NO_EXPIRATION, false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+            Arrays.fill(ring, null);
+            timerWheel.clear();
+            resetSlots();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        return monitor.statsBuilder().size(size()).build();
+    }
+
+    /**
+     * Removes an entry whose time-to-live has elapsed, as found by the timer wheel.
+     */
+    private void expire(CacheNode<K, V> node) {
+        if (map.get(node.getKey()) == node) {
+            freeSlot((ClockCacheNode<K, V>) node);
+            map.remove(node.getKey());
+            monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.EXPIRED);
+        }
+    }
+
+    /**
+     * Removes the node from the map, the ring and the timer wheel. Must be called while holding the lock.
+     */
+    private void removeNode(ClockCacheNode<K, V> node) {
+        map.remove(node.getKey());
+        timerWheel.deschedule(node);
+        freeSlot(node);
+    }
+
+    private void freeSlot(ClockCacheNode<K, V> node) {
+        ring[node.getSlot()] = null;
+        freeSlots[freeCount++] = node.getSlot();
+    }
+
+    /**
+     * Marks every slot as free, handing out the lowest slots first.
+     */
+    private void resetSlots() {
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[i] = capacity - 1 - i;
+        }
+        freeCount = capacity;
+        hand = 0;
+    }
+}
@@ -0,0 +1,458 @@
+package core;
+
+import domain.CacheNode;
+import Interface.Cache;
+import utils.Maps;
+import utils.Ticker;
+import utils.Utility;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache that splits its keys across independently locked segments, each of them a small LRU cache
+ * with its own hash map and doubly linked list. Threads working on keys of different segments never
+ * contend, at the price of an approximate global LRU order: the evicted entry is the least recently
+ * used entry of its segment, and every segment holds at most its share of the capacity.
+ * Every segment also keeps its own {@link TimerWheel}, advanced by the operations that lock the segment,
+ * so expired entries are reclaimed without being read.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class ConcurrentLRUCache<K, V> implements Cache<K, V> {
+
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    static final int MAX_SEGMENTS = 1 << 16;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final CacheMonitor<K> monitor;
+
+    /**
+     * Constructs a new ConcurrentLRUCache with the given capacity and the default concurrency level.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     */
+    public ConcurrentLRUCache(int capacity) {
+        this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new ConcurrentLRUCache with the given capacity, split into {@code concurrencyLevel} segments
+     * (rounded down to a power of two, and never more segments than entries). The capacity is divided exactly
+     * between the segments, so the cache never holds more entries than its capacity.
+     *
+     * @param capacity         the maximum number of entries the cache can hold
+     * @param concurrencyLevel the estimated number of threads updating the cache concurrently
+     */
+    public ConcurrentLRUCache(int capacity, int concurrencyLevel) {
+        this(capacity, concurrencyLevel, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs a new ConcurrentLRUCache with the given capacity and concurrency level, reading
+     * expiration times from the given ticker.
+     *
+     * @param capacity         the maximum number of entries the cache can hold
+     * @param concurrencyLevel the estimated number of threads updating the cache concurrently
+     * @param ticker           the time source used for expiration
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLRUCache(int capacity, int concurrencyLevel, Ticker ticker) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be greater than 0.");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level should be greater than 0.");
+        }
+        int count = Integer.highestOneBit(Math.min(Math.min(concurrencyLevel, capacity), MAX_SEGMENTS));
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        this.segments = new Segment[count];
+        int segmentCapacity = capacity / count;
+        int larger = capacity % count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(i < larger ? segmentCapacity + 1 : segmentCapacity, ticker);
+        }
+        this.monitor = new CacheMonitor<>();
+    }
+
+    /**
+     * Adds or updates the entry for the given key with the given value in the cache.
+     * If the key's segment is at capacity, the least recently used entry of that segment is evicted.
+     *
+     * @param key   the key of the entry to add or update
+     * @param value the value of the entry to add or update
+     */
+    @Override
+    public void put(K key, V value) {
+        long start = monitor.startTimer();
+        segmentFor(key).put(key, value, null, monitor);
+        monitor.recordPut(start);
+    }
+
+    /**
+     * Adds or updates the entry for the given key with the given value in the cache.
+     * If the key's segment is at capacity, the least recently used entry of that segment is evicted.
+     *
+     * @param key   the key of the entry to add or update
+     * @param value the value of the entry to add or update
+     * @param ttl   the time-to-live duration of each entry in the cache
+     */
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL value cannot be negative");
+        }
+        long start = monitor.startTimer();
+        segmentFor(key).put(key, value, ttl, monitor);
+        monitor.recordPut(start);
+    }
+
+    /**
+     * Returns the value associated with the given key in the cache, or null if the key is not found.
+     * If the entry for the key is expired, it is removed from the cache and null is returned.
+     *
+     * @param key the key of the entry to look up
+     * @return the value associated with the key, or null if the key is not found
+     */
+    @Override
+    public V get(K key) {
+        long start = monitor.startTimer();
+        V value = segmentFor(key).get(key, monitor);
+        monitor.recordGet(start);
+        return value;
+    }
+
+    @Override
+    public V peek(K key) {
+        return segmentFor(key).peek(key);
+    }
+
+    /**
+     * Removes the entry for the given key from the cache, if it exists.
+     *
+     * @param key the key of the entry to remove
+     */
+    @Override
+    public V remove(K key) {
+        return segmentFor(key).remove(key);
+    }
+
+    /**
+     * Returns the values of the keys found in the cache. The keys are grouped by segment first, so every
+     * segment is locked once for its share of the batch.
+     *
+     * @param keys the keys of the entries to look up
+     * @return a map of the keys found to their values
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = Maps.newHashMapWithExpectedSize(keys.size());
+        List<K>[] batches = groupBySegment(keys);
+        for (int i = 0; i < batches.length; i++) {
+            if (batches[i] != null) {
+                segments[i].getAll(batches[i], result, monitor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds or updates the entries of the map, locking every segment once for its share of the batch.
+     *
+     * @param entries the entries to add or update
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        List<Map.Entry<? extends K, ? extends V>>[] batches = new List[segments.length];
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            int index = segmentIndex(entry.getKey());
+            if (batches[index] == null) {
+                batches[index] = new ArrayList<>();
+            }
+            batches[index].add(entry);
+        }
+        for (int i = 0; i < batches.length; i++) {
+            if (batches[i] != null) {
+                segments[i].putAll(batches[i], monitor);
+            }
+        }
+    }
+
+    /**
+     * Removes the entries for the keys, locking every segment once for its share of the batch.
+     *
+     * @param keys the keys of the entries to remove
+     */
+    @Override
+    public void removeAll(Collection<? extends K> keys) {
+        List<K>[] batches = groupBySegment(keys);
+        for (int i = 0; i < batches.length; i++) {
+            if (batches[i] != null) {
+                segments[i].removeAll(batches[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the cache. The segments are summed without locking, so the
+     * result is a moment-in-time estimate while other threads are writing.
+     *
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Clears all entries from the cache, locking one segment at a time.
+     */
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        return monitor.statsBuilder().size(size()).build();
+    }
+
+    /**
+     * Returns the number of segments the keys are split across.
+     *
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        return segments[segmentIndex(key)];
+    }
+
+    private int segmentIndex(Object key) {
+        // Use the high bits so that the low bits stay well distributed for the segment's own HashMap.
+        int h = key.hashCode() * 0x9E3779B9;
+        return segmentShift == 32 ? 0 : h >>> segmentShift;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<K>[] groupBySegment(Collection<? extends K> keys) {
+        List<K>[] batches = new List[segments.length];
+        for (K key : keys) {
+            int index = segmentIndex(key);
+            if (batches[index] == null) {
+                batches[index] = new ArrayList<>();
+            }
+            batches[index].add(key);
+        }
+        return batches;
+    }
+
+    /**
+     * An independently locked LRU cache holding the keys of one hash range.
+     */
+    static final class Segment<K, V> extends ReentrantLock {
+        private final Map<K, CacheNode<K, V>> map;
+        private final Utility<K, V> list;
+        private final TimerWheel<K, V> timerWheel;
+        private final Ticker ticker;
+        private final int capacity;
+        volatile int count;
+
+        Segment(int capacity, Ticker ticker) {
+            this.capacity = capacity;
+            this.ticker = ticker;
+            this.map = new HashMap<>();
+            this.list = new Utility<>();
+            this.timerWheel = new TimerWheel<>(ticker.read());
+        }
+
+        void put(K key, V value, Duration ttl, CacheMonitor<K> monitor) {
+            lock();
+            try {
+                long now = ticker.read();
+                expireEntries(now, monitor);
+                putLocked(key, value, ttl, now, monitor);
+            } finally {
+                unlock();
+            }
+        }
+
+        V get(K key, CacheMonitor<K> monitor) {
+            lock();
+            try {
+                long now = ticker.read();
+                expireEntries(now, monitor);
+                return getLocked(key, now, monitor);
+            } finally {
+                unlock();
+            }
+        }
+
+        V peek(K key) {
+            lock();
+            try {
+                CacheNode<K, V> node = map.get(key);
+                return node == null || node.isExpired(ticker.read()) ? null : node.getValue();
+            } finally {
+                unlock();
+            }
+        }
+
+        V remove(K key) {
+            lock();
+            try {
+                return removeLocked(key);
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Looks up a batch of keys of this segment under a single lock acquisition.
+         */
+        void getAll(List<K> keys, Map<K, V> result, CacheMonitor<K> monitor) {
+            lock();
+            try {
+                long now = ticker.read();
+                expireEntries(now, monitor);
+                for (K key : keys) {
+                    V value = getLocked(key, now, monitor);
+                    if (value != null) {
+                        result.put(key, value);
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Adds or updates a batch of entries of this segment under a single lock acquisition.
+         */
+        void putAll(List<Map.Entry<? extends K, ? extends V>> entries, CacheMonitor<K> monitor) {
+            lock();
+            try {
+                long now = ticker.read();
+                expireEntries(now, monitor);
+                for (Map.Entry<? extends K, ? extends V> entry : entries) {
+                    putLocked(entry.getKey(), entry.getValue(), null, now, monitor);
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Removes a batch of keys of this segment under a single lock acquisition.
+         */
+        void removeAll(List<K> keys) {
+            lock();
+            try {
+                for (K key : keys) {
+                    removeLocked(key);
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        private void putLocked(K key, V value, Duration ttl, long now, CacheMonitor<K> monitor) {
+            monitor.onPut(key);
+            CacheNode<K, V> node = map.get(key);
+            if (node != null) {
+                node.setValue(value);
+                if (ttl != null) {
+                    node.setExpirationTime(CacheNode.expirationTime(now, ttl));
+                    timerWheel.reschedule(node);
+                }
+                list.moveToHead(node);
+                return;
+            }
+            node = ttl == null
+                    ? new CacheNode<>(key, value)
+                    : new CacheNode<>(key, value, CacheNode.expirationTime(now, ttl));
+            map.put(key, node);
+            list.addNode(node);
+            if (ttl != null) {
+                timerWheel.schedule(node);
+            }
+            if (map.size() > capacity) {
+                CacheNode<K, V> eldest = list.removeTail();
+                timerWheel.deschedule(eldest);
+                map.remove(eldest.getKey());
+                monitor.onEviction(eldest.getKey(), CacheMonitor.RemovalCause.SIZE);
+            }
+            count = map.size();
+        }
+
+        private V getLocked(K key, long now, CacheMonitor<K> monitor) {
+            CacheNode<K, V> node = map.get(key);
+            if (node == null) {
+                monitor.onMiss(key);
+                return null;
+            }
+            if (node.isExpired(now)) {
+                map.remove(key);
+                list.removeFromList(node);
+                timerWheel.deschedule(node);
+                count = map.size();
+                monitor.onEviction(key, CacheMonitor.RemovalCause.EXPIRED);
+                monitor.onMiss(key);
+                return null;
+            }
+            list.moveToHead(node);
+            monitor.onHit(key);
+            return node.getValue();
+        }
+
+        private V removeLocked(K key) {
+            CacheNode<K, V> node = map.remove(key);
+            if (node == null) {
+                return null;
+            }
+            list.removeFromList(node);
+            timerWheel.deschedule(node);
+            count = map.size();
+            return node.getValue();
+        }
+
+        /**
+         * Removes the entries whose time-to-live elapsed since the segment was last locked.
+         */
+        void expireEntries(long now, CacheMonitor<K> monitor) {
+            timerWheel.advance(now, node -> {
+                map.remove(node.getKey());
+                list.removeFromList(node);
+                monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.EXPIRED);
+            });
+            count = map.size();
+        }
+
+        void clear() {
+            lock();
+            try {
+                map.clear();
+                list.clear();
+                timerWheel.clear();
+                count = 0;
+            } finally {
+                unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package core;
+
+import Interface.Serializer;
+import domain.CacheNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A second cache tier that keeps the entries evicted from memory in memory-mapped files on local disk, so that
+ * a miss in memory can be served from disk instead of from the backend.
+ *
+ * The tier is log-structured: values are serialized and appended to the active segment file, and an in-memory
+ * index maps every key to the segment, offset and length of its latest value. Replacing or removing an entry
+ * only updates the index and counts the old record as garbage. Once less than half of a full segment is live,
+ * a background thread compacts it by copying its live records to the active segment and deleting its file.
+ * When the segments exceed the tier's maximum size, the oldest segment is dropped with all its entries.
+ *
+ * Expiration times are stored with the entries in the caller's ticker time, and an expired entry is never
+ * returned. Entries are not persisted across restarts: the index lives only in memory, and {@link #close()}
+ * deletes the segment files.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class DiskTier<K, V> implements Closeable {
+
+    static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+    private final Path directory;
+    private final long maximumBytes;
+    private final int segmentSize;
+    private final Serializer<V> serializer;
+    private final Map<K, Record<K>> index;
+    private final List<Segment<K>> sealedSegments;
+    private final ReentrantLock lock;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compactionScheduled;
+    private Segment<K> activeSegment;
+    private int nextSegmentId;
+    private boolean closed;
+
+    /**
+     * Constructs a tier that stores at most the given number of bytes in segment files of the default size
+     * (16 MiB) in the given directory.
+     *
+     * @param directory    the directory holding the segment files
+     * @param maximumBytes the maximum disk space used by the segment files
+     * @param serializer   the serializer converting values to and from bytes
+     */
+    public DiskTier(Path directory, long maximumBytes, Serializer<V> serializer) {
+        this(directory, maximumBytes, DEFAULT_SEGMENT_SIZE, serializer);
+    }
+
+    /**
+     * Constructs a tier that stores at most the given number of bytes in segment files of the given size in
+     * the given directory. Values larger than a segment are not stored.
+     *
+     * @param directory    the directory holding the segment files
+     * @param maximumBytes the maximum disk space used by the segment files
+     * @param segmentSize  the size of every segment file in bytes
+     * @param serializer   the serializer converting values to and from bytes
+     */
+    public DiskTier(Path directory, long maximumBytes, int segmentSize, Serializer<V> serializer) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size should be greater than 0.");
+        }
+        if (maximumBytes < 2L * segmentSize) {
+            throw new IllegalArgumentException("Maximum size should hold at least two segments.");
+        }
+        this.directory = directory;
+        this.maximumBytes = maximumBytes;
+        this.segmentSize = segmentSize;
+        this.serializer = serializer;
+        this.index = new HashMap<>();
+        this.sealedSegments = new LinkedList<>();
+        this.lock = new ReentrantLock();
+        this.compactionScheduled = new AtomicBoolean();
+        this.compactor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "cache-disk-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lock.lock();
+        try {
+            this.activeSegment = openSegment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the value for the key, replacing any value the tier held for it. The previous value is dropped
+     * first, so a value that cannot be serialized leaves the tier without one for the key.
+     *
+     * @param key            the key of the entry
+     * @param value          the value of the entry
+     * @param expirationTime the ticker time at which the entry expires, or {@link CacheNode#NO_EXPIRATION}
+     * @return true if the value was stored, false if it is larger than a segment
+     */
+    public boolean put(K key, V value, long expirationTime) {
+        return put(key, value, expirationTime, () -> true);
+    }
+
+    /**
+     * Appends the value for the key like {@link #put(Object, Object, long)}, but only if the condition holds when
+     * checked under the tier's lock. A cache writing its evicted entries without holding its own lock uses the
+     * condition to skip an entry that it promoted or replaced in the meantime.
+     */
+    boolean put(K key, V value, long expirationTime, BooleanSupplier condition) {
+        lock.lock();
+        try {
+            checkOpen();
+            if (!condition.getAsBoolean()) {
+                return false;
+            }
+            discard(index.remove(key));
+            int length = serializer.serializedSize(value);
+            if (length > segmentSize) {
+                return false;
+            }
+            Record<K> record = append(key, length, expirationTime);
+            try {
+                serializer.serialize(value, slice(record));
+            } catch (RuntimeException e) {
+                discard(record);
+                throw e;
+            }
+            index.put(key, record);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry for the key from the tier and returns it, unless it expired.
+     *
+     * @param key the key of the entry
+     * @param now the current ticker time
+     * @return the entry, or null if the tier holds no live entry for the key
+     */
+    public Entry<V> take(K key, long now) {
+        lock.lock();
+        try {
+            Record<K> record = index.remove(key);
+            if (record == null) {
+                return null;
+            }
+            discard(record);
+            if (record.expirationTime != CacheNode.NO_EXPIRATION && now - record.expirationTime > 0) {
+                return null;
+            }
+            return new Entry<>(serializer.deserialize(slice(record)), record.expirationTime);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets the entry for the key, if the tier holds one.
+     *
+     * @param key the key of the entry
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            discard(index.remove(key));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the tier, including expired entries not yet reclaimed.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the disk space taken by the segment files.
+     *
+     * @return the size of the segment files in bytes
+     */
+    public long diskBytes() {
+        lock.lock();
+        try {
+            return (sealedSegments.size() + 1L) * segmentSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets every entry and deletes every sealed segment file.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            index.clear();
+            for (Segment<K> segment : sealedSegments) {
+                deleteSegment(segment);
+            }
+            sealedSegments.clear();
+            activeSegment.records.clear();
+            activeSegment.writeOffset = 0;
+            activeSegment.liveBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the compaction thread and deletes every segment file.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            clear();
+            deleteSegment(activeSegment);
+        } finally {
+            lock.unlock();
+        }
+        compactor.shutdownNow();
+    }
+
+    /**
+     * Reserves room for a record at the end of the active segment, sealing it and opening a new one when it
+     * is full. Must be called while holding the lock.
+     */
+    private Record<K> append(K key, int length, long expirationTime) {
+        if (activeSegment.writeOffset + length > segmentSize) {
+            Segment<K> sealed = activeSegment;
+            sealedSegments.add(sealed);
+            activeSegment = openSegment();
+            if (sealed.isSparse(segmentSize)) {
+                scheduleCompaction();
+            }
+            while ((sealedSegments.size() + 1L) * segmentSize > maximumBytes) {
+                dropSegment(sealedSegments.remove(0));
+            }
+        }
+        Segment<K> segment = activeSegment;
+        Record<K> record = new Record<>(key, segment, segment.writeOffset, length, expirationTime);
+        segment.writeOffset += length;
+        segment.liveBytes += length;
+        segment.records.add(record);
+        return record;
+    }
+
+    /**
+     * Marks a record that left the index as garbage, scheduling a compaction if its segment became sparse.
+     * Must be called while holding the lock.
+     */
+    private void discard(Record<K> record) {
+        if (record == null) {
+            return;
+        }
+        record.live = false;
+        Segment<K> segment = record.segment;
+        segment.liveBytes -= record.length;
+        if (segment != activeSegment && segment.isSparse(segmentSize)) {
+            scheduleCompaction();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (!closed && compactionScheduled.compareAndSet(false, true)) {
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Compacts the sparse sealed segments one at a time. The live records are moved in small batches, so
+     * that the lock is never held for long.
+     */
+    private void compact() {
+        compactionScheduled.set(false);
+        for (;;) {
+            Segment<K> segment;
+            List<Record<K>> records;
+            lock.lock();
+            try {
+                segment = null;
+                for (Segment<K> candidate : sealedSegments) {
+                    if (candidate.isSparse(segmentSize)) {
+                        segment = candidate;
+                        break;
+                    }
+                }
+                if (closed || segment == null) {
+                    return;
+                }
+                records = new ArrayList<>(segment.records);
+            } finally {
+                lock.unlock();
+            }
+            for (int start = 0; start < records.size(); start += 256) {
+                lock.lock();
+                try {
+                    if (segment.deleted) {
+                        break;
+                    }
+                    int end = Math.min(start + 256, records.size());
+                    for (Record<K> record : records.subList(start, end)) {
+                        if (record.live) {
+                            move(record);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            lock.lock();
+            try {
+                if (!segment.deleted && sealedSegments.remove(segment)) {
+                    deleteSegment(segment);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Copies a live record to the active segment and points the index at the copy. Must be called while
+     * holding the lock.
+     */
+    private void move(Record<K> record) {
+        ByteBuffer source = slice(record);
+        record.live = false;
+        record.segment.liveBytes -= record.length;
+        Record<K> copy = append(record.key, record.length, record.expirationTime);
+        if (record.segment.deleted) {
+            // Appending dropped the oldest segment, which was the one being compacted.
+            index.remove(record.key, record);
+            discard(copy);
+            return;
+        }
+        slice(copy).put(source);
+        index.put(record.key, copy);
+    }
+
+    /**
+     * Deletes the oldest segment to stay within the maximum size, forgetting its entries. Must be called while
+     * holding the lock.
+     */
+    private void dropSegment(Segment<K> segment) {
+        for (Record<K> record : segment.records) {
+            if (record.live) {
+                index.remove(record.key);
+                record.live = false;
+            }
+        }
+        deleteSegment(segment);
+    }
+
+    private Segment<K> openSegment() {
+        Path file = directory.resolve("segment-" + nextSegmentId++ + ".log");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            return new Segment<>(file, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the segment's file. The mapping itself is released when the buffer is garbage collected.
+     */
+    private void deleteSegment(Segment<K> segment) {
+        segment.deleted = true;
+        segment.records.clear();
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer slice(Record<K> record) {
+        ByteBuffer buffer = record.segment.buffer.duplicate();
+        buffer.limit(record.offset + record.length).position(record.offset);
+        return buffer.slice();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Disk tier is closed");
+        }
+    }
+
+    /**
+     * A value read back from the tier, with the ticker time at which it expires.
+     *
+     * @param <V> the type of the value
+     */
+    public static final class Entry<V> {
+        private final V value;
+        private final long expirationTime;
+
+        Entry(V value, long expirationTime) {
+            this.value = value;
+            this.expirationTime = expirationTime;
+        }
+
+        /**
+         * Returns the value of the entry.
+         *
+         * @return the value of the entry
+         */
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the ticker time at which the entry expires, or {@link CacheNode#NO_EXPIRATION}.
+         *
+         * @return the expiration time of the entry
+         */
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+    }
+
+    /**
+     * A memory-mapped segment file with the records appended to it.
+     */
+    private static final class Segment<K> {
+        final Path file;
+        final MappedByteBuffer buffer;
+        final List<Record<K>> records;
+        int writeOffset;
+        long liveBytes;
+        boolean deleted;
+
+        Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+            this.records = new ArrayList<>();
+        }
+
+        boolean isSparse(int segmentSize) {
+            return liveBytes < segmentSize / 2;
+        }
+    }
+
+    /**
+     * The location of a value within a segment.
+     */
+    private static final class Record<K> {
+        final K key;
+        final Segment<K> segment;
+        final int offset;
+        final int length;
+        final long expirationTime;
+        boolean live;
+
+        Record(K key, Segment<K> segment, int offset, int length, long expirationTime) {
+            this.key = key;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.expirationTime = expirationTime;
+            this.live = true;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package core;
+
+import Interface.EvictionPolicy;
+import domain.CacheNode;
+import utils.Utility;
+
+/**
+ * Evicts the entry that was inserted first, whatever its accesses. Reads cost the policy nothing, which makes it
+ * a baseline for the hit ratio of the other policies.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class FIFOEvictionPolicy<K, V> implements EvictionPolicy<K, V> {
+    private final Utility<K, V> list = new Utility<>();
+
+    @Override
+    public void onInsert(CacheNode<K, V> node) {
+        list.addNode(node);
+    }
+
+    @Override
+    public void onAccess(CacheNode<K, V> node) {
+    }
+
+    @Override
+    public void onRemove(CacheNode<K, V> node) {
+        list.removeFromList(node);
+    }
+
+    @Override
+    public CacheNode<K, V> selectVictim() {
+        return list.getTail();
+    }
+
+    @Override
+    public void clear() {
+        list.clear();
+    }
+}
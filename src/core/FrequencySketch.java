@@ -0,0 +1,148 @@
+package core;
+
+/**
+ * A probabilistic estimate of how often every key was accessed recently, used as the TinyLFU admission filter.
+ *
+ * This is a Count-Min Sketch of depth four with 4-bit counters: each {@code long} of the table packs sixteen
+ * counters, and a key is counted in four counters chosen by independent hashes. Its estimate is the minimum
+ * of those counters, which can only overestimate. Once the number of increments reaches the sample size
+ * (ten times the cache's capacity), every counter is halved, so the sketch keeps a fading history instead
+ * of saturating.
+ *
+ * The sketch is not thread-safe; caches use it only while holding their lock.
+ *
+ * @param <E> the type of the counted keys
+ */
+public class FrequencySketch<E> {
+
+    static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    static final long RESET_MASK = 0x7777777777777777L;
+    static final long ONE_MASK = 0x1111111111111111L;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    /**
+     * Constructs a sketch sized for a cache of the given capacity.
+     *
+     * @param capacity the maximum number of entries of the cache the sketch is admitting into
+     */
+    public FrequencySketch(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Grows the sketch so that it fits a cache of the given capacity, for caches whose entry count is not
+     * known in advance, such as weight-bounded caches. Growing forgets the counts gathered so far.
+     *
+     * @param capacity the number of entries the cache holds
+     */
+    public void ensureCapacity(int capacity) {
+        int maximum = Math.max(1, Math.min(capacity, 1 << 30));
+        if (table != null && table.length >= maximum) {
+            return;
+        }
+        int length = Integer.highestOneBit(maximum);
+        if (length < maximum) {
+            length <<= 1;
+        }
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = (int) Math.min(10L * maximum, Integer.MAX_VALUE);
+        size = 0;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the key, up to a maximum of 15.
+     *
+     * @param e the key to estimate
+     * @return the estimated access frequency of the key
+     */
+    public int frequency(E e) {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments the estimated number of occurrences of the key, halving every counter once the
+     * sample size is reached.
+     *
+     * @param e the key that was accessed
+     */
+    public void increment(E e) {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns whether the candidate should replace the victim, which is the case only if the candidate
+     * was accessed more often.
+     *
+     * @param candidate the key being inserted
+     * @param victim    the key that would be evicted to make room for it
+     * @return true if the candidate should be admitted
+     */
+    public boolean admit(E candidate, E victim) {
+        return frequency(candidate) > frequency(victim);
+    }
+
+    /**
+     * Returns the memory used by the counters, in bytes.
+     *
+     * @return the size of the counter table in bytes
+     */
+    public long memoryBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private boolean incrementAt(int i, int j) {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask) {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves every counter, adjusting the sample count for the counters that lost their odd bit.
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int item, int i) {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += hash >>> 32;
+        return ((int) hash) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,435 @@
+package core;
+
+import Interface.Cache;
+import Interface.InvalidationTransport;
+import Interface.Serializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the local caches of several processes holding the same records coherent, by broadcasting the keys that
+ * one process changes so that the others drop their copies, instead of serving them until they expire.
+ *
+ * A process that changes a record calls {@link #invalidate(Object)}; the bus does not touch the local caches, so
+ * the caller updates or removes its own entry as usual. The keys are collected for a short delay, or until a
+ * batch is full, and a key invalidated several times in the meantime is sent once. A batch is encoded into as few
+ * messages of the transport as fit. The other processes apply every message they receive as one
+ * {@link Cache#removeAll(Collection)} on each cache {@link #register(Cache) registered} with their bus.
+ *
+ * Every message carries the id of its sender and a sequence number. A receiver that sees a sender's sequence skip
+ * a number, because a message was lost or overtaken by a later one, cannot tell which keys it missed and clears
+ * its registered caches instead, so an unreliable transport such as UDP costs misses rather than stale reads. A
+ * message numbered at or below the last one seen from its sender, a duplicate or one that arrives after a later
+ * message, is ignored: its keys were removed already, or the clear caused by the skip covered them. A message
+ * that fails to send still uses up its number, so the receivers treat it as lost when the next one arrives.
+ * Losses are only noticed from the second message of a sender on, and a lost last message goes unnoticed until
+ * the sender invalidates again, so the caches should keep a time-to-live as a backstop. Messages a process
+ * receives from itself, as with multicast, are ignored.
+ *
+ * @param <K> the type of the keys
+ */
+public final class InvalidationBus<K> implements AutoCloseable {
+    static final int MAGIC = 0x4C525549;
+    static final int HEADER_SIZE = 24;
+
+    private final InvalidationTransport transport;
+    private final Serializer<K> keySerializer;
+    private final int maxBatchKeys;
+    private final long flushDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final long senderId;
+    private final List<Cache<K, ?>> caches;
+    private final ReentrantLock lock;
+    private final Set<K> pending;
+    private final ByteBuffer message;
+    private final Map<Long, Long> lastSequences;
+    private final LongAdder sentMessages;
+    private final LongAdder sentKeys;
+    private final LongAdder sendFailures;
+    private final LongAdder receivedMessages;
+    private final LongAdder receivedKeys;
+    private final LongAdder lostMessages;
+    private long sequence;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    private InvalidationBus(Builder<K> builder) {
+        this.transport = builder.transport;
+        this.keySerializer = builder.keySerializer;
+        this.maxBatchKeys = builder.maxBatchKeys;
+        this.flushDelayNanos = builder.flushDelay.toNanos();
+        this.ownsScheduler = builder.scheduler == null;
+        this.scheduler = ownsScheduler ? Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "cache-invalidation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        }) : builder.scheduler;
+        this.senderId = ThreadLocalRandom.current().nextLong();
+        this.caches = new CopyOnWriteArrayList<>();
+        this.lock = new ReentrantLock();
+        this.pending = new LinkedHashSet<>();
+        this.message = ByteBuffer.allocate(transport.maxMessageSize());
+        this.lastSequences = new ConcurrentHashMap<>();
+        this.sentMessages = new LongAdder();
+        this.sentKeys = new LongAdder();
+        this.sendFailures = new LongAdder();
+        this.receivedMessages = new LongAdder();
+        this.receivedKeys = new LongAdder();
+        this.lostMessages = new LongAdder();
+    }
+
+    /**
+     * Returns a builder of a bus sending its messages over the transport.
+     *
+     * @param transport     the transport carrying the messages
+     * @param keySerializer the serializer of the keys in the messages
+     * @param <K>           the type of the keys
+     * @return a new builder
+     */
+    public static <K> Builder<K> newBuilder(InvalidationTransport transport, Serializer<K> keySerializer) {
+        return new Builder<>(transport, keySerializer);
+    }
+
+    /**
+     * Adds a cache from which the keys invalidated by the other processes are removed.
+     *
+     * @param cache the cache to keep coherent
+     */
+    public void register(Cache<K, ?> cache) {
+        if (cache == null) {
+            throw new NullPointerException("cache");
+        }
+        caches.add(cache);
+    }
+
+    /**
+     * Starts receiving the invalidations of the other processes.
+     *
+     * @throws IOException if the transport could not start listening
+     */
+    public void start() throws IOException {
+        transport.start(this::receive);
+    }
+
+    /**
+     * Queues the key for broadcasting to the other processes.
+     *
+     * @param key the key whose cached copies are stale
+     */
+    public void invalidate(K key) {
+        int size = keySerializer.serializedSize(key);
+        if (HEADER_SIZE + Integer.BYTES + size > message.capacity()) {
+            throw new IllegalArgumentException("Key does not fit in a message: " + size + " bytes");
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Bus is closed");
+            }
+            pending.add(key);
+            if (pending.size() >= maxBatchKeys) {
+                flushLocked();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                try {
+                    scheduler.schedule(this::flush, flushDelayNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    flushLocked();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the keys for broadcasting to the other processes, as {@link #invalidate(Object)} would one at a time.
+     *
+     * @param keys the keys whose cached copies are stale
+     */
+    public void invalidateAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Sends the queued keys now instead of after the flush delay.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encodes the queued keys into messages and sends them. Must be called while holding the lock, which also
+     * keeps the sequence numbers in the order the messages are sent.
+     */
+    private void flushLocked() {
+        flushScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        int keys = 0;
+        startMessage();
+        for (K key : pending) {
+            int size = keySerializer.serializedSize(key);
+            if (message.remaining() < Integer.BYTES + size) {
+                sendMessage(keys);
+                keys = 0;
+                startMessage();
+            }
+            message.putInt(size);
+            int limit = message.limit();
+            message.limit(message.position() + size);
+            keySerializer.serialize(key, message);
+            message.limit(limit);
+            keys++;
+        }
+        sendMessage(keys);
+        pending.clear();
+    }
+
+    private void startMessage() {
+        message.clear();
+        message.putInt(MAGIC).putLong(senderId).putLong(sequence++).putInt(0);
+    }
+
+    private void sendMessage(int keys) {
+        message.putInt(HEADER_SIZE - Integer.BYTES, keys);
+        message.flip();
+        try {
+            transport.send(message);
+            sentMessages.increment();
+            sentKeys.add(keys);
+        } catch (IOException e) {
+            sendFailures.increment();
+        }
+    }
+
+    /**
+     * Applies a message of another process to the registered caches. Runs on the transport's thread.
+     */
+    private void receive(ByteBuffer buffer) {
+        List<K> keys;
+        long sender;
+        long number;
+        try {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                return;
+            }
+            sender = buffer.getLong();
+            number = buffer.getLong();
+            if (sender == senderId) {
+                return;
+            }
+            int count = buffer.getInt();
+            keys = new ArrayList<>(Math.min(count, buffer.remaining() / Integer.BYTES));
+            for (int i = 0; i < count; i++) {
+                int size = buffer.getInt();
+                ByteBuffer field = buffer.slice();
+                field.limit(size);
+                keys.add(keySerializer.deserialize(field));
+                buffer.position(buffer.position() + size);
+            }
+        } catch (RuntimeException e) {
+            return;
+        }
+        receivedMessages.increment();
+        Long previous = lastSequences.get(sender);
+        if (previous != null && number <= previous) {
+            return;
+        }
+        lastSequences.put(sender, number);
+        if (previous != null && number != previous + 1) {
+            lostMessages.increment();
+            for (Cache<K, ?> cache : caches) {
+                cache.clear();
+            }
+            return;
+        }
+        receivedKeys.add(keys.size());
+        for (Cache<K, ?> cache : caches) {
+            cache.removeAll(keys);
+        }
+    }
+
+    /**
+     * Returns the number of messages sent.
+     *
+     * @return the number of messages sent
+     */
+    public long getSentMessages() {
+        return sentMessages.sum();
+    }
+
+    /**
+     * Returns the number of keys sent, which is lower than the number of invalidations when the same keys are
+     * invalidated again before their batch is sent.
+     *
+     * @return the number of keys sent
+     */
+    public long getSentKeys() {
+        return sentKeys.sum();
+    }
+
+    /**
+     * Returns the number of messages the transport failed to send.
+     *
+     * @return the number of failed sends
+     */
+    public long getSendFailures() {
+        return sendFailures.sum();
+    }
+
+    /**
+     * Returns the number of messages received from the other processes.
+     *
+     * @return the number of messages received
+     */
+    public long getReceivedMessages() {
+        return receivedMessages.sum();
+    }
+
+    /**
+     * Returns the number of keys removed on behalf of the other processes.
+     *
+     * @return the number of keys received
+     */
+    public long getReceivedKeys() {
+        return receivedKeys.sum();
+    }
+
+    /**
+     * Returns the number of times a gap in a sender's sequence made this bus clear its caches.
+     *
+     * @return the number of detected losses
+     */
+    public long getLostMessages() {
+        return lostMessages.sum();
+    }
+
+    /**
+     * Sends the queued keys, then stops the flushes and closes the transport.
+     *
+     * @throws IOException if the transport could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            flushLocked();
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+        transport.close();
+    }
+
+    /**
+     * A builder of {@link InvalidationBus} instances.
+     *
+     * @param <K> the type of the keys
+     */
+    public static final class Builder<K> {
+        private final InvalidationTransport transport;
+        private final Serializer<K> keySerializer;
+        private int maxBatchKeys = 1024;
+        private Duration flushDelay = Duration.ofMillis(10);
+        private ScheduledExecutorService scheduler;
+
+        private Builder(InvalidationTransport transport, Serializer<K> keySerializer) {
+            if (transport == null) {
+                throw new NullPointerException("transport");
+            }
+            if (keySerializer == null) {
+                throw new NullPointerException("keySerializer");
+            }
+            if (transport.maxMessageSize() <= HEADER_SIZE + Integer.BYTES) {
+                throw new IllegalArgumentException("Transport messages are too small.");
+            }
+            this.transport = transport;
+            this.keySerializer = keySerializer;
+        }
+
+        /**
+         * Sets the number of queued keys at which a batch is sent without waiting for the flush delay. The
+         * default is 1024.
+         *
+         * @param maxBatchKeys the largest number of keys in a batch
+         * @return this builder
+         */
+        public Builder<K> maxBatchKeys(int maxBatchKeys) {
+            if (maxBatchKeys <= 0) {
+                throw new IllegalArgumentException("Batch size should be greater than 0.");
+            }
+            this.maxBatchKeys = maxBatchKeys;
+            return this;
+        }
+
+        /**
+         * Sets how long the first key of a batch waits for others before the batch is sent, which bounds how
+         * long the other processes may serve a stale copy on top of the network delay. The default is 10
+         * milliseconds.
+         *
+         * @param flushDelay the longest delay before a queued key is sent
+         * @return this builder
+         */
+        public Builder<K> flushDelay(Duration flushDelay) {
+            if (flushDelay.isNegative()) {
+                throw new IllegalArgumentException("Flush delay cannot be negative.");
+            }
+            this.flushDelay = flushDelay;
+            return this;
+        }
+
+        /**
+         * Runs the delayed flushes on the given scheduler instead of a thread owned by the bus.
+         *
+         * @param scheduler the scheduler running the flushes
+         * @return this builder
+         */
+        public Builder<K> scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Builds the bus. It sends as soon as it is built, and receives once {@link InvalidationBus#start()} is
+         * called.
+         *
+         * @return a new bus
+         */
+        public InvalidationBus<K> build() {
+            return new InvalidationBus<>(this);
+        }
+    }
+}
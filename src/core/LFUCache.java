@@ -1,121 +1,687 @@
 package core;
 
 import Interface.Cache;
-import domain.AccessStatistics;
+import Interface.Serializer;
+import domain.CacheNode;
+import domain.FrequencyNode;
+import domain.LFUCacheNode;
+import utils.Maps;
+import utils.MemoryLayout;
+import utils.Ticker;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * A cache that evicts the least frequently used entry, breaking ties by evicting the least recently used one.
+ *
+ * Entries are grouped into a doubly linked list of {@link FrequencyNode}s ordered by ascending frequency, and
+ * every entry knows its frequency node, so lookups, frequency increments and evictions all run in constant time.
+ * To stop entries that were popular long ago from staying pinned forever, every frequency is halved once the
+ * cache has seen a configurable number of accesses since the last aging pass. Entries put with a time-to-live
+ * are scheduled on a {@link TimerWheel} that every locked operation advances, so they are reclaimed once they
+ * expire even if they are never read again.
+ *
+ * With TinyLFU admission enabled (see {@link Builder#tinyLfuAdmission(boolean)}), a new key is only inserted
+ * into a full cache if a {@link FrequencySketch}, which also remembers keys that are not cached, estimates it
+ * was accessed more often than the entry it would evict. Otherwise the put is dropped.
+ *
+ * {@link #snapshot(Path, Serializer, Serializer)} writes the entries with their frequencies and remaining
+ * time-to-live to a file, and {@link #load(Path, Serializer, Serializer)} rebuilds the frequency list from it
+ * in bulk after a restart.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
 public class LFUCache<K, V> implements Cache<K, V> {
     private final int capacity;
-    private final Map<K, V> cache;
-    private final Map<K, AccessStatistics> accessStatistics;
-    private final Map<Integer, LinkedHashSet<K>> frequencyLists;
-    private int minFrequency;
+    private final int agingPeriod;
+    private final Map<K, LFUCacheNode<K, V>> cache;
+    private final ReentrantLock lock;
+    private final CacheMonitor<K> monitor;
+    private final FrequencySketch<K> sketch;
+    private final TimerWheel<K, V> timerWheel;
+    private final Ticker ticker;
+    private FrequencyNode<K, V> lowestFrequency;
+    private int accessesSinceAging;
 
+    /**
+     * Constructs a new LFUCache with the given capacity, aging frequencies every ten times the capacity accesses.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     */
     public LFUCache(int capacity) {
+        this(newBuilder().maximumSize(capacity));
+    }
+
+    /**
+     * Constructs a new LFUCache with the given capacity and aging period.
+     *
+     * @param capacity    the maximum number of entries the cache can hold
+     * @param agingPeriod the number of accesses after which every frequency is halved
+     */
+    public LFUCache(int capacity, int agingPeriod) {
+        this(newBuilder().maximumSize(capacity).agingPeriod(agingPeriod));
+    }
+
+    private LFUCache(Builder<? super K, ? super V> builder) {
+        int capacity = builder.maximumSize;
+        int agingPeriod = builder.agingPeriod > 0
+                ? builder.agingPeriod : (int) Math.min(Integer.MAX_VALUE, 10L * capacity);
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        if (agingPeriod <= 0) {
+            throw new IllegalArgumentException("Aging period should be greater than 0.");
+        }
         this.capacity = capacity;
+        this.agingPeriod = agingPeriod;
         cache = new HashMap<>();
-        accessStatistics = new HashMap<>();
-        frequencyLists = new HashMap<>();
-        minFrequency = 0;
-        frequencyLists.put(1, new LinkedHashSet<>());
+        lock = new ReentrantLock();
+        monitor = new CacheMonitor<>(builder.recordStats);
+        sketch = builder.tinyLfuAdmission ? new FrequencySketch<>(Math.max(capacity, 1)) : null;
+        ticker = builder.ticker;
+        timerWheel = new TimerWheel<>(ticker.read());
+    }
+
+    /**
+     * Returns a new builder for configuring an LFUCache.
+     *
+     * @return a new builder
+     */
+    public static Builder<Object, Object> newBuilder() {
+        return new Builder<>();
     }
 
     @Override
     public void put(K key, V value) {
         if (capacity == 0) return;
-
-        if (cache.containsKey(key)) {
-            cache.put(key, value);
-            accessStatistics.get(key).updateAccess();
-            return;
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            expireEntries(ticker.read());
+            putLocked(key, value);
+        } finally {
+            lock.unlock();
         }
+        monitor.recordPut(start);
+    }
 
-        if (cache.size() == capacity) {
-            evict();
+    private void putLocked(K key, V value) {
+        monitor.onPut(key);
+        LFUCacheNode<K, V> node = cache.get(key);
+        if (node != null) {
+            node.setValue(value);
+            increment(node);
+            return;
         }
-
-        cache.put(key, value);
-        AccessStatistics stats = new AccessStatistics();
-        accessStatistics.put(key, stats);
-        frequencyLists.computeIfAbsent(1, k -> new LinkedHashSet<>()).add(key);
-        minFrequency = 1;
+        insert(new LFUCacheNode<>(key, value));
     }
 
     @Override
     public void put(K key, V value, Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL value cannot be negative");
+        }
+        if (capacity == 0) return;
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            long now = ticker.read();
+            expireEntries(now);
+            putLocked(key, value, CacheNode.expirationTime(now, ttl));
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
 
+    private void putLocked(K key, V value, long expirationTime) {
+        monitor.onPut(key);
+        LFUCacheNode<K, V> node = cache.get(key);
+        if (node != null) {
+            node.setValue(value);
+            node.setExpirationTime(expirationTime);
+            timerWheel.reschedule(node);
+            increment(node);
+            return;
+        }
+        node = new LFUCacheNode<>(key, value, expirationTime);
+        if (insert(node)) {
+            timerWheel.schedule(node);
+        }
     }
 
     @Override
     public V get(K key) {
-        if (!cache.containsKey(key)) {
-            return null;
+        long start = monitor.startTimer();
+        V value;
+        lock.lock();
+        try {
+            long now = ticker.read();
+            expireEntries(now);
+            value = getLocked(key, now);
+        } finally {
+            lock.unlock();
         }
+        monitor.recordGet(start);
+        return value;
+    }
 
-        AccessStatistics stats = accessStatistics.get(key);
-        stats.incrementAccessCount();
-        int frequency = stats.getAccessCount();
+    private V getLocked(K key, long now) {
+        LFUCacheNode<K, V> node = cache.get(key);
+        if (node == null) {
+            monitor.onMiss(key);
+            return null;
+        }
+        if (node.isExpired(now)) {
+            unlink(node);
+            cache.remove(key);
+            monitor.onEviction(key, CacheMonitor.RemovalCause.EXPIRED);
+            monitor.onMiss(key);
+            return null;
+        }
+        increment(node);
+        monitor.onHit(key);
+        return node.getValue();
+    }
 
-        LinkedHashSet<K> oldList = frequencyLists.get(frequency);
-        LinkedHashSet<K> newList = frequencyLists.computeIfAbsent(frequency + 1, k -> new LinkedHashSet<>());
+    @Override
+    public V peek(K key) {
+        lock.lock();
+        try {
+            LFUCacheNode<K, V> node = cache.get(key);
+            return node == null || node.isExpired(ticker.read()) ? null : node.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
 
+    @Override
+    public V remove(K key) {
+        lock.lock();
+        try {
+            expireEntries(ticker.read());
+            return removeLocked(key);
+        } finally {
+            lock.unlock();
+        }
+    }
 
+    private V removeLocked(K key) {
+        LFUCacheNode<K, V> node = cache.remove(key);
+        if (node == null) {
+            return null;
+        }
+        unlink(node);
+        return node.getValue();
+    }
 
-        if (oldList.isEmpty() && frequency == minFrequency) {
-            minFrequency = frequency + 1;
+    /**
+     * Returns the values of the keys found in the cache, taking the lock and expiring entries once for the
+     * whole batch.
+     *
+     * @param keys the keys of the entries to look up
+     * @return a map of the keys found to their values
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = Maps.newHashMapWithExpectedSize(keys.size());
+        lock.lock();
+        try {
+            long now = ticker.read();
+            expireEntries(now);
+            for (K key : keys) {
+                V value = getLocked(key, now);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        } finally {
+            lock.unlock();
         }
+        return result;
+    }
 
-        return cache.get(key);
+    /**
+     * Adds or updates the entries of the map, taking the lock and expiring entries once for the whole batch.
+     *
+     * @param entries the entries to add or update
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        if (capacity == 0) return;
+        lock.lock();
+        try {
+            expireEntries(ticker.read());
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                putLocked(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
+    /**
+     * Removes the entries for the keys, taking the lock once for the whole batch.
+     *
+     * @param keys the keys of the entries to remove
+     */
     @Override
-    public V remove(K key) {
-        return null;
+    public void removeAll(Collection<? extends K> keys) {
+        lock.lock();
+        try {
+            expireEntries(ticker.read());
+            for (K key : keys) {
+                removeLocked(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts a new node, evicting the least frequently used entry if the cache is full.
+     *
+     * @return false if the admission filter rejected the node
+     */
+    private boolean insert(LFUCacheNode<K, V> node) {
+        if (sketch != null) {
+            sketch.increment(node.getKey());
+        }
+        if (cache.size() >= capacity) {
+            if (sketch != null && !sketch.admit(node.getKey(), lowestFrequency.getEntries().getTail().getKey())) {
+                return false;
+            }
+            evict();
+        }
+        FrequencyNode<K, V> first = lowestFrequency;
+        if (first == null || first.getFrequency() != 1) {
+            first = new FrequencyNode<>(1);
+            first.setNext(lowestFrequency);
+            if (lowestFrequency != null) {
+                lowestFrequency.setPrev(first);
+            }
+            lowestFrequency = first;
+        }
+        first.getEntries().addNode(node);
+        node.setFrequencyNode(first);
+        cache.put(node.getKey(), node);
+        recordAccess();
+        return true;
+    }
+
+    /**
+     * Moves the node to the frequency node following its own, creating that node if needed.
+     */
+    private void increment(LFUCacheNode<K, V> node) {
+        if (sketch != null) {
+            sketch.increment(node.getKey());
+        }
+        FrequencyNode<K, V> current = node.getFrequencyNode();
+        int frequency = current.getFrequency() + 1;
+        FrequencyNode<K, V> target = current.getNext();
+        if (target == null || target.getFrequency() != frequency) {
+            target = new FrequencyNode<>(frequency);
+            target.setPrev(current);
+            target.setNext(current.getNext());
+            if (current.getNext() != null) {
+                current.getNext().setPrev(target);
+            }
+            current.setNext(target);
+        }
+        current.getEntries().removeFromList(node);
+        if (current.getEntries().isEmpty()) {
+            removeFrequencyNode(current);
+        }
+        target.getEntries().addNode(node);
+        node.setFrequencyNode(target);
+        recordAccess();
     }
 
     private void evict() {
-        LinkedHashSet<K> minFreqList = frequencyLists.get(minFrequency);
-        K evictKey = minFreqList.iterator().next();
-        minFreqList.remove(evictKey);
+        FrequencyNode<K, V> minFreqList = lowestFrequency;
+        CacheNode<K, V> evicted = minFreqList.getEntries().removeTail();
+        timerWheel.deschedule(evicted);
+        if (minFreqList.getEntries().isEmpty()) {
+            removeFrequencyNode(minFreqList);
+        }
+        cache.remove(evicted.getKey());
+        monitor.onEviction(evicted.getKey(), CacheMonitor.RemovalCause.SIZE);
+    }
+
+    private void unlink(LFUCacheNode<K, V> node) {
+        timerWheel.deschedule(node);
+        FrequencyNode<K, V> frequencyNode = node.getFrequencyNode();
+        frequencyNode.getEntries().removeFromList(node);
+        if (frequencyNode.getEntries().isEmpty()) {
+            removeFrequencyNode(frequencyNode);
+        }
+    }
+
+    /**
+     * Removes the entries whose time-to-live elapsed since the cache was last locked.
+     */
+    private void expireEntries(long now) {
+        timerWheel.advance(now, node -> {
+            cache.remove(node.getKey());
+            unlink((LFUCacheNode<K, V>) node);
+            monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.EXPIRED);
+        });
+    }
+
+    private void removeFrequencyNode(FrequencyNode<K, V> frequencyNode) {
+        if (frequencyNode.getPrev() != null) {
+            frequencyNode.getPrev().setNext(frequencyNode.getNext());
+        } else {
+            lowestFrequency = frequencyNode.getNext();
+        }
+        if (frequencyNode.getNext() != null) {
+            frequencyNode.getNext().setPrev(frequencyNode.getPrev());
+        }
+    }
 
-        if (minFreqList.isEmpty()) {
-            frequencyLists.remove(minFrequency);
-            minFrequency++;
+    private void recordAccess() {
+        if (++accessesSinceAging >= agingPeriod) {
+            accessesSinceAging = 0;
+            age();
         }
+    }
 
-        cache.remove(evictKey);
-        accessStatistics.remove(evictKey);
+    /**
+     * Halves every frequency, merging frequency nodes that end up equal. Entries coming from the higher
+     * frequency are kept as the more recently used ones of the merged node. This walks every entry, but
+     * it runs only once per aging period, so its cost is constant per access.
+     */
+    private void age() {
+        FrequencyNode<K, V> previous = null;
+        FrequencyNode<K, V> current = lowestFrequency;
+        while (current != null) {
+            FrequencyNode<K, V> next = current.getNext();
+            int frequency = Math.max(1, current.getFrequency() >>> 1);
+            if (previous != null && previous.getFrequency() == frequency) {
+                CacheNode<K, V> node = current.getEntries().getTail();
+                while (node != null) {
+                    CacheNode<K, V> newer = node.getPrev();
+                    current.getEntries().removeFromList(node);
+                    previous.getEntries().addNode(node);
+                    ((LFUCacheNode<K, V>) node).setFrequencyNode(previous);
+                    node = newer;
+                }
+                removeFrequencyNode(current);
+            } else {
+                current.setFrequency(frequency);
+                previous = current;
+            }
+            current = next;
+        }
     }
 
     @Override
     public void clear() {
-        cache.clear();
-        accessStatistics.clear();
-        frequencyLists.clear();
-        frequencyLists.put(1, new LinkedHashSet<>());
-        minFrequency = 0;
+        lock.lock();
+        try {
+            cache.clear();
+            timerWheel.clear();
+            lowestFrequency = null;
+            accessesSinceAging = 0;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public int size() {
-        return cache.size();
+        lock.lock();
+        try {
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the entries to the file, from the most to the least frequently used and, within a frequency,
+     * from the most to the least recently used, with their frequency and remaining time-to-live. The lock is
+     * only held while the node references are copied; the keys and values are serialized afterwards.
+     *
+     * @param file            the snapshot file to write, replaced atomically
+     * @param keySerializer   the serializer for the keys
+     * @param valueSerializer the serializer for the values
+     * @throws IOException if the file cannot be written
+     */
+    public void snapshot(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        List<CacheNode<K, V>> nodes;
+        int[] tags;
+        long[] expirationTimes;
+        long now;
+        lock.lock();
+        try {
+            now = ticker.read();
+            expireEntries(now);
+            nodes = new ArrayList<>(cache.size());
+            tags = new int[cache.size()];
+            expirationTimes = new long[cache.size()];
+            FrequencyNode<K, V> highest = lowestFrequency;
+            while (highest != null && highest.getNext() != null) {
+                highest = highest.getNext();
+            }
+            for (FrequencyNode<K, V> frequencyNode = highest; frequencyNode != null;
+                 frequencyNode = frequencyNode.getPrev()) {
+                for (CacheNode<K, V> node = frequencyNode.getEntries().getHead(); node != null; node = node.getNext()) {
+                    tags[nodes.size()] = frequencyNode.getFrequency();
+                    expirationTimes[nodes.size()] = node.getExpirationTime();
+                    nodes.add(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        CacheSnapshot.write(file, nodes, tags, expirationTimes, now, keySerializer, valueSerializer);
+    }
+
+    /**
+     * Replaces the entries with the ones of a snapshot written by {@link #snapshot(Path, Serializer, Serializer)},
+     * keeping their frequencies and order. The file is read and the nodes are built before the lock is taken;
+     * the lock is then held only to link them in bulk. Entries that expired since the snapshot, and the least
+     * frequently used ones beyond the capacity, are skipped.
+     *
+     * @param file            the snapshot file to read
+     * @param keySerializer   the serializer for the keys
+     * @param valueSerializer the serializer for the values
+     * @return the number of entries loaded
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public int load(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        List<LFUCacheNode<K, V>> nodes = new ArrayList<>();
+        List<Integer> frequencies = new ArrayList<>();
+        CacheSnapshot.read(file, ticker.read(), keySerializer, valueSerializer, (key, value, expirationTime, tag) -> {
+            if (nodes.size() < capacity) {
+                nodes.add(new LFUCacheNode<>(key, value, expirationTime));
+                frequencies.add(Math.max(1, tag));
+            }
+        });
+        lock.lock();
+        try {
+            cache.clear();
+            timerWheel.clear();
+            lowestFrequency = null;
+            accessesSinceAging = 0;
+            // The snapshot lists the frequencies in descending order, so every new run is prepended.
+            int start = 0;
+            while (start < nodes.size()) {
+                int frequency = frequencies.get(start);
+                int end = start + 1;
+                while (end < nodes.size() && frequencies.get(end) == frequency) {
+                    end++;
+                }
+                List<LFUCacheNode<K, V>> run = nodes.subList(start, end);
+                FrequencyNode<K, V> frequencyNode;
+                if (lowestFrequency != null && frequency >= lowestFrequency.getFrequency()) {
+                    // Out of order, so not written by snapshot(): keep the list ascending by merging the run.
+                    frequencyNode = lowestFrequency;
+                } else {
+                    frequencyNode = new FrequencyNode<>(frequency);
+                    frequencyNode.setNext(lowestFrequency);
+                    if (lowestFrequency != null) {
+                        lowestFrequency.setPrev(frequencyNode);
+                    }
+                    lowestFrequency = frequencyNode;
+                }
+                frequencyNode.getEntries().appendAll(run);
+                for (LFUCacheNode<K, V> node : run) {
+                    node.setFrequencyNode(frequencyNode);
+                    cache.put(node.getKey(), node);
+                    timerWheel.schedule(node);
+                    if (sketch != null) {
+                        sketch.increment(node.getKey());
+                    }
+                }
+                start = end;
+            }
+            return nodes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the access frequency of the given key, or 0 if the key is not in the cache.
+     *
+     * @param key the key whose frequency is to be returned
+     * @return the current, possibly aged, access frequency of the key
+     */
+    public int frequencyOf(K key) {
+        lock.lock();
+        try {
+            LFUCacheNode<K, V> node = cache.get(key);
+            return node == null ? 0 : node.getFrequencyNode().getFrequency();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the estimated memory the cache spends on each entry on this JVM, in bytes, not counting the key
+     * and the value: the node, the hash map's entry and its share of the hash table.
+     *
+     * @return the estimated per-entry overhead in bytes
+     */
+    public long estimatedEntryOverhead() {
+        long mapEntry = MemoryLayout.shallowSize(3, 0, 1, 0);
+        long tableSlot = MemoryLayout.referenceSize() * 4L / 3;
+        return LFUCacheNode.shallowSizeInBytes() + mapEntry + tableSlot;
     }
 
     @Override
     public CacheMonitor.CacheStats getStats() {
-        int hits = 0;
-        int misses = 0;
-        int evictions = 0;
-        for (AccessStatistics stats : accessStatistics.values()) {
-            if (stats.getHits() > 0) {
-                hits++;
-            } else {
-                misses++;
+        return monitor.statsBuilder()
+                .size(size())
+                .sketchMemoryBytes(sketch == null ? 0 : sketch.memoryBytes())
+                .build();
+    }
+
+    /**
+     * A builder of {@link LFUCache} instances.
+     *
+     * @param <K> the type of the key in the cache
+     * @param <V> the type of the value in the cache
+     */
+    public static final class Builder<K, V> {
+        private int maximumSize = -1;
+        private int agingPeriod;
+        private boolean tinyLfuAdmission;
+        private Ticker ticker = Ticker.systemTicker();
+        private boolean recordStats = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of entries the cache can hold.
+         *
+         * @param maximumSize the maximum number of entries the cache can hold
+         * @return this builder
+         */
+        public Builder<K, V> maximumSize(int maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("Maximum size cannot be negative");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of accesses after which every frequency is halved.
+         *
+         * @param agingPeriod the aging period, in accesses
+         * @return this builder
+         */
+        public Builder<K, V> agingPeriod(int agingPeriod) {
+            if (agingPeriod <= 0) {
+                throw new IllegalArgumentException("Aging period should be greater than 0.");
+            }
+            this.agingPeriod = agingPeriod;
+            return this;
+        }
+
+        /**
+         * Enables the TinyLFU admission filter, which drops new entries that are accessed less often than
+         * the entry they would evict.
+         *
+         * @param tinyLfuAdmission whether new entries must be admitted by the frequency sketch
+         * @return this builder
+         */
+        public Builder<K, V> tinyLfuAdmission(boolean tinyLfuAdmission) {
+            this.tinyLfuAdmission = tinyLfuAdmission;
+            return this;
+        }
+
+        /**
+         * Sets the time source used for expiration, such as {@link Ticker#cachedTicker()} or a fake ticker in tests.
+         *
+         * @param ticker the time source
+         * @return this builder
+         */
+        public Builder<K, V> ticker(Ticker ticker) {
+            if (ticker == null) {
+                throw new NullPointerException("ticker");
+            }
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * Sets whether the cache records its statistics. Without them, {@link LFUCache#getStats()} only reports
+         * the size, and the operations skip the counters and never read the clock for latencies.
+         *
+         * @param recordStats whether the statistics should be recorded
+         * @return this builder
+         */
+        public Builder<K, V> recordStats(boolean recordStats) {
+            this.recordStats = recordStats;
+            return this;
+        }
+
+        /**
+         * Builds a cache with the configured settings.
+         *
+         * @param <K1> the type of the key in the cache
+         * @param <V1> the type of the value in the cache
+         * @return a new cache
+         */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> LFUCache<K1, V1> build() {
+            if (maximumSize < 0) {
+                throw new IllegalStateException("Maximum size must be set");
             }
+            return new LFUCache<>((Builder<K1, V1>) this);
         }
-        return new CacheMonitor.CacheStats(hits, misses, evictions, size());
     }
 }
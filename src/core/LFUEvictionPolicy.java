@@ -1,28 +1,93 @@
 package core;
 
 import Interface.EvictionPolicy;
-import domain.AccessStatistics;
+import domain.CacheNode;
+import domain.FrequencyNode;
+import domain.LFUCacheNode;
 
-import java.time.Duration;
-import java.util.Map;
+/**
+ * Evicts the least frequently used entry, breaking ties by evicting the least recently used one.
+ *
+ * As in {@link LFUCache}, the nodes are grouped into a doubly linked list of {@link FrequencyNode}s ordered by
+ * ascending frequency, and every node knows its frequency node, so an access moves the node to the next
+ * frequency in constant time and the victim is the tail of the lowest frequency.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class LFUEvictionPolicy<K, V> implements EvictionPolicy<K, V> {
+    private FrequencyNode<K, V> lowestFrequency;
 
-public class LFUEvictionPolicy<K> implements EvictionPolicy<K> {
     @Override
-    public boolean shouldEvict(int cacheSize, Duration ttl, Map<K, AccessStatistics<K>> statistics) {
-        int minFrequency = Integer.MAX_VALUE;
-        K keyToRemove = null;
-        for (Map.Entry<K, AccessStatistics<K>> entry : statistics.entrySet()) {
-            AccessStatistics accessStatistics = entry.getValue();
-            if (accessStatistics.getAccessCount() < minFrequency) {
-                minFrequency = accessStatistics.getAccessCount();
-                keyToRemove = entry.getKey();
+    public CacheNode<K, V> newNode(K key, V value, long expirationTime) {
+        return new LFUCacheNode<>(key, value, expirationTime);
+    }
+
+    @Override
+    public void onInsert(CacheNode<K, V> node) {
+        FrequencyNode<K, V> first = lowestFrequency;
+        if (first == null || first.getFrequency() != 1) {
+            first = new FrequencyNode<>(1);
+            first.setNext(lowestFrequency);
+            if (lowestFrequency != null) {
+                lowestFrequency.setPrev(first);
             }
+            lowestFrequency = first;
         }
-        if (keyToRemove != null) {
-            statistics.remove(keyToRemove);
-            return true;
+        first.getEntries().addNode(node);
+        ((LFUCacheNode<K, V>) node).setFrequencyNode(first);
+    }
+
+    @Override
+    public void onAccess(CacheNode<K, V> node) {
+        LFUCacheNode<K, V> lfuNode = (LFUCacheNode<K, V>) node;
+        FrequencyNode<K, V> current = lfuNode.getFrequencyNode();
+        int frequency = current.getFrequency() + 1;
+        FrequencyNode<K, V> target = current.getNext();
+        if (target == null || target.getFrequency() != frequency) {
+            target = new FrequencyNode<>(frequency);
+            target.setPrev(current);
+            target.setNext(current.getNext());
+            if (current.getNext() != null) {
+                current.getNext().setPrev(target);
+            }
+            current.setNext(target);
+        }
+        current.getEntries().removeFromList(node);
+        if (current.getEntries().isEmpty()) {
+            unlink(current);
         }
-        return false;
+        target.getEntries().addNode(node);
+        lfuNode.setFrequencyNode(target);
     }
 
+    @Override
+    public void onRemove(CacheNode<K, V> node) {
+        FrequencyNode<K, V> frequencyNode = ((LFUCacheNode<K, V>) node).getFrequencyNode();
+        frequencyNode.getEntries().removeFromList(node);
+        if (frequencyNode.getEntries().isEmpty()) {
+            unlink(frequencyNode);
+        }
+    }
+
+    @Override
+    public CacheNode<K, V> selectVictim() {
+        return lowestFrequency.getEntries().getTail();
+    }
+
+    @Override
+    public void clear() {
+        lowestFrequency = null;
+    }
+
+    private void unlink(FrequencyNode<K, V> frequencyNode) {
+        if (frequencyNode.getPrev() != null) {
+            frequencyNode.getPrev().setNext(frequencyNode.getNext());
+        } else {
+            lowestFrequency = frequencyNode.getNext();
+        }
+        if (frequencyNode.getNext() != null) {
+            frequencyNode.getNext().setPrev(frequencyNode.getPrev());
+        }
+    }
 }
@@ -1,26 +1,130 @@
 package core;
 
 import domain.CacheNode;
+import domain.ReferenceCacheNode;
 import Interface.Cache;
+import Interface.Serializer;
+import Interface.Weigher;
+import utils.Maps;
+import utils.MemoryLayout;
+import utils.ReadBuffer;
+import utils.Ticker;
 import utils.Utility;
 
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 /**
  * A cache that uses a hash map for fast get and put operations, and a doubly linked list for LRU eviction.
  *
+ * Writes and the LRU list are guarded by a single lock. With buffered reads enabled (see
+ * {@link Builder#bufferedReads(boolean)}), {@link #get(Object)} does not take that lock: it looks the key up
+ * in the concurrent map and records the hit in a striped, lossy {@link ReadBuffer}. The buffered hits are
+ * replayed onto the LRU list in batches by whichever thread next obtains the lock, so the recency order lags
+ * slightly behind the reads, and a hit may be dropped under heavy contention.
+ *
+ * With TinyLFU admission enabled (see {@link Builder#tinyLfuAdmission(boolean)}), the list is split W-TinyLFU
+ * style into a small window LRU (1% of the capacity) in front of a segmented main region made of a probation
+ * and a protected (80% of the main region) LRU. New entries enter the window; an entry leaving the window only
+ * replaces the main region's eviction victim if a {@link FrequencySketch} estimates it was accessed more often,
+ * so a scan of one-hit keys cannot flush the frequently used entries.
+ *
+ * Entries put with a time-to-live are also scheduled on a {@link TimerWheel}. Every operation that holds the
+ * lock advances the wheel and removes the entries that expired in bulk, so expired entries stop taking capacity
+ * even if they are never read again. {@link #cleanUp()} runs the same maintenance on demand, and
+ * {@link Builder#cleanUpScheduler(ScheduledExecutorService, Duration)} runs it periodically for caches that
+ * may go idle.
+ *
+ * The cache is bounded either by an entry count ({@link Builder#maximumSize(int)}) or by the total weight of its
+ * entries ({@link Builder#maximumWeight(long)}), as measured by a {@link Weigher} when an entry is written and
+ * kept in its node. An entry count is simply a weight of 1 per entry: eviction continues until the total weight
+ * fits, and the W-TinyLFU window and protected queues are sized by weight too.
+ *
+ * With refresh after write enabled (see {@link Builder#refreshAfterWrite(Duration, Function)}), a read of an entry
+ * whose value is older than the refresh interval still returns that value at once, but also starts reloading it
+ * in the background, by default on a virtual thread when the runtime has them. The reloaded value replaces the
+ * old one under the lock, unless the entry was written or removed in the meantime. Refresh outcomes and latency
+ * are counted in {@link CacheMonitor.CacheStats}.
+ *
+ * With a second tier configured (see {@link Builder#secondTier(DiskTier)}), the entries evicted for size are
+ * written to a {@link DiskTier} instead of being lost, and a key missing from memory is looked up there and
+ * promoted back into the cache. A key is held by at most one of the tiers at a time. The disk writes happen after
+ * the lock is released, by the thread whose operation evicted the entries, so that other threads never wait on
+ * them; until its write completes, a spilled entry stays on the heap in a pending map that lookups check first.
+ *
+ * With weak keys or soft values (see {@link Builder#weakKeys(boolean)} and {@link Builder#softValues(boolean)}),
+ * the nodes hold their keys or values through references that the garbage collector may clear, so large values
+ * that can be rebuilt give way to memory pressure instead of prolonging full collections. The cleared references
+ * are drained from a {@link ReferenceQueue} during the maintenance, and their entries are removed and counted
+ * as {@link CacheMonitor.RemovalCause#COLLECTED}, so the map does not fill up with dead nodes.
+ *
+ * {@link #setMaximum(long)} changes the maximum at runtime, evicting the excess of a shrink in small batches; an
+ * {@link AdaptiveCapacityController} uses it to follow the heap occupancy.
+ *
+ * {@link #snapshot(Path, Serializer, Serializer)} writes the entries with their LRU order and remaining
+ * time-to-live to a file, and {@link #load(Path, Serializer, Serializer)} links them back in bulk, so a restarted
+ * process does not start with an empty cache.
+ *
  * @param <K> the type of the key in the cache
  * @param <V> the type of the value in the cache
  */
 public class LRUCache<K, V> implements Cache<K, V> {
 
-    private final Map<K, CacheNode<K,V>> cacheMap;
-    private final int maxSize;
-    private CacheNode<K,V> head;
-    private CacheNode<K,V> tail;
-    private Utility<K, V> utility;
+    private final ConcurrentHashMap<Object, CacheNode<K,V>> cacheMap;
+    private volatile long maximum;
+    private final Weigher<K, V> weigher;
+    private long weightedSize;
+    private final Utility<K, V> utility;
+    private final ReentrantLock evictionLock;
+    private final ReadBuffer<CacheNode<K, V>> readBuffer;
+    private final CacheMonitor<K> monitor;
+    private final TimerWheel<K, V> timerWheel;
+    private final Ticker ticker;
+    private final DiskTier<K, V> secondTier;
+    private final Map<K, CacheNode<K, V>> pendingSpills;
+    private final Queue<CacheNode<K, V>> spillQueue;
+    private final long refreshNanos;
+    private final Function<? super K, ? extends V> reloader;
+    private final Executor refreshExecutor;
+    private final Set<K> refreshing;
+    private final boolean weakKeys;
+    private final boolean softValues;
+    private final ReferenceQueue<Object> referenceQueue;
+
+    static final byte WINDOW = 0;
+    static final byte PROBATION = 1;
+    static final byte PROTECTED = 2;
+
+    /** The number of entries evicted per lock hold while {@link #setMaximum(long)} shrinks the cache. */
+    static final int RESIZE_BATCH = 1024;
+
+    private final FrequencySketch<K> sketch;
+    private final Utility<K, V> probation;
+    private final Utility<K, V> protectedList;
+    private long windowMaximum;
+    private long protectedMaximum;
+    private long windowSize;
+    private long protectedSize;
 
     /**
      * Constructs a new Core.LRUCache with the given capacity and time-to-live (TTL) duration.
@@ -28,11 +132,58 @@ public class LRUCache<K, V> implements Cache<K, V> {
      * @param capacity the maximum number of entries the cache can hold
      */
     public LRUCache(int capacity) {
-        this.maxSize = capacity;
-        this.cacheMap = new HashMap<>(maxSize);
-        utility = new Utility<>();
-        this.head = null;
-        this.tail = null;
+        this(newBuilder().maximumSize(capacity));
+    }
+
+    @SuppressWarnings("unchecked")
+    private LRUCache(Builder<? super K, ? super V> builder) {
+        boolean weighted = builder.maximumWeight >= 0;
+        this.maximum = weighted ? builder.maximumWeight : builder.maximumSize;
+        this.weigher = weighted ? (Weigher<K, V>) builder.weigher : Weigher.singleton();
+        int initialCapacity = (int) Math.min(weighted ? 16 : maximum, 1 << 30);
+        this.cacheMap = new ConcurrentHashMap<>(initialCapacity);
+        this.utility = new Utility<>();
+        this.evictionLock = new ReentrantLock();
+        this.readBuffer = builder.bufferedReads ? new ReadBuffer<>() : null;
+        this.monitor = new CacheMonitor<>(builder.recordStats);
+        this.ticker = builder.ticker;
+        this.timerWheel = new TimerWheel<>(ticker.read());
+        this.secondTier = (DiskTier<K, V>) builder.secondTier;
+        this.pendingSpills = secondTier == null ? null : new ConcurrentHashMap<>();
+        this.spillQueue = secondTier == null ? null : new ConcurrentLinkedQueue<>();
+        this.reloader = (Function<? super K, ? extends V>) builder.reloader;
+        this.refreshNanos = reloader == null ? 0 : builder.refreshAfterWrite.toNanos();
+        this.refreshExecutor = reloader == null ? null
+                : builder.refreshExecutor != null ? builder.refreshExecutor : RefreshExecutorHolder.EXECUTOR;
+        this.refreshing = reloader == null ? null : ConcurrentHashMap.newKeySet();
+        this.weakKeys = builder.weakKeys;
+        this.softValues = builder.softValues;
+        this.referenceQueue = weakKeys || softValues ? new ReferenceQueue<>() : null;
+        if (builder.tinyLfuAdmission) {
+            this.sketch = new FrequencySketch<>(initialCapacity);
+            this.probation = new Utility<>();
+            this.protectedList = new Utility<>();
+            this.windowMaximum = windowMaximumFor(maximum);
+            this.protectedMaximum = protectedMaximumFor(maximum);
+        } else {
+            this.sketch = null;
+            this.probation = null;
+            this.protectedList = null;
+            this.windowMaximum = 0;
+            this.protectedMaximum = 0;
+        }
+        if (builder.cleanUpScheduler != null) {
+            CleanUpTask.schedule(this, builder.cleanUpScheduler, builder.cleanUpInterval);
+        }
+    }
+
+    /**
+     * Returns a new builder for configuring an LRUCache.
+     *
+     * @return a new builder
+     */
+    public static Builder<Object, Object> newBuilder() {
+        return new Builder<>();
     }
 
 
@@ -44,19 +195,37 @@ public class LRUCache<K, V> implements Cache<K, V> {
      * @param value the value of the entry to add or update
      */
     @Override
-    public synchronized void put(K key, V value) {
-        if(cacheMap.containsKey(key)) {
-            CacheNode<K, V> node = cacheMap.get(key);
+    public void put(K key, V value) {
+        long start = monitor.startTimer();
+        evictionLock.lock();
+        try {
+            maintenance();
+            putLocked(key, value);
+        } finally {
+            unlockAndSpill();
+        }
+        monitor.recordPut(start);
+    }
+
+    private void putLocked(K key, V value) {
+        monitor.onPut(key);
+        long now = ticker.read();
+        int weight = weigh(key, value);
+        CacheNode<K, V> node = cacheMap.get(lookupKey(key));
+        if(node != null) {
             node.setValue(value);
-            utility.moveToHead(node, head, tail);
+            node.setWriteTime(now);
+            onUpdate(node, weight);
         }
         else{
-            CacheNode<K, V> node = new CacheNode<>(key, value);
-            cacheMap.put(key, node);
-            utility.addNode(node, head, tail);
-            if(cacheMap.size() > maxSize) {
-                removeTail();
+            if (secondTier != null) {
+                invalidateSecondTier(key);
             }
+            node = newNode(key, value, CacheNode.NO_EXPIRATION);
+            node.setWeight(weight);
+            node.setWriteTime(now);
+            cacheMap.put(mapKey(node), node);
+            onInsert(node);
         }
     }
 
@@ -69,24 +238,43 @@ public class LRUCache<K, V> implements Cache<K, V> {
      * @param ttl   the time-to-live duration of each entry in the cache
      */
     @Override
-    public synchronized void put(K key, V value, Duration ttl) {
+    public void put(K key, V value, Duration ttl) {
         if (ttl.isNegative()) {
             throw new IllegalArgumentException("TTL value cannot be negative");
         }
-        if(cacheMap.containsKey(key)) {
-            CacheNode<K, V> node = cacheMap.get(key);
+        long start = monitor.startTimer();
+        evictionLock.lock();
+        try {
+            maintenance();
+            putLocked(key, value, ttl);
+        } finally {
+            unlockAndSpill();
+        }
+        monitor.recordPut(start);
+    }
+
+    private void putLocked(K key, V value, Duration ttl) {
+        monitor.onPut(key);
+        long now = ticker.read();
+        int weight = weigh(key, value);
+        CacheNode<K, V> node = cacheMap.get(lookupKey(key));
+        if(node != null) {
             node.setValue(value);
-            node.setTtl(ttl);
-            utility.moveToHead(node, head, tail);
+            node.setExpirationTime(CacheNode.expirationTime(now, ttl));
+            node.setWriteTime(now);
+            timerWheel.reschedule(node);
+            onUpdate(node, weight);
         }
         else{
-            CacheNode<K, V> node = new CacheNode<>(key, value, ttl);
-            cacheMap.put(key, node);
-            utility.addNode(node, head, tail);
-
-            if(cacheMap.size() > maxSize) {
-                removeTail();
+            if (secondTier != null) {
+                invalidateSecondTier(key);
             }
+            node = newNode(key, value, CacheNode.expirationTime(now, ttl));
+            node.setWeight(weight);
+            node.setWriteTime(now);
+            cacheMap.put(mapKey(node), node);
+            timerWheel.schedule(node);
+            onInsert(node);
         }
     }
 
@@ -99,17 +287,326 @@ public class LRUCache<K, V> implements Cache<K, V> {
      * @return the value associated with the key, or null if the key is not found
      */
     @Override
-    public synchronized V get(K key) {
-        CacheNode<K, V> node = cacheMap.get(key);
+    public V get(K key) {
+        long start = monitor.startTimer();
+        V value;
+        if (readBuffer != null) {
+            value = getBuffered(key);
+        } else {
+            evictionLock.lock();
+            try {
+                maintenance();
+                value = getLocked(key);
+            } finally {
+                unlockAndSpill();
+            }
+        }
+        monitor.recordGet(start);
+        return value;
+    }
+
+    private V getLocked(K key) {
+        CacheNode<K, V> node = cacheMap.get(lookupKey(key));
         if(node == null){
+            monitor.onMiss(key);
+            return secondTier == null ? null : promote(key);
+        }
+        long now = ticker.read();
+        V value = node.getValue();
+        boolean collected = value == null && node.isCollected();
+        if(collected || node.isExpired(now)) {
+            cacheMap.remove(mapKey(node));
+            onRemove(node);
+            monitor.onEviction(key, collected ? CacheMonitor.RemovalCause.COLLECTED
+                    : CacheMonitor.RemovalCause.EXPIRED);
+            monitor.onMiss(key);
             return null;
         }
-        if(node.isExpired()) {
-            cacheMap.remove(key);
+        onAccess(node);
+        monitor.onHit(key);
+        refreshIfNeeded(node, key, now);
+        return value;
+    }
+
+    /**
+     * Returns the value of a live entry held in memory without locking; unlike {@link #get(Object)}, a key
+     * missing from memory is not looked up in the second tier.
+     */
+    @Override
+    public V peek(K key) {
+        CacheNode<K, V> node = cacheMap.get(lookupKey(key));
+        return node == null || node.isExpired(ticker.read()) ? null : node.getValue();
+    }
+
+    /**
+     * Looks the key up without locking and records the hit in the read buffer, draining the buffer if
+     * the calling thread's stripe is full and the lock is free.
+     */
+    private V getBuffered(K key) {
+        CacheNode<K, V> node = cacheMap.get(lookupKey(key));
+        if (node == null) {
+            if (secondTier != null) {
+                evictionLock.lock();
+                try {
+                    maintenance();
+                    return getLocked(key);
+                } finally {
+                    unlockAndSpill();
+                }
+            }
+            monitor.onMiss(key);
+            return null;
+        }
+        long now = ticker.read();
+        V value = node.getValue();
+        boolean collected = value == null && node.isCollected();
+        if (collected || node.isExpired(now)) {
+            evictionLock.lock();
+            try {
+                if (cacheMap.remove(mapKey(node), node)) {
+                    onRemove(node);
+                    monitor.onEviction(key, collected ? CacheMonitor.RemovalCause.COLLECTED
+                            : CacheMonitor.RemovalCause.EXPIRED);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+            monitor.onMiss(key);
+            return null;
+        }
+        monitor.onHit(key);
+        if (readBuffer.offer(node)) {
+            tryToDrainReadBuffer();
+        }
+        refreshIfNeeded(node, key, now);
+        return value;
+    }
+
+    /**
+     * Moves the key's entry from the second tier back into the cache, if the tier holds a live one.
+     * Must be called while holding the lock.
+     */
+    private V promote(K key) {
+        long now = ticker.read();
+        DiskTier.Entry<V> entry = takeFromSecondTier(key, now);
+        if (entry == null) {
             return null;
         }
-        utility.moveToHead(node, head, tail);
-        return node.getValue();
+        CacheNode<K, V> node = newNode(key, entry.getValue(), entry.getExpirationTime());
+        node.setWeight(weigh(key, entry.getValue()));
+        node.setWriteTime(now);
+        cacheMap.put(mapKey(node), node);
+        timerWheel.schedule(node);
+        onInsert(node);
+        return entry.getValue();
+    }
+
+    /**
+     * Starts a background reload of the entry if its value is older than the refresh interval and no reload of
+     * its key is running yet.
+     */
+    private void refreshIfNeeded(CacheNode<K, V> node, K key, long now) {
+        if (refreshNanos == 0 || now - node.getWriteTime() < refreshNanos) {
+            return;
+        }
+        if (!refreshing.add(key)) {
+            return;
+        }
+        long writeTime = node.getWriteTime();
+        try {
+            refreshExecutor.execute(() -> refresh(node, key, writeTime));
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            monitor.onRefreshFailure(key, 0);
+        }
+    }
+
+    /**
+     * Reloads the entry's value and swaps it in, unless the entry was written, replaced or removed during the
+     * reload. An update writes the node in place, so a write shows as a write time other than the one the
+     * refresh was started for. A reload returning null removes the entry.
+     */
+    private void refresh(CacheNode<K, V> node, K key, long writeTime) {
+        long start = ticker.read();
+        try {
+            V value = reloader.apply(key);
+            monitor.onRefreshSuccess(key, ticker.read() - start);
+            evictionLock.lock();
+            try {
+                maintenance();
+                if (cacheMap.get(lookupKey(key)) != node || node.getWriteTime() != writeTime) {
+                    return;
+                }
+                if (value == null) {
+                    cacheMap.remove(mapKey(node));
+                    onRemove(node);
+                    return;
+                }
+                long now = ticker.read();
+                node.setValue(value);
+                node.setWriteTime(now);
+                reweigh(node, weigh(key, value));
+                evictEntries(null);
+            } finally {
+                unlockAndSpill();
+            }
+        } catch (RuntimeException e) {
+            monitor.onRefreshFailure(key, ticker.read() - start);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    /**
+     * Runs the maintenance if no other thread holds the lock.
+     */
+    private void tryToDrainReadBuffer() {
+        if (evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Replays the buffered reads and removes the expired entries. Must be called while holding the lock.
+     */
+    private void maintenance() {
+        drainReadBuffer();
+        drainReferenceQueue();
+        timerWheel.advance(ticker.read(), this::expire);
+    }
+
+    /**
+     * Removes the entries whose key or value the garbage collector reclaimed. Must be called while holding the
+     * lock.
+     */
+    @SuppressWarnings("unchecked")
+    private void drainReferenceQueue() {
+        if (referenceQueue == null) {
+            return;
+        }
+        Reference<?> reference;
+        while ((reference = referenceQueue.poll()) != null) {
+            CacheNode<K, V> node = (CacheNode<K, V>) ReferenceCacheNode.nodeOf(reference);
+            if (node != null && cacheMap.remove(mapKey(node), node)) {
+                onRemove(node);
+                monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.COLLECTED);
+            }
+        }
+    }
+
+    /**
+     * Removes an entry whose time-to-live has elapsed, as found by the timer wheel.
+     */
+    private void expire(CacheNode<K, V> node) {
+        if (cacheMap.remove(mapKey(node), node)) {
+            onRemove(node);
+            monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.EXPIRED);
+        }
+    }
+
+    /**
+     * Performs the pending maintenance: applies the buffered reads and removes the expired entries.
+     * This runs as part of the cache's writes anyway; calling it is only useful when the cache may
+     * stay idle for a while.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the maximum number of entries, or the maximum total weight of a weighted cache.
+     *
+     * @return the current maximum
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Changes the maximum number of entries, or the maximum total weight of a weighted cache, at runtime.
+     *
+     * Growing takes effect at once. Shrinking evicts the excess entries in the usual eviction order, but in
+     * batches of about {@value #RESIZE_BATCH} entries: the maximum is lowered one batch at a time and the lock is
+     * released in between, so reads and writes keep going while a large cache shrinks, instead of waiting for
+     * the whole excess to be evicted as a {@link #clear()} would make them. The calling thread does the
+     * evictions. Resizes are expected to come from a single thread, such as an
+     * {@link AdaptiveCapacityController}.
+     *
+     * @param maximum the new maximum, greater than 0
+     */
+    public void setMaximum(long maximum) {
+        if (maximum <= 0) {
+            throw new IllegalArgumentException("Maximum should be greater than 0.");
+        }
+        while (true) {
+            evictionLock.lock();
+            try {
+                maintenance();
+                long averageWeight = Math.max(1, weightedSize / Math.max(1, cacheMap.size()));
+                resize(Math.max(maximum, weightedSize - RESIZE_BATCH * averageWeight));
+                if (this.maximum == maximum) {
+                    return;
+                }
+            } finally {
+                unlockAndSpill();
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum and the sizes of the W-TinyLFU queues derived from it, moving entries out of the queues
+     * that became too large and evicting entries until the cache fits. Must be called while holding the lock.
+     */
+    private void resize(long maximum) {
+        this.maximum = maximum;
+        if (sketch != null) {
+            windowMaximum = windowMaximumFor(maximum);
+            protectedMaximum = protectedMaximumFor(maximum);
+            while (windowSize > windowMaximum && utility.getTail() != null) {
+                CacheNode<K, V> node = utility.removeTail();
+                windowSize -= node.getWeight();
+                node.setQueueType(PROBATION);
+                probation.addNode(node);
+            }
+            while (protectedSize > protectedMaximum && protectedList.getTail() != null) {
+                CacheNode<K, V> node = protectedList.removeTail();
+                protectedSize -= node.getWeight();
+                node.setQueueType(PROBATION);
+                probation.addNode(node);
+            }
+        }
+        evictEntries(null);
+    }
+
+    private static long windowMaximumFor(long maximum) {
+        return Math.max(1, maximum / 100);
+    }
+
+    private static long protectedMaximumFor(long maximum) {
+        return (maximum - windowMaximumFor(maximum)) * 80 / 100;
+    }
+
+    /**
+     * Replays the buffered reads onto the LRU list. Entries that were removed or replaced since they
+     * were read are skipped. Must be called while holding the lock.
+     */
+    private void drainReadBuffer() {
+        if (readBuffer != null) {
+            readBuffer.drainTo(node -> {
+                if (cacheMap.get(mapKey(node)) == node) {
+                    onAccess(node);
+                }
+            });
+        }
     }
 
     /**
@@ -118,27 +615,387 @@ public class LRUCache<K, V> implements Cache<K, V> {
      * @param key the key of the entry to remove
      */
     @Override
-    public synchronized V remove(K key) {
-        CacheNode<K, V> node = cacheMap.get(key);
+    public V remove(K key) {
+        evictionLock.lock();
+        try {
+            return removeLocked(key);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private V removeLocked(K key) {
+        CacheNode<K, V> node = cacheMap.get(lookupKey(key));
         if (node != null) {
             V val = node.getValue();
-            utility.removeFromList(node, head, tail);
+            cacheMap.remove(mapKey(node));
+            onRemove(node);
             return val;
         }
+        if (secondTier != null) {
+            DiskTier.Entry<V> entry = takeFromSecondTier(key, ticker.read());
+            return entry == null ? null : entry.getValue();
+        }
         return null;
     }
+
+    /**
+     * Returns the values of the keys found in the cache, taking the lock and running the maintenance once for
+     * the whole batch. With buffered reads, the keys are looked up without the lock as {@link #get(Object)} does.
+     *
+     * @param keys the keys of the entries to look up
+     * @return a map of the keys found to their values
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = Maps.newHashMapWithExpectedSize(keys.size());
+        if (readBuffer != null) {
+            for (K key : keys) {
+                V value = getBuffered(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+            return result;
+        }
+        evictionLock.lock();
+        try {
+            maintenance();
+            for (K key : keys) {
+                V value = getLocked(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        } finally {
+            unlockAndSpill();
+        }
+        return result;
+    }
+
+    /**
+     * Adds or updates the entries of the map, taking the lock and running the maintenance once for the whole
+     * batch. Entries are written in the map's iteration order, so evictions happen as for single puts.
+     *
+     * @param entries the entries to add or update
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        evictionLock.lock();
+        try {
+            maintenance();
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                putLocked(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            unlockAndSpill();
+        }
+    }
+
+    /**
+     * Removes the entries for the keys, taking the lock once for the whole batch.
+     *
+     * @param keys the keys of the entries to remove
+     */
+    @Override
+    public void removeAll(Collection<? extends K> keys) {
+        evictionLock.lock();
+        try {
+            for (K key : keys) {
+                removeLocked(key);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Records an access to a node that is already in the cache. Must be called while holding the lock.
+     */
+    private void onAccess(CacheNode<K, V> node) {
+        if (sketch == null) {
+            utility.moveToHead(node);
+            return;
+        }
+        K key = node.getKey();
+        if (key != null) {
+            sketch.increment(key);
+        }
+        switch (node.getQueueType()) {
+            case WINDOW:
+                utility.moveToHead(node);
+                break;
+            case PROBATION:
+                probation.removeFromList(node);
+                node.setQueueType(PROTECTED);
+                protectedList.addNode(node);
+                protectedSize += node.getWeight();
+                while (protectedSize > protectedMaximum && protectedList.getTail() != node) {
+                    CacheNode<K, V> demoted = protectedList.removeTail();
+                    protectedSize -= demoted.getWeight();
+                    demoted.setQueueType(PROBATION);
+                    probation.addNode(demoted);
+                }
+                break;
+            default:
+                protectedList.moveToHead(node);
+                break;
+        }
+    }
+
+    /**
+     * Records a new value of a node that is already in the cache, whose weight may have changed, and evicts
+     * entries until the cache fits its maximum again. Must be called while holding the lock.
+     */
+    private void onUpdate(CacheNode<K, V> node, int weight) {
+        reweigh(node, weight);
+        onAccess(node);
+        evictEntries(null);
+    }
+
+    /**
+     * Changes the weight of a node, adjusting the total weight and the weight of its queue. Must be called while
+     * holding the lock.
+     */
+    private void reweigh(CacheNode<K, V> node, int weight) {
+        int difference = weight - node.getWeight();
+        node.setWeight(weight);
+        weightedSize += difference;
+        if (sketch != null) {
+            if (node.getQueueType() == WINDOW) {
+                windowSize += difference;
+            } else if (node.getQueueType() == PROTECTED) {
+                protectedSize += difference;
+            }
+        }
+    }
+
+    /**
+     * Links a node that was just added to the map and evicts entries until the cache fits its maximum.
+     * Must be called while holding the lock.
+     */
+    private void onInsert(CacheNode<K, V> node) {
+        weightedSize += node.getWeight();
+        if (sketch == null) {
+            utility.addNode(node);
+            if (node.getWeight() > maximum) {
+                evict(node);
+            }
+            evictEntries(null);
+            return;
+        }
+        sketch.ensureCapacity(cacheMap.size());
+        sketch.increment(node.getKey());
+        node.setQueueType(WINDOW);
+        utility.addNode(node);
+        windowSize += node.getWeight();
+        if (node.getWeight() > maximum) {
+            evict(node);
+            return;
+        }
+        CacheNode<K, V> candidate = null;
+        while (windowSize > windowMaximum && utility.getTail() != null) {
+            candidate = utility.removeTail();
+            windowSize -= candidate.getWeight();
+            candidate.setQueueType(PROBATION);
+            probation.addNode(candidate);
+        }
+        evictEntries(candidate);
+    }
+
+    /**
+     * Evicts entries until the total weight fits the maximum. With TinyLFU admission, the candidate that just
+     * left the window only replaces the main region's victim if the sketch admits it. Must be called while
+     * holding the lock.
+     */
+    private void evictEntries(CacheNode<K, V> candidate) {
+        if (sketch == null) {
+            while (weightedSize > maximum) {
+                removeTail();
+            }
+            return;
+        }
+        while (weightedSize > maximum) {
+            CacheNode<K, V> victim = probation.getTail();
+            if (victim == null) {
+                victim = protectedList.getTail();
+            }
+            if (victim == null) {
+                victim = utility.getTail();
+            }
+            if (candidate != null && victim != candidate && admit(candidate, victim)) {
+                evict(victim);
+            } else if (candidate != null) {
+                evict(candidate);
+                candidate = null;
+            } else {
+                evict(victim);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the sketch prefers the candidate to the victim. A node whose key was reclaimed has no
+     * frequency left to compare, and loses.
+     */
+    private boolean admit(CacheNode<K, V> candidate, CacheNode<K, V> victim) {
+        K candidateKey = candidate.getKey();
+        K victimKey = victim.getKey();
+        if (candidateKey == null || victimKey == null) {
+            return candidateKey != null;
+        }
+        return sketch.admit(candidateKey, victimKey);
+    }
+
+    /**
+     * Unlinks a node that was removed from the map. Must be called while holding the lock.
+     */
+    private void onRemove(CacheNode<K, V> node) {
+        timerWheel.deschedule(node);
+        weightedSize -= node.getWeight();
+        if (sketch == null) {
+            utility.removeFromList(node);
+            return;
+        }
+        switch (node.getQueueType()) {
+            case WINDOW:
+                utility.removeFromList(node);
+                windowSize -= node.getWeight();
+                break;
+            case PROBATION:
+                probation.removeFromList(node);
+                break;
+            default:
+                protectedList.removeFromList(node);
+                protectedSize -= node.getWeight();
+                break;
+        }
+    }
+
     /**
      * Removes the least recently used entry from the cache.
      */
     private void removeTail() {
-        cacheMap.remove(tail.getKey());
-        if (tail == head) {
-            head = null;
-            tail = null;
-        } else {
-            tail = tail.getPrev();
-            tail.setNext(null);
+        CacheNode<K, V> node = utility.removeTail();
+        cacheMap.remove(mapKey(node));
+        timerWheel.deschedule(node);
+        weightedSize -= node.getWeight();
+        monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.SIZE);
+        spill(node);
+    }
+
+    /**
+     * Removes the given entry from the map and from its queue.
+     */
+    private void evict(CacheNode<K, V> node) {
+        cacheMap.remove(mapKey(node));
+        onRemove(node);
+        monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.SIZE);
+        spill(node);
+    }
+
+    private int weigh(K key, V value) {
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
         }
+        return weight;
+    }
+
+    /**
+     * Queues an entry evicted for size for the second tier, unless it already expired or its value was reclaimed.
+     * The entry is written once the lock is released, see {@link #writeSpills()}. Must be called while holding the
+     * lock.
+     */
+    private void spill(CacheNode<K, V> node) {
+        if (secondTier != null && !node.isExpired(ticker.read())) {
+            V value = node.getValue();
+            if (value != null) {
+                CacheNode<K, V> spilled = new CacheNode<>(node.getKey(), value, node.getExpirationTime());
+                pendingSpills.put(spilled.getKey(), spilled);
+                spillQueue.add(spilled);
+            }
+        }
+    }
+
+    /**
+     * Releases the lock, then writes the entries evicted while it was held to the second tier, so that no other
+     * thread waits on the disk writes or on a segment rollover.
+     */
+    private void unlockAndSpill() {
+        evictionLock.unlock();
+        if (secondTier != null && !spillQueue.isEmpty() && !evictionLock.isHeldByCurrentThread()) {
+            writeSpills();
+        }
+    }
+
+    /**
+     * Writes the queued spills to the second tier without holding the lock. An entry stays in the pending map
+     * until it is on disk, and the tier only stores it if it is still pending, checked under the tier's lock:
+     * a lookup that takes a pending entry out of the map also invalidates the key on disk, so an entry promoted,
+     * replaced or removed during its write never reaches the tier or is dropped from it right after. An entry
+     * whose write fails is lost, as without a second tier.
+     */
+    private void writeSpills() {
+        CacheNode<K, V> node;
+        while ((node = spillQueue.poll()) != null) {
+            CacheNode<K, V> spilled = node;
+            K key = node.getKey();
+            try {
+                secondTier.put(key, node.getValue(), node.getExpirationTime(),
+                        () -> pendingSpills.get(key) == spilled);
+            } catch (RuntimeException ignored) {
+                // Dropped from the pending map below, like an eviction without a second tier.
+            }
+            pendingSpills.remove(key, node);
+        }
+    }
+
+    /**
+     * Removes the key's entry from the second tier, whether it is still pending or already on disk, and returns
+     * it if it has not expired. Must be called while holding the lock.
+     */
+    private DiskTier.Entry<V> takeFromSecondTier(K key, long now) {
+        CacheNode<K, V> pending = pendingSpills.remove(key);
+        if (pending == null) {
+            return secondTier.take(key, now);
+        }
+        secondTier.invalidate(key);
+        return pending.isExpired(now) ? null : new DiskTier.Entry<>(pending.getValue(), pending.getExpirationTime());
+    }
+
+    /**
+     * Drops the key's entry from the second tier, whether it is still pending or already on disk. Must be called
+     * while holding the lock.
+     */
+    private void invalidateSecondTier(K key) {
+        pendingSpills.remove(key);
+        secondTier.invalidate(key);
+    }
+
+    /**
+     * Creates a node holding the key and the value strongly, or through references if the cache uses them.
+     */
+    private CacheNode<K, V> newNode(K key, V value, long expirationTime) {
+        if (referenceQueue == null) {
+            return new CacheNode<>(key, value, expirationTime);
+        }
+        return new ReferenceCacheNode<>(key, value, expirationTime,
+                weakKeys ? referenceQueue : null, softValues ? referenceQueue : null);
+    }
+
+    /**
+     * Returns the object to look the key up with in the map.
+     */
+    private Object lookupKey(K key) {
+        return weakKeys ? ReferenceCacheNode.lookupKey(key) : key;
+    }
+
+    /**
+     * Returns the object the node is stored under in the map.
+     */
+    private static Object mapKey(CacheNode<?, ?> node) {
+        return node instanceof ReferenceCacheNode ? ((ReferenceCacheNode<?, ?>) node).getMapKey() : node.getKey();
     }
 
     /**
@@ -146,23 +1003,520 @@ public class LRUCache<K, V> implements Cache<K, V> {
      *
      * @return the number of entries in the cache
      */
-    public synchronized int size() {
+    public int size() {
         return cacheMap.size();
     }
 
     /**
      * Clears all entries from the cache.
      */
-    public synchronized void clear() {
+    public void clear() {
+        evictionLock.lock();
+        try {
+            clearMemory();
+            if (secondTier != null) {
+                pendingSpills.clear();
+                spillQueue.clear();
+                secondTier.clear();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Forgets every entry held in memory. Must be called while holding the lock.
+     */
+    private void clearMemory() {
+        drainReadBuffer();
         cacheMap.clear();
-        head = null;
-        tail = null;
+        utility.clear();
+        timerWheel.clear();
+        weightedSize = 0;
+        if (sketch != null) {
+            probation.clear();
+            protectedList.clear();
+            windowSize = 0;
+            protectedSize = 0;
+        }
+    }
+
+    /**
+     * Writes the entries held in memory to the file, from the most to the least recently used, with their
+     * remaining time-to-live. The lock is only held while the node references are copied; the keys and values
+     * are serialized afterwards, so an entry updated in the meantime may be written with its newer value.
+     *
+     * @param file            the snapshot file to write, replaced atomically
+     * @param keySerializer   the serializer for the keys
+     * @param valueSerializer the serializer for the values
+     * @throws IOException if the file cannot be written
+     */
+    public void snapshot(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        List<CacheNode<K, V>> nodes;
+        int[] tags;
+        long[] expirationTimes;
+        long now;
+        evictionLock.lock();
+        try {
+            maintenance();
+            now = ticker.read();
+            nodes = new ArrayList<>(cacheMap.size());
+            if (sketch == null) {
+                collect(utility, nodes);
+            } else {
+                collect(protectedList, nodes);
+                collect(probation, nodes);
+                collect(utility, nodes);
+            }
+            if (referenceQueue != null) {
+                nodes = strongCopies(nodes);
+            }
+            tags = new int[nodes.size()];
+            expirationTimes = new long[nodes.size()];
+            for (int i = 0; i < nodes.size(); i++) {
+                CacheNode<K, V> node = nodes.get(i);
+                tags[i] = node.getQueueType();
+                expirationTimes[i] = node.getExpirationTime();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        CacheSnapshot.write(file, nodes, tags, expirationTimes, now, keySerializer, valueSerializer);
+    }
+
+    /**
+     * Copies the nodes whose key and value are still reachable into nodes holding them strongly, so that they
+     * cannot be reclaimed while the snapshot is written.
+     */
+    private static <K, V> List<CacheNode<K, V>> strongCopies(List<CacheNode<K, V>> nodes) {
+        List<CacheNode<K, V>> copies = new ArrayList<>(nodes.size());
+        for (CacheNode<K, V> node : nodes) {
+            K key = node.getKey();
+            V value = node.getValue();
+            if (key != null && value != null) {
+                CacheNode<K, V> copy = new CacheNode<>(key, value, node.getExpirationTime());
+                copy.setQueueType(node.getQueueType());
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    private static <K, V> void collect(Utility<K, V> list, List<CacheNode<K, V>> nodes) {
+        for (CacheNode<K, V> node = list.getHead(); node != null; node = node.getNext()) {
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Replaces the entries held in memory with the ones of a snapshot written by
+     * {@link #snapshot(Path, Serializer, Serializer)}, keeping their order. The file is read and the nodes are
+     * built before the lock is taken; the lock is then held only to link them in bulk. Entries that expired
+     * since the snapshot, and the least recently used ones beyond the maximum, are skipped. A cache with weak
+     * keys cannot load a snapshot, since nothing else would hold the deserialized keys.
+     *
+     * @param file            the snapshot file to read
+     * @param keySerializer   the serializer for the keys
+     * @param valueSerializer the serializer for the values
+     * @return the number of entries loaded
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public int load(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        if (weakKeys) {
+            throw new IllegalStateException("A cache with weak keys cannot load a snapshot");
+        }
+        List<CacheNode<K, V>> nodes = new ArrayList<>();
+        long[] loadedWeight = new long[1];
+        CacheSnapshot.read(file, ticker.read(), keySerializer, valueSerializer, (key, value, expirationTime, tag) -> {
+            int weight = weigh(key, value);
+            if (loadedWeight[0] + weight <= maximum) {
+                CacheNode<K, V> node = newNode(key, value, expirationTime);
+                node.setWeight(weight);
+                node.setQueueType((byte) tag);
+                nodes.add(node);
+                loadedWeight[0] += weight;
+            }
+        });
+        evictionLock.lock();
+        try {
+            clearMemory();
+            weightedSize = loadedWeight[0];
+            long now = ticker.read();
+            for (CacheNode<K, V> node : nodes) {
+                node.setWriteTime(now);
+                cacheMap.put(mapKey(node), node);
+                timerWheel.schedule(node);
+                if (secondTier != null) {
+                    invalidateSecondTier(node.getKey());
+                }
+            }
+            if (sketch == null) {
+                utility.appendAll(nodes);
+            } else {
+                linkSegments(nodes);
+            }
+            return nodes.size();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Links loaded nodes into the W-TinyLFU queues they were snapshotted from, within the sizes of the
+     * window and protected queues; the overflow goes to probation. Must be called while holding the lock.
+     */
+    private void linkSegments(List<CacheNode<K, V>> nodes) {
+        List<CacheNode<K, V>> window = new ArrayList<>();
+        List<CacheNode<K, V>> probationNodes = new ArrayList<>();
+        List<CacheNode<K, V>> protectedNodes = new ArrayList<>();
+        sketch.ensureCapacity(nodes.size());
+        for (CacheNode<K, V> node : nodes) {
+            sketch.increment(node.getKey());
+            int weight = node.getWeight();
+            if (node.getQueueType() == PROTECTED && protectedSize + weight <= protectedMaximum) {
+                protectedNodes.add(node);
+                protectedSize += weight;
+            } else if (node.getQueueType() == WINDOW && windowSize + weight <= windowMaximum) {
+                window.add(node);
+                windowSize += weight;
+            } else {
+                node.setQueueType(PROBATION);
+                probationNodes.add(node);
+            }
+        }
+        utility.appendAll(window);
+        probation.appendAll(probationNodes);
+        protectedList.appendAll(protectedNodes);
+    }
+
+    /**
+     * Returns the estimated memory the cache spends on each entry on this JVM, in bytes, not counting the key
+     * and the value: the node, the hash map's entry and its share of the hash table.
+     *
+     * @return the estimated per-entry overhead in bytes
+     */
+    public long estimatedEntryOverhead() {
+        long mapEntry = MemoryLayout.shallowSize(3, 0, 1, 0);
+        long tableSlot = MemoryLayout.referenceSize() * 4L / 3;
+        long node = referenceQueue == null ? CacheNode.shallowSizeInBytes()
+                : ReferenceCacheNode.shallowSizeInBytes(weakKeys, softValues);
+        return node + mapEntry + tableSlot;
     }
 
     @Override
     public CacheMonitor.CacheStats getStats() {
-        return null;
+        long totalWeight;
+        evictionLock.lock();
+        try {
+            totalWeight = weightedSize;
+        } finally {
+            evictionLock.unlock();
+        }
+        return monitor.statsBuilder()
+                .size(size())
+                .sketchMemoryBytes(sketch == null ? 0 : sketch.memoryBytes())
+                .totalWeight(totalWeight)
+                .build();
     }
 
+    /**
+     * A builder of {@link LRUCache} instances.
+     *
+     * @param <K> the type of the key in the cache
+     * @param <V> the type of the value in the cache
+     */
+    public static final class Builder<K, V> {
+        private int maximumSize = -1;
+        private long maximumWeight = -1;
+        private Weigher<?, ?> weigher;
+        private boolean bufferedReads;
+        private boolean tinyLfuAdmission;
+        private ScheduledExecutorService cleanUpScheduler;
+        private Duration cleanUpInterval;
+        private Ticker ticker = Ticker.systemTicker();
+        private DiskTier<?, ?> secondTier;
+        private Duration refreshAfterWrite;
+        private Function<?, ?> reloader;
+        private Executor refreshExecutor;
+        private boolean recordStats = true;
+        private boolean weakKeys;
+        private boolean softValues;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of entries the cache can hold.
+         *
+         * @param maximumSize the maximum number of entries the cache can hold
+         * @return this builder
+         */
+        public Builder<K, V> maximumSize(int maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("Maximum size cannot be negative");
+            }
+            if (maximumWeight >= 0) {
+                throw new IllegalStateException("Maximum weight was already set");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum total weight of the entries the cache can hold, as measured by the weigher, which
+         * must be set as well. This replaces the bound on the number of entries.
+         *
+         * @param maximumWeight the maximum total weight of the entries
+         * @return this builder
+         */
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("Maximum weight cannot be negative");
+            }
+            if (maximumSize >= 0) {
+                throw new IllegalStateException("Maximum size was already set");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Sets the weigher that computes the weight of every entry, for caches bounded by a maximum weight.
+         *
+         * @param weigher the weigher of the entries
+         * @param <K1>    the type of the key in the cache
+         * @param <V1>    the type of the value in the cache
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> Builder<K1, V1> weigher(Weigher<? super K1, ? super V1> weigher) {
+            if (weigher == null) {
+                throw new NullPointerException("weigher");
+            }
+            this.weigher = weigher;
+            return (Builder<K1, V1>) this;
+        }
+
+        /**
+         * Enables lock-free reads whose recency updates are buffered and applied in batches.
+         *
+         * @param bufferedReads whether reads should be buffered
+         * @return this builder
+         */
+        public Builder<K, V> bufferedReads(boolean bufferedReads) {
+            this.bufferedReads = bufferedReads;
+            return this;
+        }
+
+        /**
+         * Enables the W-TinyLFU admission policy, which protects frequently used entries from scans.
+         *
+         * @param tinyLfuAdmission whether new entries must be admitted by the frequency sketch
+         * @return this builder
+         */
+        public Builder<K, V> tinyLfuAdmission(boolean tinyLfuAdmission) {
+            this.tinyLfuAdmission = tinyLfuAdmission;
+            return this;
+        }
 
+        /**
+         * Runs the cache's maintenance periodically on the given scheduler, so that expired entries are
+         * reclaimed even while the cache receives no writes. The task stops once the cache is garbage collected.
+         *
+         * @param scheduler the scheduler that runs the maintenance
+         * @param interval  the delay between two maintenance runs
+         * @return this builder
+         */
+        public Builder<K, V> cleanUpScheduler(ScheduledExecutorService scheduler, Duration interval) {
+            if (interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("Clean up interval should be positive");
+            }
+            this.cleanUpScheduler = scheduler;
+            this.cleanUpInterval = interval;
+            return this;
+        }
+
+        /**
+         * Sets the time source used for expiration and access times, such as {@link Ticker#cachedTicker()}
+         * or a fake ticker in tests.
+         *
+         * @param ticker the time source
+         * @return this builder
+         */
+        public Builder<K, V> ticker(Ticker ticker) {
+            if (ticker == null) {
+                throw new NullPointerException("ticker");
+            }
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * Sets a disk tier that receives the entries evicted for size, and that is checked when a key is
+         * missing from memory. The tier must not be shared with another cache.
+         *
+         * @param secondTier the tier holding the evicted entries
+         * @param <K1>       the type of the key in the cache
+         * @param <V1>       the type of the value in the cache
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> Builder<K1, V1> secondTier(DiskTier<K1, V1> secondTier) {
+            if (secondTier == null) {
+                throw new NullPointerException("secondTier");
+            }
+            this.secondTier = secondTier;
+            return (Builder<K1, V1>) this;
+        }
+
+        /**
+         * Refreshes entries in the background once their value is older than the given duration. The read that
+         * finds such an entry returns the current value, and the reloader computes the new one.
+         *
+         * @param refreshAfterWrite the age after which a read triggers a refresh
+         * @param reloader          the function computing the fresh value of a key
+         * @param <K1>              the type of the key in the cache
+         * @param <V1>              the type of the value in the cache
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> Builder<K1, V1> refreshAfterWrite(
+                Duration refreshAfterWrite, Function<? super K1, ? extends V1> reloader) {
+            if (refreshAfterWrite.isNegative() || refreshAfterWrite.isZero()) {
+                throw new IllegalArgumentException("Refresh interval should be positive");
+            }
+            if (reloader == null) {
+                throw new NullPointerException("reloader");
+            }
+            this.refreshAfterWrite = refreshAfterWrite;
+            this.reloader = reloader;
+            return (Builder<K1, V1>) this;
+        }
+
+        /**
+         * Sets the executor running the background refreshes, instead of the shared virtual-thread executor.
+         *
+         * @param refreshExecutor the executor running the refreshes
+         * @return this builder
+         */
+        public Builder<K, V> refreshExecutor(Executor refreshExecutor) {
+            if (refreshExecutor == null) {
+                throw new NullPointerException("refreshExecutor");
+            }
+            this.refreshExecutor = refreshExecutor;
+            return this;
+        }
+
+        /**
+         * Sets whether the cache records its statistics. Without them, {@link LRUCache#getStats()} only reports
+         * the size and weight, and the operations skip the counters and never read the clock for latencies.
+         *
+         * @param recordStats whether the statistics should be recorded
+         * @return this builder
+         */
+        public Builder<K, V> recordStats(boolean recordStats) {
+            this.recordStats = recordStats;
+            return this;
+        }
+
+        /**
+         * Holds the keys through weak references, so that an entry is removed once its key is no longer used
+         * elsewhere. Keys are then compared by identity rather than with {@code equals}, and a lookup allocates
+         * the reference it compares with. Weak keys cannot be combined with a second tier.
+         *
+         * @param weakKeys whether the keys should be weakly held
+         * @return this builder
+         */
+        public Builder<K, V> weakKeys(boolean weakKeys) {
+            this.weakKeys = weakKeys;
+            return this;
+        }
+
+        /**
+         * Holds the values through soft references, so that the garbage collector may reclaim them when memory
+         * runs low, least recently used first. Meant for large values that can be rebuilt; a reclaimed value
+         * reads as a miss.
+         *
+         * @param softValues whether the values should be softly held
+         * @return this builder
+         */
+        public Builder<K, V> softValues(boolean softValues) {
+            this.softValues = softValues;
+            return this;
+        }
+
+        /**
+         * Builds a cache with the configured settings.
+         *
+         * @param <K1> the type of the key in the cache
+         * @param <V1> the type of the value in the cache
+         * @return a new cache
+         */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> LRUCache<K1, V1> build() {
+            if (maximumSize < 0 && maximumWeight < 0) {
+                throw new IllegalStateException("Maximum size or maximum weight must be set");
+            }
+            if ((weigher != null) != (maximumWeight >= 0)) {
+                throw new IllegalStateException("A weigher requires a maximum weight, and a maximum weight a weigher");
+            }
+            if (weakKeys && secondTier != null) {
+                throw new IllegalStateException("Weak keys cannot be combined with a second tier");
+            }
+            return new LRUCache<>((Builder<K1, V1>) this);
+        }
+    }
+
+    /**
+     * Holds the executor shared by the background refreshes of all caches, created on first use: a
+     * virtual-thread-per-task executor on runtimes that provide one, or a pool of daemon threads otherwise.
+     */
+    private static final class RefreshExecutorHolder {
+        static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(task -> {
+                    Thread thread = new Thread(task, "cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+    /**
+     * A periodic maintenance task that only weakly references its cache, and cancels itself once the
+     * cache has been garbage collected.
+     */
+    private static final class CleanUpTask implements Runnable {
+        private final WeakReference<LRUCache<?, ?>> cacheReference;
+        private volatile ScheduledFuture<?> future;
+
+        private CleanUpTask(LRUCache<?, ?> cache) {
+            this.cacheReference = new WeakReference<>(cache);
+        }
+
+        static void schedule(LRUCache<?, ?> cache, ScheduledExecutorService scheduler, Duration interval) {
+            CleanUpTask task = new CleanUpTask(cache);
+            long nanos = interval.toNanos();
+            task.future = scheduler.scheduleWithFixedDelay(task, nanos, nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            LRUCache<?, ?> cache = cacheReference.get();
+            if (cache == null) {
+                ScheduledFuture<?> scheduled = future;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                return;
+            }
+            cache.cleanUp();
+        }
+    }
 }
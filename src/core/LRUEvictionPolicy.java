@@ -1,40 +1,41 @@
 package core;
 
 import Interface.EvictionPolicy;
-import domain.AccessStatistics;
-
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.Optional;
-
-public class LRUEvictionPolicy<K> implements EvictionPolicy<K> {
+import domain.CacheNode;
+import utils.Utility;
+
+/**
+ * Evicts the least recently used entry. Nodes are kept in a doubly linked list ordered by recency: an access
+ * moves its node to the head, and the victim is the tail.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class LRUEvictionPolicy<K, V> implements EvictionPolicy<K, V> {
+    private final Utility<K, V> list = new Utility<>();
 
     @Override
-    public boolean shouldEvict(int cacheSize, Duration ttl, Map<K, AccessStatistics<K>> statistics) {
-        if (cacheSize <= 0) {
-            throw new IllegalArgumentException("Cache size should be greater than 0.");
-        }
-
-        if (ttl.isNegative() || ttl.isZero()) {
-            return false;
-        }
-
-        long currentTimestamp = Instant.now().getEpochSecond();
+    public void onInsert(CacheNode<K, V> node) {
+        list.addNode(node);
+    }
 
-        Optional<Map.Entry<K, AccessStatistics<K>>> leastAccessedEntry = (Optional<Map.Entry<K, AccessStatistics<K>>>) statistics.entrySet().stream()
-                .min(Comparator.comparingLong(entry -> entry.getValue().getLastAccessTimestamp()));
+    @Override
+    public void onAccess(CacheNode<K, V> node) {
+        list.moveToHead(node);
+    }
 
-        if (leastAccessedEntry.isPresent()) {
-            AccessStatistics<K> leastAccessedStatistics = leastAccessedEntry.get().getValue();
-            long timeSinceLastAccess = Duration.between(Instant.ofEpochSecond(leastAccessedStatistics.getLastAccessTimestamp()), Instant.ofEpochSecond(currentTimestamp)).getSeconds();
-            if (timeSinceLastAccess >= ttl.getSeconds()) {
-                return true;
-            }
-        }
+    @Override
+    public void onRemove(CacheNode<K, V> node) {
+        list.removeFromList(node);
+    }
 
-        return false;
+    @Override
+    public CacheNode<K, V> selectVictim() {
+        return list.getTail();
     }
 
+    @Override
+    public void clear() {
+        list.clear();
+    }
 }
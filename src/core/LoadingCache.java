@@ -0,0 +1,317 @@
+package core;
+
+import Interface.Cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * A cache that loads missing values itself, wrapping any {@link Cache}.
+ *
+ * Concurrent misses on the same key share a single load: the first thread to miss registers a
+ * {@link CompletableFuture} for the key and runs the loader, and the threads that miss while it is running wait
+ * for that future instead of calling the loader again, so an expired hot key causes one backend call instead of
+ * a stampede. The loaded value is put into the cache before the future is forgotten. Loads run without holding
+ * any lock of the wrapped cache; only its own get and put take them briefly.
+ *
+ * Values the loader returns as null are not cached, and every waiting thread receives null. If the loader
+ * throws, every waiting thread receives the exception and the next miss tries again.
+ *
+ * The statistics are those of the wrapped cache, plus the count and latency of the loads run here; a bulk
+ * load counts as a single load.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class LoadingCache<K, V> implements Cache<K, V> {
+
+    private final Cache<K, V> cache;
+    private final Executor executor;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight;
+    private final CacheMonitor<K> monitor;
+
+    /**
+     * Constructs a loading cache over the given cache, running asynchronous loads on the common fork-join pool.
+     *
+     * @param cache the cache holding the loaded values
+     */
+    public LoadingCache(Cache<K, V> cache) {
+        this(cache, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a loading cache over the given cache, running asynchronous loads on the given executor.
+     *
+     * @param cache    the cache holding the loaded values
+     * @param executor the executor running the loads of {@link #getAsync(Object, Function)}
+     */
+    public LoadingCache(Cache<K, V> cache, Executor executor) {
+        this.cache = cache;
+        this.executor = executor;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.monitor = new CacheMonitor<>();
+    }
+
+    /**
+     * Returns the value for the key, loading it with the loader on a miss. If another thread is already loading
+     * the key, waits for its result instead of loading again.
+     *
+     * @param key    the key of the entry to look up
+     * @param loader the function computing the value of a missing key
+     * @return the cached or loaded value, or null if the loader returned null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = cache.get(key);
+        if (value != null) {
+            return value;
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return join(existing);
+        }
+        value = cachedAfterClaim(key, future);
+        if (value != null) {
+            return value;
+        }
+        load(key, loader, future);
+        return join(future);
+    }
+
+    /**
+     * Returns a future of the value for the key. On a miss the value is loaded on the executor, unless another
+     * thread is already loading the key, in which case the future completes with that load's result.
+     *
+     * @param key    the key of the entry to look up
+     * @param loader the function computing the value of a missing key
+     * @return a future of the cached or loaded value
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends V> loader) {
+        V value = cache.get(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing.copy();
+        }
+        value = cachedAfterClaim(key, future);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        try {
+            executor.execute(() -> load(key, loader, future));
+        } catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future.copy();
+    }
+
+    /**
+     * Returns the values for the keys, loading every missing key that no other thread is loading yet with a
+     * single call to the bulk loader. Keys loaded by other threads are waited for, and keys that end up without a
+     * value are left out of the result. Values the bulk loader returns for keys that were not asked for are
+     * cached too.
+     *
+     * @param keys       the keys of the entries to look up
+     * @param bulkLoader the function computing the values of a set of missing keys
+     * @return the cached or loaded values, in the order of the keys
+     */
+    public Map<K, V> getAll(Iterable<? extends K> keys,
+                            Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+        Map<K, V> result = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> claimed = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (result.containsKey(key)) {
+                continue;
+            }
+            V value = cache.get(key);
+            if (value != null) {
+                result.put(key, value);
+                continue;
+            }
+            CompletableFuture<V> future = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                value = cachedAfterClaim(key, future);
+                if (value != null) {
+                    result.put(key, value);
+                    continue;
+                }
+                claimed.put(key, future);
+            }
+            pending.put(key, existing == null ? future : existing);
+            result.put(key, null);
+        }
+        if (!claimed.isEmpty()) {
+            loadAll(claimed, bulkLoader);
+        }
+        for (Map.Entry<K, CompletableFuture<V>> entry : pending.entrySet()) {
+            result.put(entry.getKey(), join(entry.getValue()));
+        }
+        result.values().removeIf(value -> value == null);
+        return result;
+    }
+
+    /**
+     * Looks the key up again once this thread registered a future for it: a load that finished between the first
+     * lookup and the registration has already cached the value and left the in-flight map. On a hit the future
+     * is completed with the value and unregistered, so the caller does not load the key a second time. The
+     * lookup is a {@link Cache#peek(Object)}, so that the statistics count the first lookup only.
+     */
+    private V cachedAfterClaim(K key, CompletableFuture<V> future) {
+        V value = cache.peek(key);
+        if (value != null) {
+            future.complete(value);
+            inFlight.remove(key, future);
+        }
+        return value;
+    }
+
+    /**
+     * Runs the loader for a key this thread registered a future for, and publishes the result.
+     */
+    private void load(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> future) {
+        long start = monitor.startTimer();
+        try {
+            V value = loader.apply(key);
+            monitor.onLoadSuccess(key, start);
+            if (value != null) {
+                cache.put(key, value);
+            }
+            future.complete(value);
+        } catch (Throwable t) {
+            monitor.onLoadFailure(key, start);
+            future.completeExceptionally(t);
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Runs the bulk loader for the keys this thread registered futures for, and publishes the results.
+     */
+    private void loadAll(Map<K, CompletableFuture<V>> claimed,
+                         Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+        long start = monitor.startTimer();
+        try {
+            Map<? extends K, ? extends V> loaded =
+                    bulkLoader.apply(Collections.unmodifiableSet(new LinkedHashSet<>(claimed.keySet())));
+            monitor.onLoadSuccess(null, start);
+            if (loaded != null) {
+                for (Map.Entry<? extends K, ? extends V> entry : loaded.entrySet()) {
+                    if (entry.getValue() != null) {
+                        cache.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            for (Map.Entry<K, CompletableFuture<V>> entry : claimed.entrySet()) {
+                entry.getValue().complete(loaded == null ? null : loaded.get(entry.getKey()));
+            }
+        } catch (Throwable t) {
+            monitor.onLoadFailure(null, start);
+            for (CompletableFuture<V> future : claimed.values()) {
+                future.completeExceptionally(t);
+            }
+        } finally {
+            for (Map.Entry<K, CompletableFuture<V>> entry : claimed.entrySet()) {
+                inFlight.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Waits for a load, rethrowing the loader's unchecked exception as it was thrown.
+     */
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of loads currently running.
+     *
+     * @return the number of keys being loaded
+     */
+    public int inFlightLoads() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void put(K key, V value) {
+        cache.put(key, value);
+    }
+
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        cache.put(key, value, ttl);
+    }
+
+    @Override
+    public V get(K key) {
+        return cache.get(key);
+    }
+
+    @Override
+    public V peek(K key) {
+        return cache.peek(key);
+    }
+
+    @Override
+    public V remove(K key) {
+        return cache.remove(key);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        return cache.getAll(keys);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        cache.putAll(entries);
+    }
+
+    @Override
+    public void removeAll(Collection<? extends K> keys) {
+        cache.removeAll(keys);
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        CacheMonitor.CacheStats loads = monitor.getStats();
+        return cache.getStats().toBuilder()
+                .loads(loads.getLoadSuccessCount(), loads.getLoadFailureCount(), loads.getTotalLoadTime())
+                .loadLatency(loads.getLoadLatency())
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package core;
+
+import utils.LongLinkedIndex;
+import utils.Ticker;
+
+import java.time.Duration;
+
+/**
+ * An LRU cache mapping primitive {@code long} keys to primitive {@code long} values, such as ID-to-ID
+ * mappings. Nothing is boxed and no object is allocated per entry: keys, values, expiration times and the
+ * {@code int} LRU links all live in parallel arrays.
+ *
+ * The primitive methods are the fast path; the {@link Interface.Cache} methods taking and returning
+ * {@code Long}s are kept for code written against the interface.
+ */
+public class LongLongLRUCache extends AbstractLongLRUCache<Long> {
+
+    private final long[] values;
+
+    /**
+     * Constructs a new LongLongLRUCache with the given capacity.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     */
+    public LongLongLRUCache(int capacity) {
+        this(capacity, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs a new LongLongLRUCache with the given capacity, reading expiration times from the given ticker.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     * @param ticker   the time source used for expiration
+     */
+    public LongLongLRUCache(int capacity, Ticker ticker) {
+        super(capacity, ticker);
+        this.values = new long[capacity];
+    }
+
+    /**
+     * Adds or updates the entry for the given key with the given value in the cache.
+     * If the cache is at capacity, the least recently used entry is evicted.
+     *
+     * @param key   the key of the entry to add or update
+     * @param value the value of the entry to add or update
+     */
+    public void put(long key, long value) {
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            values[slotForWrite(key)] = value;
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    /**
+     * Adds or updates the entry for the given key with the given value in the cache.
+     * If the cache is at capacity, the least recently used entry is evicted.
+     *
+     * @param key   the key of the entry to add or update
+     * @param value the value of the entry to add or update
+     * @param ttl   the time-to-live duration of the entry in the cache
+     */
+    public void put(long key, long value, Duration ttl) {
+        long expirationTime = expirationTime(ttl);
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            values[slotForWrite(key, expirationTime)] = value;
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    /**
+     * Returns the value associated with the given key in the cache, or the default value if the key is not
+     * found or its entry expired.
+     *
+     * @param key          the key of the entry to look up
+     * @param defaultValue the value to return on a miss
+     * @return the value associated with the key, or the default value
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        long start = monitor.startTimer();
+        long result;
+        lock.lock();
+        try {
+            int slot = findForRead(key);
+            result = slot == LongLinkedIndex.NONE ? defaultValue : values[slot];
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordGet(start);
+        return result;
+    }
+
+    /**
+     * Removes the entry for the given key from the cache, if it exists.
+     *
+     * @param key the key of the entry to remove
+     * @return true if an entry was removed
+     */
+    public boolean remove(long key) {
+        lock.lock();
+        try {
+            int slot = index.find(key);
+            if (slot == LongLinkedIndex.NONE) {
+                return false;
+            }
+            removeSlot(slot);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Long key, Long value) {
+        put(key.longValue(), value.longValue());
+    }
+
+    @Override
+    public void put(Long key, Long value, Duration ttl) {
+        put(key.longValue(), value.longValue(), ttl);
+    }
+
+    @Override
+    public Long get(Long key) {
+        long start = monitor.startTimer();
+        Long result;
+        lock.lock();
+        try {
+            int slot = findForRead(key);
+            result = slot == LongLinkedIndex.NONE ? null : values[slot];
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordGet(start);
+        return result;
+    }
+
+    @Override
+    public Long peek(Long key) {
+        lock.lock();
+        try {
+            int slot = findQuietly(key);
+            return slot == LongLinkedIndex.NONE ? null : values[slot];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Long remove(Long key) {
+        lock.lock();
+        try {
+            int slot = index.find(key);
+            if (slot == LongLinkedIndex.NONE) {
+                return null;
+            }
+            long value = values[slot];
+            removeSlot(slot);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    void releaseValue(int slot) {
+        values[slot] = 0L;
+    }
+
+    @Override
+    long valueBytesPerSlot() {
+        return Long.BYTES;
+    }
+}
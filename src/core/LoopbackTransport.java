@@ -0,0 +1,80 @@
+package core;
+
+import Interface.InvalidationTransport;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An {@link InvalidationTransport} connecting the buses of one process, for tests and for applications that run
+ * several independent caches side by side. Every transport created by the same {@link Group} receives the
+ * messages the others send, delivered on the sending thread before {@link #send(ByteBuffer)} returns.
+ */
+public final class LoopbackTransport implements InvalidationTransport {
+    /** The largest message size, the same as that of a UDP datagram. */
+    public static final int MAX_MESSAGE_SIZE = 65507;
+
+    private final Group group;
+    private volatile Consumer<ByteBuffer> receiver;
+
+    private LoopbackTransport(Group group) {
+        this.group = group;
+    }
+
+    @Override
+    public int maxMessageSize() {
+        return MAX_MESSAGE_SIZE;
+    }
+
+    @Override
+    public void send(ByteBuffer message) {
+        for (LoopbackTransport member : group.members) {
+            if (member != this) {
+                member.deliver(message.duplicate());
+            }
+        }
+    }
+
+    private void deliver(ByteBuffer message) {
+        Consumer<ByteBuffer> current = receiver;
+        if (current != null) {
+            synchronized (this) {
+                current.accept(message);
+            }
+        }
+    }
+
+    @Override
+    public void start(Consumer<ByteBuffer> receiver) {
+        if (this.receiver != null) {
+            throw new IllegalStateException("Transport already started");
+        }
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void close() {
+        group.members.remove(this);
+        receiver = null;
+    }
+
+    /**
+     * A set of loopback transports that send to each other.
+     */
+    public static final class Group {
+        private final List<LoopbackTransport> members = new CopyOnWriteArrayList<>();
+
+        /**
+         * Returns a new transport in this group.
+         *
+         * @return a transport receiving the messages of the other members
+         */
+        public LoopbackTransport newTransport() {
+            LoopbackTransport transport = new LoopbackTransport(this);
+            members.add(transport);
+            return transport;
+        }
+    }
+}
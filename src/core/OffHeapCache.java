@@ -0,0 +1,352 @@
+package core;
+
+import domain.CacheNode;
+import domain.OffHeapNode;
+import Interface.Cache;
+import Interface.Serializer;
+import utils.Ticker;
+import utils.Utility;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An LRU cache that keeps its values outside the Java heap, so that large caches do not lengthen garbage
+ * collection pauses.
+ *
+ * Values are turned into bytes by a {@link Serializer} and copied into chunks of direct memory handed out by a
+ * {@link SlabAllocator}; only the keys and small {@link OffHeapNode}s holding the chunk addresses stay on the
+ * heap. The cache is bounded by memory rather than by entry count, and like memcached it keeps one LRU list per
+ * size class: when the allocator runs out of memory, the least recently used entry of the needed size class is
+ * evicted, and its chunk is reused. Only when that class holds no entry at all is a slab taken from the class
+ * holding the most slabs, by evicting the entries of the slab that holds that class's least recently used entry.
+ * Every {@link #get(Object)} deserializes a fresh copy of the value.
+ *
+ * Entries put with a time-to-live are scheduled on a {@link TimerWheel} and reclaimed as the cache is used.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class OffHeapCache<K, V> implements Cache<K, V> {
+
+    private final Map<K, OffHeapNode<K, V>> map;
+    private final Utility<K, V>[] lists;
+    private final ReentrantLock lock;
+    private final SlabAllocator allocator;
+    private final Serializer<V> serializer;
+    private final CacheMonitor<K> monitor;
+    private final TimerWheel<K, V> timerWheel;
+    private final Ticker ticker;
+
+    /**
+     * Constructs a new OffHeapCache that uses at most the given amount of off-heap memory.
+     *
+     * @param maximumBytes the maximum off-heap memory to use for the values, in bytes
+     * @param serializer   the serializer converting values to and from bytes
+     */
+    public OffHeapCache(long maximumBytes, Serializer<V> serializer) {
+        this(maximumBytes, SlabAllocator.DEFAULT_SLAB_SIZE, serializer, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs a new OffHeapCache that uses at most the given amount of off-heap memory, in slabs of the
+     * given size, reading expiration times from the given ticker.
+     *
+     * @param maximumBytes the maximum off-heap memory to use for the values, in bytes
+     * @param slabSize     the size of every slab, which is also the largest serialized value, in bytes
+     * @param serializer   the serializer converting values to and from bytes
+     * @param ticker       the time source used for expiration
+     */
+    public OffHeapCache(long maximumBytes, int slabSize, Serializer<V> serializer, Ticker ticker) {
+        this.allocator = new SlabAllocator(maximumBytes, slabSize);
+        this.serializer = serializer;
+        this.ticker = ticker;
+        this.map = new HashMap<>();
+        this.lists = newLists(allocator.sizeClassCount());
+        this.lock = new ReentrantLock();
+        this.monitor = new CacheMonitor<>();
+        this.timerWheel = new TimerWheel<>(ticker.read());
+    }
+
+    /**
+     * Adds or updates the entry for the given key with the given value in the cache.
+     * If there is not enough off-heap memory left, the least recently used entries are evicted.
+     *
+     * @param key   the key of the entry to add or update
+     * @param value the value of the entry to add or update
+     */
+    @Override
+    public void put(K key, V value) {
+        put(key, value, CacheNode.NO_EXPIRATION);
+    }
+
+    /**
+     * Adds or updates the entry for the given key with the given value in the cache.
+     * If there is not enough off-heap memory left, the least recently used entries are evicted.
+     *
+     * @param key   the key of the entry to add or update
+     * @param value the value of the entry to add or update
+     * @param ttl   the time-to-live duration of each entry in the cache
+     */
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL value cannot be negative");
+        }
+        put(key, value, CacheNode.expirationTime(ticker.read(), ttl));
+    }
+
+    private void put(K key, V value, long expirationTime) {
+        int length = serializer.serializedSize(value);
+        if (length > allocator.maxLength()) {
+            throw new IllegalArgumentException(
+                    "Serialized value of " + length + " bytes is larger than the slab size " + allocator.maxLength());
+        }
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            timerWheel.advance(ticker.read(), this::expire);
+            monitor.onPut(key);
+            int sizeClass = allocator.sizeClass(length);
+            long address = allocator.allocate(length);
+            while (address == SlabAllocator.NO_ADDRESS) {
+                evictTail(sizeClass);
+                address = allocator.allocate(length);
+            }
+            try {
+                serializer.serialize(value, allocator.buffer(address, length));
+            } catch (RuntimeException e) {
+                allocator.free(address);
+                throw e;
+            }
+            // The previous entry is only dropped once the new value is written, unless it was evicted for space.
+            OffHeapNode<K, V> node = new OffHeapNode<>(key, address, length, expirationTime);
+            OffHeapNode<K, V> existing = map.put(key, node);
+            if (existing != null) {
+                unlink(existing);
+            }
+            lists[sizeClass].addNode(node);
+            timerWheel.schedule(node);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    /**
+     * Returns the value associated with the given key in the cache, or null if the key is not found.
+     * The value is deserialized from off-heap memory on every call.
+     *
+     * @param key the key of the entry to look up
+     * @return the value associated with the key, or null if the key is not found
+     */
+    @Override
+    public V get(K key) {
+        long start = monitor.startTimer();
+        V value = null;
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            OffHeapNode<K, V> node = map.get(key);
+            if (node == null) {
+                monitor.onMiss(key);
+            } else if (node.isExpired(now)) {
+                map.remove(key);
+                unlink(node);
+                monitor.onEviction(key, CacheMonitor.RemovalCause.EXPIRED);
+                monitor.onMiss(key);
+            } else {
+                listOf(node).moveToHead(node);
+                monitor.onHit(key);
+                value = read(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordGet(start);
+        return value;
+    }
+
+    /**
+     * Returns the value associated with the given key like {@link #get(Object)}, deserialized on every call,
+     * without recording it in the statistics or moving the entry in the LRU list.
+     *
+     * @param key the key of the entry to look up
+     * @return the value associated with the key, or null if the key is not found
+     */
+    @Override
+    public V peek(K key) {
+        lock.lock();
+        try {
+            OffHeapNode<K, V> node = map.get(key);
+            return node == null || node.isExpired(ticker.read()) ? null : read(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry for the given key from the cache, if it exists.
+     *
+     * @param key the key of the entry to remove
+     * @return the previous value associated with the key, or null
+     */
+    @Override
+    public V remove(K key) {
+        lock.lock();
+        try {
+            OffHeapNode<K, V> node = map.remove(key);
+            if (node == null) {
+                return null;
+            }
+            V value = read(node);
+            unlink(node);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clears all entries from the cache. The slabs stay allocated for reuse.
+     */
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+            for (Utility<K, V> list : lists) {
+                list.clear();
+            }
+            timerWheel.clear();
+            allocator.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the off-heap memory taken by the serialized values, including the rounding to chunk sizes.
+     *
+     * @return the used off-heap memory in bytes
+     */
+    public long offHeapUsedBytes() {
+        lock.lock();
+        try {
+            return allocator.usedBytes();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the off-heap memory allocated for slabs so far.
+     *
+     * @return the allocated off-heap memory in bytes
+     */
+    public long offHeapAllocatedBytes() {
+        lock.lock();
+        try {
+            return allocator.allocatedBytes();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        return monitor.statsBuilder().size(size()).build();
+    }
+
+    private V read(OffHeapNode<K, V> node) {
+        ByteBuffer buffer = allocator.buffer(node.getAddress(), node.getLength());
+        return serializer.deserialize(buffer);
+    }
+
+    /**
+     * Evicts the least recently used entry of the given size class to free a chunk of that class, or, if the
+     * class holds no entry, the entries of one slab of the class holding the most slabs, which returns that slab
+     * to the allocator's pool. Must be called while holding the lock.
+     */
+    @SuppressWarnings("unchecked")
+    private void evictTail(int sizeClass) {
+        OffHeapNode<K, V> eldest = (OffHeapNode<K, V>) lists[sizeClass].getTail();
+        if (eldest != null) {
+            evict(eldest);
+            return;
+        }
+        int victimClass = allocator.largestSizeClass();
+        if (victimClass < 0) {
+            throw new IllegalStateException("Off-heap memory exhausted with an empty cache");
+        }
+        CacheNode<K, V> node = lists[victimClass].getTail();
+        int slab = SlabAllocator.slabOf(((OffHeapNode<K, V>) node).getAddress());
+        while (node != null) {
+            CacheNode<K, V> prev = node.getPrev();
+            OffHeapNode<K, V> offHeapNode = (OffHeapNode<K, V>) node;
+            if (SlabAllocator.slabOf(offHeapNode.getAddress()) == slab) {
+                evict(offHeapNode);
+            }
+            node = prev;
+        }
+    }
+
+    private void evict(OffHeapNode<K, V> node) {
+        map.remove(node.getKey());
+        unlink(node);
+        monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.SIZE);
+    }
+
+    /**
+     * Removes an entry whose time-to-live has elapsed, as found by the timer wheel.
+     */
+    @SuppressWarnings("unchecked")
+    private void expire(CacheNode<K, V> node) {
+        OffHeapNode<K, V> offHeapNode = (OffHeapNode<K, V>) node;
+        if (map.remove(node.getKey(), offHeapNode)) {
+            listOf(offHeapNode).removeFromList(node);
+            allocator.free(offHeapNode.getAddress());
+            monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.EXPIRED);
+        }
+    }
+
+    /**
+     * Unlinks a node that was removed from the map and frees its memory. Must be called while holding the lock.
+     */
+    private void unlink(OffHeapNode<K, V> node) {
+        listOf(node).removeFromList(node);
+        timerWheel.deschedule(node);
+        allocator.free(node.getAddress());
+    }
+
+    private Utility<K, V> listOf(OffHeapNode<K, V> node) {
+        return lists[allocator.sizeClass(node.getLength())];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Utility<K, V>[] newLists(int count) {
+        Utility<K, V>[] lists = new Utility[count];
+        for (int i = 0; i < count; i++) {
+            lists[i] = new Utility<>();
+        }
+        return lists;
+    }
+}
@@ -0,0 +1,437 @@
+package core;
+
+import Interface.Cache;
+import utils.Maps;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * A cache spreading its keys across several backend caches, local or remote, so that its capacity is the sum of
+ * theirs.
+ *
+ * Keys are routed with a consistent-hash ring: every node is placed at {@code virtualNodes} pseudo-random points
+ * of a 64-bit ring, and a key belongs to the node owning the first point at or after the hash of the key. Adding
+ * a node therefore only moves the keys falling into the arcs its points take over, about one key in N, all of
+ * them to the new node, and removing one only moves the keys it held. With the default 160 points per node, each
+ * node receives its fair share of the keys to within about 10%.
+ *
+ * Entries are not migrated when the nodes change: a key that moves simply misses once on its new node. Its old
+ * copy stays on the previous node until evicted or expired, and could be served again if a later change moved
+ * the key back, so the backends should bound their entries with a time-to-live when nodes come and go.
+ *
+ * Single-key operations go straight to the owning node. Bulk operations are split by node, and the parts run in
+ * parallel on the executor, the calling thread taking one part itself, so a multi-get against remote nodes
+ * waits for the slowest node instead of for all of them in turn. The statistics add up those of the nodes; the
+ * latencies are measured here and include the routing and the fan-out.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class PartitionedCache<K, V> implements Cache<K, V> {
+    /** The number of points of every node on the ring unless specified otherwise. */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final int virtualNodes;
+    private final Executor executor;
+    private final ReentrantLock lock;
+    private final CacheMonitor<K> monitor;
+    private volatile Ring<K, V> ring;
+
+    /**
+     * Constructs a cache over the given nodes, running the parts of bulk operations on the common fork-join pool.
+     *
+     * @param nodes the backend caches, by node name
+     */
+    public PartitionedCache(Map<String, ? extends Cache<K, V>> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a cache over the given nodes.
+     *
+     * @param nodes        the backend caches, by node name; the name decides where the node sits on the ring, so
+     *                     a node keeps its keys across restarts as long as it keeps its name
+     * @param virtualNodes the number of points of every node on the ring
+     * @param executor     the executor running the parts of bulk operations
+     */
+    public PartitionedCache(Map<String, ? extends Cache<K, V>> nodes, int virtualNodes, Executor executor) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required.");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes should be greater than 0.");
+        }
+        this.virtualNodes = virtualNodes;
+        this.executor = executor;
+        this.lock = new ReentrantLock();
+        this.monitor = new CacheMonitor<>();
+        this.ring = new Ring<>(new LinkedHashMap<>(nodes), virtualNodes);
+    }
+
+    /**
+     * Adds a node to the ring. Only the keys that now belong to it change owner.
+     *
+     * @param name  the name of the node, which must not be in use
+     * @param cache the backend cache of the node
+     */
+    public void addNode(String name, Cache<K, V> cache) {
+        if (cache == null) {
+            throw new NullPointerException("cache");
+        }
+        lock.lock();
+        try {
+            Map<String, Cache<K, V>> nodes = ring.nodes();
+            if (nodes.containsKey(name)) {
+                throw new IllegalArgumentException("Node already exists: " + name);
+            }
+            nodes.put(name, cache);
+            ring = new Ring<>(nodes, virtualNodes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a node from the ring. Its keys move to the nodes following its points; the entries it holds are
+     * left in its cache.
+     *
+     * @param name the name of the node
+     * @return the backend cache of the node, or null if there is no such node
+     */
+    public Cache<K, V> removeNode(String name) {
+        lock.lock();
+        try {
+            Map<String, Cache<K, V>> nodes = ring.nodes();
+            if (!nodes.containsKey(name)) {
+                return null;
+            }
+            if (nodes.size() == 1) {
+                throw new IllegalStateException("Cannot remove the last node.");
+            }
+            Cache<K, V> removed = nodes.remove(name);
+            ring = new Ring<>(nodes, virtualNodes);
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the name of the node the key currently belongs to.
+     *
+     * @param key the key
+     * @return the name of the owning node
+     */
+    public String nodeFor(K key) {
+        Ring<K, V> current = ring;
+        return current.names[current.indexFor(key)];
+    }
+
+    /**
+     * Returns the names of the nodes, in the order they were added.
+     *
+     * @return the node names
+     */
+    public List<String> getNodes() {
+        return Arrays.asList(ring.names.clone());
+    }
+
+    @Override
+    public void put(K key, V value) {
+        long start = monitor.startTimer();
+        ring.cacheFor(key).put(key, value);
+        monitor.recordPut(start);
+    }
+
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        long start = monitor.startTimer();
+        ring.cacheFor(key).put(key, value, ttl);
+        monitor.recordPut(start);
+    }
+
+    @Override
+    public V get(K key) {
+        long start = monitor.startTimer();
+        V value = ring.cacheFor(key).get(key);
+        monitor.recordGet(start);
+        return value;
+    }
+
+    @Override
+    public V peek(K key) {
+        return ring.cacheFor(key).peek(key);
+    }
+
+    @Override
+    public V remove(K key) {
+        return ring.cacheFor(key).remove(key);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        long start = monitor.startTimer();
+        Ring<K, V> current = ring;
+        List<List<K>> parts = current.split(keys);
+        List<Map<K, V>> results = fanOut(current, parts, Cache::getAll);
+        Map<K, V> result = Maps.newHashMapWithExpectedSize(keys.size());
+        for (Map<K, V> part : results) {
+            if (part != null) {
+                result.putAll(part);
+            }
+        }
+        monitor.recordGet(start);
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        long start = monitor.startTimer();
+        Ring<K, V> current = ring;
+        List<Map<K, V>> parts = new ArrayList<>(current.caches.length);
+        for (int i = 0; i < current.caches.length; i++) {
+            parts.add(null);
+        }
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            int index = current.indexFor(entry.getKey());
+            if (parts.get(index) == null) {
+                parts.set(index, new LinkedHashMap<>());
+            }
+            parts.get(index).put(entry.getKey(), entry.getValue());
+        }
+        fanOut(current, parts, (cache, part) -> {
+            cache.putAll(part);
+            return null;
+        });
+        monitor.recordPut(start);
+    }
+
+    @Override
+    public void removeAll(Collection<? extends K> keys) {
+        Ring<K, V> current = ring;
+        fanOut(current, current.split(keys), (cache, part) -> {
+            cache.removeAll(part);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        for (Cache<K, V> cache : ring.caches) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the sum of the statistics of the nodes, with the latencies measured by this cache.
+     */
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        long hits = 0;
+        long misses = 0;
+        long puts = 0;
+        long[] removals = new long[CacheMonitor.RemovalCause.values().length];
+        long size = 0;
+        long totalWeight = 0;
+        long sketchMemoryBytes = 0;
+        long loadSuccesses = 0;
+        long loadFailures = 0;
+        long totalLoadTime = 0;
+        long refreshSuccesses = 0;
+        long refreshFailures = 0;
+        long totalRefreshTime = 0;
+        for (Cache<K, V> cache : ring.caches) {
+            CacheMonitor.CacheStats stats = cache.getStats();
+            hits += stats.getHits();
+            misses += stats.getMisses();
+            puts += stats.getPuts();
+            for (CacheMonitor.RemovalCause cause : CacheMonitor.RemovalCause.values()) {
+                removals[cause.ordinal()] += stats.getEvictionCount(cause);
+            }
+            size += stats.getSize();
+            totalWeight += stats.getTotalWeight();
+            sketchMemoryBytes += stats.getSketchMemoryBytes();
+            loadSuccesses += stats.getLoadSuccessCount();
+            loadFailures += stats.getLoadFailureCount();
+            totalLoadTime += stats.getTotalLoadTime();
+            refreshSuccesses += stats.getRefreshSuccessCount();
+            refreshFailures += stats.getRefreshFailureCount();
+            totalRefreshTime += stats.getTotalRefreshTime();
+        }
+        return monitor.statsBuilder()
+                .hits(hits)
+                .misses(misses)
+                .puts(puts)
+                .removals(removals)
+                .size((int) Math.min(size, Integer.MAX_VALUE))
+                .totalWeight(totalWeight)
+                .sketchMemoryBytes(sketchMemoryBytes)
+                .loads(loadSuccesses, loadFailures, totalLoadTime)
+                .refreshes(refreshSuccesses, refreshFailures, totalRefreshTime)
+                .build();
+    }
+
+    /**
+     * Applies the operation to every non-null part, the part of node i on the cache of node i. The parts run in
+     * parallel on the executor, except one that the calling thread runs itself.
+     *
+     * @return the results, indexed like the parts, null for the parts that were null
+     */
+    private <P, R> List<R> fanOut(Ring<K, V> current, List<P> parts,
+                                  BiFunction<Cache<K, V>, P, R> operation) {
+        List<R> results = new ArrayList<>(parts.size());
+        List<CompletableFuture<R>> futures = new ArrayList<>(parts.size());
+        int local = -1;
+        for (int i = 0; i < parts.size(); i++) {
+            results.add(null);
+            futures.add(null);
+            P part = parts.get(i);
+            if (part == null) {
+                continue;
+            }
+            if (local < 0) {
+                local = i;
+                continue;
+            }
+            Cache<K, V> cache = current.caches[i];
+            futures.set(i, CompletableFuture.supplyAsync(() -> operation.apply(cache, part), executor));
+        }
+        if (local >= 0) {
+            results.set(local, operation.apply(current.caches[local], parts.get(local)));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i) != null) {
+                results.set(i, join(futures.get(i)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Waits for a part, rethrowing the backend's unchecked exception as it was thrown.
+     */
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * An immutable consistent-hash ring. A change of the nodes builds a new ring, so that readers route with a
+     * single volatile read and never see a ring half-updated.
+     */
+    private static final class Ring<K, V> {
+        private final String[] names;
+        private final Cache<K, V>[] caches;
+        private final long[] points;
+        private final int[] owners;
+
+        @SuppressWarnings("unchecked")
+        Ring(Map<String, Cache<K, V>> nodes, int virtualNodes) {
+            this.names = nodes.keySet().toArray(new String[0]);
+            this.caches = nodes.values().toArray(new Cache[0]);
+            long[][] sorted = new long[names.length * virtualNodes][];
+            int next = 0;
+            for (int node = 0; node < names.length; node++) {
+                long seed = fnv1a(names[node]);
+                for (int i = 0; i < virtualNodes; i++) {
+                    sorted[next++] = new long[] {mix(seed + i * 0x9E3779B97F4A7C15L), node};
+                }
+            }
+            Arrays.sort(sorted, (a, b) -> a[0] != b[0]
+                    ? Long.compare(a[0], b[0])
+                    : names[(int) a[1]].compareTo(names[(int) b[1]]));
+            this.points = new long[sorted.length];
+            this.owners = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                points[i] = sorted[i][0];
+                owners[i] = (int) sorted[i][1];
+            }
+        }
+
+        /**
+         * Returns a modifiable copy of the nodes, in the order they were added.
+         */
+        Map<String, Cache<K, V>> nodes() {
+            Map<String, Cache<K, V>> nodes = new LinkedHashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                nodes.put(names[i], caches[i]);
+            }
+            return nodes;
+        }
+
+        int indexFor(Object key) {
+            long hash = mix(key.hashCode());
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return owners[index == points.length ? 0 : index];
+        }
+
+        Cache<K, V> cacheFor(K key) {
+            return caches[indexFor(key)];
+        }
+
+        /**
+         * Splits the keys by node, with null for the nodes that own none of them.
+         */
+        List<List<K>> split(Collection<? extends K> keys) {
+            List<List<K>> parts = new ArrayList<>(caches.length);
+            for (int i = 0; i < caches.length; i++) {
+                parts.add(null);
+            }
+            for (K key : keys) {
+                int index = indexFor(key);
+                if (parts.get(index) == null) {
+                    parts.set(index, new ArrayList<>());
+                }
+                parts.get(index).add(key);
+            }
+            return parts;
+        }
+
+        private static long fnv1a(String name) {
+            long hash = 0xCBF29CE484222325L;
+            for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xFF;
+                hash *= 0x100000001B3L;
+            }
+            return hash;
+        }
+
+        /**
+         * The finalizer of MurmurHash3, spreading every input bit over the whole 64-bit ring.
+         */
+        private static long mix(long x) {
+            x ^= x >>> 33;
+            x *= 0xFF51AFD7ED558CCDL;
+            x ^= x >>> 33;
+            x *= 0xC4CEB9FE1A85EC53L;
+            x ^= x >>> 33;
+            return x;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package core;
+
+import Interface.Cache;
+import Interface.EvictionPolicy;
+import domain.CacheNode;
+import utils.Maps;
+import utils.Ticker;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache whose eviction order is decided by a pluggable {@link EvictionPolicy}, so that a new policy only has to
+ * keep its own ordering of the nodes instead of copying a whole cache.
+ *
+ * The cache owns a hash map of the nodes, a lock, the statistics and a {@link TimerWheel} that reclaims expired
+ * entries; the policy is told about every insertion, access and removal, and picks the victim when a new key
+ * arrives while the cache is full. The victim is evicted before the new node is inserted, so a policy never has
+ * to protect the node that is being added.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class PolicyCache<K, V> implements Cache<K, V> {
+    private final int capacity;
+    private final EvictionPolicy<K, V> policy;
+    private final Map<K, CacheNode<K, V>> map;
+    private final ReentrantLock lock;
+    private final CacheMonitor<K> monitor;
+    private final TimerWheel<K, V> timerWheel;
+    private final Ticker ticker;
+
+    /**
+     * Constructs a cache holding at most {@code capacity} entries, evicting them in the policy's order.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     * @param policy   the policy choosing the entries to evict; it must not be shared with another cache
+     */
+    public PolicyCache(int capacity, EvictionPolicy<K, V> policy) {
+        this(capacity, policy, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs a cache holding at most {@code capacity} entries, evicting them in the policy's order and
+     * reading expiration times from the given ticker.
+     *
+     * @param capacity the maximum number of entries the cache can hold
+     * @param policy   the policy choosing the entries to evict; it must not be shared with another cache
+     * @param ticker   the time source used for expiration
+     */
+    public PolicyCache(int capacity, EvictionPolicy<K, V> policy, Ticker ticker) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be greater than 0.");
+        }
+        if (policy == null) {
+            throw new NullPointerException("policy");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.map = new HashMap<>();
+        this.lock = new ReentrantLock();
+        this.monitor = new CacheMonitor<>();
+        this.ticker = ticker;
+        this.timerWheel = new TimerWheel<>(ticker.read());
+    }
+
+    @Override
+    public void put(K key, V value) {
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            putLocked(key, value, CacheNode.NO_EXPIRATION, false);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    @Override
+    public void put(K key, V value, Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL value cannot be negative");
+        }
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            putLocked(key, value, CacheNode.expirationTime(now, ttl), true);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordPut(start);
+    }
+
+    private void putLocked(K key, V value, long expirationTime, boolean hasTtl) {
+        monitor.onPut(key);
+        CacheNode<K, V> node = map.get(key);
+        if (node != null) {
+            node.setValue(value);
+            if (hasTtl) {
+                node.setExpirationTime(expirationTime);
+                timerWheel.reschedule(node);
+            }
+            policy.onAccess(node);
+            return;
+        }
+        if (map.size() >= capacity) {
+            CacheNode<K, V> victim = policy.selectVictim();
+            removeNode(victim);
+            monitor.onEviction(victim.getKey(), CacheMonitor.RemovalCause.SIZE);
+        }
+        node = policy.newNode(key, value, expirationTime);
+        map.put(key, node);
+        policy.onInsert(node);
+        if (hasTtl) {
+            timerWheel.schedule(node);
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        long start = monitor.startTimer();
+        V value;
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            value = getLocked(key, now);
+        } finally {
+            lock.unlock();
+        }
+        monitor.recordGet(start);
+        return value;
+    }
+
+    private V getLocked(K key, long now) {
+        CacheNode<K, V> node = map.get(key);
+        if (node == null) {
+            monitor.onMiss(key);
+            return null;
+        }
+        if (node.isExpired(now)) {
+            removeNode(node);
+            monitor.onEviction(key, CacheMonitor.RemovalCause.EXPIRED);
+            monitor.onMiss(key);
+            return null;
+        }
+        policy.onAccess(node);
+        monitor.onHit(key);
+        return node.getValue();
+    }
+
+    @Override
+    public V peek(K key) {
+        lock.lock();
+        try {
+            CacheNode<K, V> node = map.get(key);
+            return node == null || node.isExpired(ticker.read()) ? null : node.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        lock.lock();
+        try {
+            CacheNode<K, V> node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            removeNode(node);
+            return node.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the values of the keys found in the cache, taking the lock once for the whole batch.
+     *
+     * @param keys the keys of the entries to look up
+     * @return a map of the keys found to their values
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = Maps.newHashMapWithExpectedSize(keys.size());
+        lock.lock();
+        try {
+            long now = ticker.read();
+            timerWheel.advance(now, this::expire);
+            for (K key : keys) {
+                V value = getLocked(key, now);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Adds or updates the entries of the map, taking the lock once for the whole batch.
+     *
+     * @param entries the entries to add or update
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        lock.lock();
+        try {
+            timerWheel.advance(ticker.read(), this::expire);
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                putLocked(entry.getKey(), entry.getValue(), CacheNode.NO_EXPIRATION, false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            map.clear();
+            policy.clear();
+            timerWheel.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        return monitor.statsBuilder().size(size()).build();
+    }
+
+    /**
+     * Removes an entry whose time-to-live has elapsed, as found by the timer wheel.
+     */
+    private void expire(CacheNode<K, V> node) {
+        if (map.remove(node.getKey(), node)) {
+            policy.onRemove(node);
+            monitor.onEviction(node.getKey(), CacheMonitor.RemovalCause.EXPIRED);
+        }
+    }
+
+    /**
+     * Removes the node from the map, the policy and the timer wheel. Must be called while holding the lock.
+     */
+    private void removeNode(CacheNode<K, V> node) {
+        map.remove(node.getKey());
+        policy.onRemove(node);
+        timerWheel.deschedule(node);
+    }
+}
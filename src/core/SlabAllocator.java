@@ -0,0 +1,308 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allocates chunks of off-heap memory out of fixed-size slabs of direct {@link ByteBuffer}s, memcached style.
+ *
+ * Requests are rounded up to one of a series of size classes, each about 25% larger than the previous one.
+ * A slab is assigned to a single size class when it is first needed and cut into equal chunks of that size;
+ * freed chunks go back to their slab and are handed out again to requests of the same class. Once every chunk
+ * of a slab is free, the slab returns to a shared pool and can be reassigned to another class, so the memory
+ * follows the size distribution of the values over time. Slabs are only ever allocated up to the memory limit
+ * and are then reused, never released.
+ *
+ * An address packs the slab number in its high 32 bits and the chunk's offset within the slab in the low ones.
+ *
+ * The allocator is not thread-safe; caches use it only while holding their lock.
+ */
+public class SlabAllocator {
+
+    /** The address returned when no chunk could be allocated within the memory limit. */
+    public static final long NO_ADDRESS = -1L;
+
+    static final int MIN_CHUNK_SIZE = 64;
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final int[] chunkSizes;
+    private final List<Slab> slabs;
+    private final ArrayDeque<Slab> emptySlabs;
+    private final ArrayDeque<Slab>[] partialSlabs;
+    private final int[] slabCounts;
+    private long usedBytes;
+
+    /**
+     * Constructs an allocator that uses at most the given amount of memory, in slabs of the default size (1 MiB).
+     *
+     * @param maximumBytes the maximum off-heap memory to allocate, in bytes
+     */
+    public SlabAllocator(long maximumBytes) {
+        this(maximumBytes, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Constructs an allocator that uses at most the given amount of memory, in slabs of the given size.
+     * No chunk can be larger than a slab.
+     *
+     * @param maximumBytes the maximum off-heap memory to allocate, in bytes
+     * @param slabSize     the size of every slab, in bytes
+     */
+    @SuppressWarnings("unchecked")
+    public SlabAllocator(long maximumBytes, int slabSize) {
+        if (slabSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Slab size should be at least " + MIN_CHUNK_SIZE + " bytes.");
+        }
+        if (maximumBytes < slabSize) {
+            throw new IllegalArgumentException("Maximum memory should hold at least one slab.");
+        }
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(maximumBytes / slabSize, Integer.MAX_VALUE);
+        List<Integer> sizes = new ArrayList<>();
+        for (long size = MIN_CHUNK_SIZE; size < slabSize; size = (size + (size >>> 2) + 7) & ~7L) {
+            sizes.add((int) size);
+        }
+        sizes.add(slabSize);
+        this.chunkSizes = sizes.stream().mapToInt(Integer::intValue).toArray();
+        this.slabs = new ArrayList<>();
+        this.emptySlabs = new ArrayDeque<>();
+        this.partialSlabs = new ArrayDeque[chunkSizes.length];
+        for (int i = 0; i < partialSlabs.length; i++) {
+            partialSlabs[i] = new ArrayDeque<>();
+        }
+        this.slabCounts = new int[chunkSizes.length];
+    }
+
+    /**
+     * Allocates a chunk that can hold the given number of bytes.
+     *
+     * @param length the number of bytes to store, at most the slab size
+     * @return the chunk's address, or {@link #NO_ADDRESS} if the memory limit is reached
+     */
+    public long allocate(int length) {
+        if (length < 0 || length > slabSize) {
+            throw new IllegalArgumentException("Cannot allocate " + length + " bytes in slabs of " + slabSize);
+        }
+        int sizeClass = sizeClassOf(length);
+        ArrayDeque<Slab> partial = partialSlabs[sizeClass];
+        Slab slab = partial.peekFirst();
+        if (slab == null) {
+            slab = emptySlabs.pollFirst();
+            if (slab == null) {
+                if (slabs.size() == maxSlabs) {
+                    return NO_ADDRESS;
+                }
+                slab = new Slab(slabs.size(), ByteBuffer.allocateDirect(slabSize));
+                slabs.add(slab);
+            }
+            slab.assign(sizeClass, chunkSizes[sizeClass], slabSize);
+            slabCounts[sizeClass]++;
+            partial.addFirst(slab);
+        }
+        int offset = slab.take();
+        if (slab.isFull()) {
+            partial.pollFirst();
+        }
+        usedBytes += slab.chunkSize;
+        return ((long) slab.id << 32) | offset;
+    }
+
+    /**
+     * Returns a chunk to its slab, and the slab to the shared pool once all its chunks are free.
+     *
+     * @param address the address of an allocated chunk
+     */
+    public void free(long address) {
+        Slab slab = slabs.get(slabOf(address));
+        boolean wasFull = slab.isFull();
+        slab.release((int) address);
+        usedBytes -= slab.chunkSize;
+        if (slab.isEmpty()) {
+            if (!wasFull) {
+                partialSlabs[slab.sizeClass].remove(slab);
+            }
+            slabCounts[slab.sizeClass]--;
+            emptySlabs.addFirst(slab);
+        } else if (wasFull) {
+            partialSlabs[slab.sizeClass].addFirst(slab);
+        }
+    }
+
+    /**
+     * Returns a buffer over the first bytes of the chunk, positioned at zero with the given length as limit.
+     * The buffer is a view of the slab: it must not be used once the chunk is freed.
+     *
+     * @param address the address of an allocated chunk
+     * @param length  the number of bytes of the chunk to expose
+     * @return a view of the chunk
+     */
+    public ByteBuffer buffer(long address, int length) {
+        int offset = (int) address;
+        ByteBuffer buffer = slabs.get((int) (address >>> 32)).buffer.duplicate();
+        buffer.limit(offset + length).position(offset);
+        return buffer.slice();
+    }
+
+    /**
+     * Returns the size of the chunk a request of the given length is rounded up to.
+     *
+     * @param length the number of bytes to store
+     * @return the chunk size in bytes
+     */
+    public int chunkSize(int length) {
+        return chunkSizes[sizeClassOf(length)];
+    }
+
+    /**
+     * Returns the size class a request of the given length is served from, between zero and
+     * {@link #sizeClassCount()}.
+     *
+     * @param length the number of bytes to store
+     * @return the index of the size class
+     */
+    public int sizeClass(int length) {
+        return sizeClassOf(length);
+    }
+
+    /**
+     * Returns the number of size classes.
+     *
+     * @return the number of size classes
+     */
+    public int sizeClassCount() {
+        return chunkSizes.length;
+    }
+
+    /**
+     * Returns the size class holding the most slabs, the one a slab is best taken from when another class has
+     * none and the memory limit is reached.
+     *
+     * @return the index of the size class, or -1 if no slab is in use
+     */
+    public int largestSizeClass() {
+        int largest = -1;
+        for (int i = 0; i < slabCounts.length; i++) {
+            if (slabCounts[i] > 0 && (largest < 0 || slabCounts[i] > slabCounts[largest])) {
+                largest = i;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Returns the number of the slab an address points into.
+     *
+     * @param address the address of an allocated chunk
+     * @return the slab number
+     */
+    public static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    /**
+     * Returns the largest number of bytes a single chunk can hold.
+     *
+     * @return the slab size in bytes
+     */
+    public int maxLength() {
+        return slabSize;
+    }
+
+    /**
+     * Returns the off-heap memory taken by the slabs allocated so far, in bytes.
+     *
+     * @return the allocated memory in bytes
+     */
+    public long allocatedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    /**
+     * Returns the memory taken by the chunks currently in use, in bytes.
+     *
+     * @return the used memory in bytes
+     */
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Frees every chunk, returning all slabs to the shared pool.
+     */
+    public void clear() {
+        for (ArrayDeque<Slab> partial : partialSlabs) {
+            partial.clear();
+        }
+        emptySlabs.clear();
+        emptySlabs.addAll(slabs);
+        Arrays.fill(slabCounts, 0);
+        usedBytes = 0;
+    }
+
+    private int sizeClassOf(int length) {
+        int low = 0;
+        int high = chunkSizes.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (chunkSizes[mid] < length) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A slab cut into equal chunks, with a stack of the offsets of its free chunks.
+     */
+    private static final class Slab {
+        final int id;
+        final ByteBuffer buffer;
+        int sizeClass;
+        int chunkSize;
+        int chunkCount;
+        int[] freeOffsets;
+        int freeCount;
+
+        Slab(int id, ByteBuffer buffer) {
+            this.id = id;
+            this.buffer = buffer;
+        }
+
+        void assign(int sizeClass, int chunkSize, int slabSize) {
+            int chunks = slabSize / chunkSize;
+            this.sizeClass = sizeClass;
+            this.chunkSize = chunkSize;
+            this.chunkCount = chunks;
+            if (freeOffsets == null || freeOffsets.length < chunks) {
+                freeOffsets = new int[chunks];
+            }
+            freeCount = chunks;
+            for (int i = 0; i < chunks; i++) {
+                freeOffsets[i] = (chunks - 1 - i) * chunkSize;
+            }
+        }
+
+        int take() {
+            return freeOffsets[--freeCount];
+        }
+
+        void release(int offset) {
+            freeOffsets[freeCount++] = offset;
+        }
+
+        boolean isFull() {
+            return freeCount == 0;
+        }
+
+        boolean isEmpty() {
+            return freeCount == chunkCount;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package core;
+
+import domain.CacheNode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel that finds expired cache entries without scanning the whole cache.
+ *
+ * Every level of the wheel is an array of buckets whose span is a power of two, ranging from about a second
+ * for the first level to about a day for the fourth, plus a single overflow bucket for anything further away.
+ * A node is linked into the bucket of the coarsest level that can still hold its expiration time, through the
+ * timer links of {@link CacheNode}, so scheduling, rescheduling and descheduling a node all run in constant time.
+ * Advancing the wheel visits only the buckets whose time has passed: their expired nodes are handed to the
+ * caller, and nodes that are not yet due are moved down to a finer level.
+ *
+ * The wheel is not thread-safe; caches use it only while holding their lock.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class TimerWheel<K, V> {
+
+    static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    static final long[] SPANS = {
+            ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)),
+            ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)),
+            ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),
+            ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),
+    };
+    static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final CacheNode<K, V>[][] wheel;
+    private long time;
+
+    /**
+     * Constructs an empty wheel whose clock starts at the given time.
+     *
+     * @param time the current ticker time, in nanoseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long time) {
+        this.time = time;
+        wheel = new CacheNode[BUCKETS.length][];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new CacheNode[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; j++) {
+                wheel[i][j] = newSentinel();
+            }
+        }
+    }
+
+    /**
+     * Schedules the node to be expired at its expiration time. Nodes that never expire are ignored.
+     *
+     * @param node the node to schedule, which must not be scheduled already
+     */
+    public void schedule(CacheNode<K, V> node) {
+        if (!node.hasExpiration()) {
+            return;
+        }
+        CacheNode<K, V> sentinel = findBucket(expirationOf(node));
+        link(sentinel, node);
+    }
+
+    /**
+     * Moves the node to the bucket matching its current expiration time, scheduling it if it was not scheduled.
+     *
+     * @param node the node whose expiration time changed
+     */
+    public void reschedule(CacheNode<K, V> node) {
+        if (node.getNextInTimer() != null) {
+            unlink(node);
+        }
+        schedule(node);
+    }
+
+    /**
+     * Removes the node from the wheel, if it is scheduled.
+     *
+     * @param node the node to deschedule
+     */
+    public void deschedule(CacheNode<K, V> node) {
+        if (node.getNextInTimer() != null) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time, handing every node whose expiration time has passed to the
+     * consumer. The nodes are already descheduled when the consumer sees them.
+     *
+     * @param currentTime the current ticker time, in nanoseconds
+     * @param onExpired   the action that removes an expired node from the cache
+     */
+    public void advance(long currentTime, Consumer<CacheNode<K, V>> onExpired) {
+        long previousTime = time;
+        time = currentTime;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTime >>> SHIFT[i];
+            long currentTicks = currentTime >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks, onExpired);
+        }
+    }
+
+    /**
+     * Forgets every scheduled node.
+     */
+    public void clear() {
+        for (CacheNode<K, V>[] buckets : wheel) {
+            for (CacheNode<K, V> sentinel : buckets) {
+                CacheNode<K, V> node = sentinel.getNextInTimer();
+                while (node != sentinel) {
+                    CacheNode<K, V> next = node.getNextInTimer();
+                    node.setPrevInTimer(null);
+                    node.setNextInTimer(null);
+                    node = next;
+                }
+                sentinel.setPrevInTimer(sentinel);
+                sentinel.setNextInTimer(sentinel);
+            }
+        }
+    }
+
+    /**
+     * Empties the buckets of the level that the clock moved past, expiring or cascading their nodes.
+     */
+    private void expire(int index, long previousTicks, long currentTicks, Consumer<CacheNode<K, V>> onExpired) {
+        CacheNode<K, V>[] timerWheel = wheel[index];
+        int mask = timerWheel.length - 1;
+        int steps = (int) Math.min(1 + Math.abs(currentTicks - previousTicks), timerWheel.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            CacheNode<K, V> sentinel = timerWheel[i & mask];
+            CacheNode<K, V> node = sentinel.getNextInTimer();
+            sentinel.setPrevInTimer(sentinel);
+            sentinel.setNextInTimer(sentinel);
+            while (node != sentinel) {
+                CacheNode<K, V> next = node.getNextInTimer();
+                node.setPrevInTimer(null);
+                node.setNextInTimer(null);
+                if (expirationOf(node) - time > 0) {
+                    schedule(node);
+                } else {
+                    onExpired.accept(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Returns the sentinel of the bucket that covers the given expiration time.
+     */
+    private CacheNode<K, V> findBucket(long expiration) {
+        long duration = expiration - time;
+        int length = wheel.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = expiration >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[length][0];
+    }
+
+    private void link(CacheNode<K, V> sentinel, CacheNode<K, V> node) {
+        node.setPrevInTimer(sentinel.getPrevInTimer());
+        node.setNextInTimer(sentinel);
+        sentinel.getPrevInTimer().setNextInTimer(node);
+        sentinel.setPrevInTimer(node);
+    }
+
+    private void unlink(CacheNode<K, V> node) {
+        CacheNode<K, V> next = node.getNextInTimer();
+        CacheNode<K, V> prev = node.getPrevInTimer();
+        next.setPrevInTimer(prev);
+        prev.setNextInTimer(next);
+        node.setPrevInTimer(null);
+        node.setNextInTimer(null);
+    }
+
+    private static long expirationOf(CacheNode<?, ?> node) {
+        return node.getExpirationTime();
+    }
+
+    private CacheNode<K, V> newSentinel() {
+        CacheNode<K, V> sentinel = new CacheNode<>(null, null);
+        sentinel.setPrevInTimer(sentinel);
+        sentinel.setNextInTimer(sentinel);
+        return sentinel;
+    }
+
+    private static long ceilingPowerOfTwo(long x) {
+        return 1L << -Long.numberOfLeadingZeros(x - 1);
+    }
+}
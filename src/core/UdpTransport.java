@@ -0,0 +1,143 @@
+package core;
+
+import Interface.InvalidationTransport;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An {@link InvalidationTransport} sending every message as one UDP datagram, either to a fixed list of peers,
+ * which may include broadcast addresses, or to a multicast group that every process joins.
+ *
+ * Messages are limited to 1400 bytes by default so that a datagram fits in one Ethernet frame: a fragmented
+ * datagram is lost whenever any of its fragments is, which multiplies the loss rate. Datagrams are received by a
+ * daemon thread into a single reused buffer.
+ */
+public final class UdpTransport implements InvalidationTransport {
+    /** The default message size, which fits an Ethernet frame with the IP and UDP headers. */
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = 1400;
+
+    private final DatagramChannel channel;
+    private final List<InetSocketAddress> peers;
+    private final int maxMessageSize;
+    private Thread receiverThread;
+    private volatile boolean running;
+
+    /**
+     * Constructs a transport bound to the given local address, sending to the given peers.
+     *
+     * @param localAddress the address to receive on; port 0 picks a free port
+     * @param peers        the addresses of the other processes
+     * @throws IOException if the address cannot be bound
+     */
+    public UdpTransport(InetSocketAddress localAddress, List<InetSocketAddress> peers) throws IOException {
+        this(DatagramChannel.open().setOption(StandardSocketOptions.SO_BROADCAST, true).bind(localAddress),
+                peers, DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    private UdpTransport(DatagramChannel channel, List<InetSocketAddress> peers, int maxMessageSize) {
+        if (maxMessageSize <= 0 || maxMessageSize > LoopbackTransport.MAX_MESSAGE_SIZE) {
+            throw new IllegalArgumentException("Message size should be between 1 and 65507 bytes.");
+        }
+        this.channel = channel;
+        this.peers = Collections.unmodifiableList(new ArrayList<>(peers));
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Returns a transport that joins the multicast group on the given interface, and sends to the group. The
+     * processes receive their own messages back, which the bus ignores.
+     *
+     * @param group            the multicast group address
+     * @param port             the port every process of the group listens on
+     * @param networkInterface the interface to join the group on
+     * @return a transport of the multicast group
+     * @throws IOException if the group cannot be joined
+     */
+    public static UdpTransport multicast(InetAddress group, int port, NetworkInterface networkInterface)
+            throws IOException {
+        StandardProtocolFamily family = group.getAddress().length == 4
+                ? StandardProtocolFamily.INET
+                : StandardProtocolFamily.INET6;
+        DatagramChannel channel = DatagramChannel.open(family)
+                .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+                .setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface)
+                .bind(new InetSocketAddress(port));
+        try {
+            channel.join(group, networkInterface);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new UdpTransport(channel, Collections.singletonList(new InetSocketAddress(group, port)),
+                DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    /**
+     * Returns the address the transport receives on.
+     *
+     * @return the bound local address
+     * @throws IOException if the channel is closed
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    @Override
+    public int maxMessageSize() {
+        return maxMessageSize;
+    }
+
+    @Override
+    public void send(ByteBuffer message) throws IOException {
+        int position = message.position();
+        for (InetSocketAddress peer : peers) {
+            message.position(position);
+            channel.send(message, peer);
+        }
+    }
+
+    @Override
+    public synchronized void start(Consumer<ByteBuffer> receiver) {
+        if (receiverThread != null) {
+            throw new IllegalStateException("Transport already started");
+        }
+        running = true;
+        receiverThread = new Thread(() -> receive(receiver), "cache-invalidation-receiver");
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+    }
+
+    private void receive(Consumer<ByteBuffer> receiver) {
+        ByteBuffer buffer = ByteBuffer.allocate(LoopbackTransport.MAX_MESSAGE_SIZE);
+        while (running) {
+            buffer.clear();
+            try {
+                channel.receive(buffer);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                continue;
+            }
+            buffer.flip();
+            receiver.accept(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        channel.close();
+    }
+}
@@ -1,24 +1,29 @@
 package domain;
 
-import java.time.Duration;
-import java.time.Instant;
+import utils.Ticker;
 
 public class AccessStatistics<K> {
+    private final Ticker ticker;
     private int accessCount;
-    private Instant lastAccessTime;
+    private long lastAccessTime;
     private int hitCount;
     private int missCount;
 
     public AccessStatistics() {
+        this(Ticker.systemTicker());
+    }
+
+    public AccessStatistics(Ticker ticker) {
+        this.ticker = ticker;
         this.accessCount = 0;
-        this.lastAccessTime = Instant.now();
+        this.lastAccessTime = ticker.read();
         hitCount = 0;
         missCount = 0;
     }
 
     public void incrementAccessCount() {
         this.accessCount++;
-        this.lastAccessTime = Instant.now();
+        this.lastAccessTime = ticker.read();
     }
 
     public int getAccessCount() {
@@ -32,27 +37,32 @@ public class AccessStatistics<K> {
         return missCount;
     }
 
+    /**
+     * Returns the ticker time of the last access, in nanoseconds.
+     *
+     * @return the time of the last access
+     */
     public long getLastAccessTimestamp() {
-        return lastAccessTime.toEpochMilli();
+        return lastAccessTime;
     }
 
     public void incrementHitCount() {
         hitCount++;
-        lastAccessTime = Instant.now();
+        lastAccessTime = ticker.read();
     }
 
     public void incrementMissCount() {
         missCount++;
-        lastAccessTime = Instant.now();
+        lastAccessTime = ticker.read();
     }
 
     public void reset() {
-        lastAccessTime = Instant.now();
+        lastAccessTime = ticker.read();
         hitCount = 0;
         missCount = 0;
     }
 
     public void updateAccess() {
-        lastAccessTime = Instant.now();
+        lastAccessTime = ticker.read();
     }
 }
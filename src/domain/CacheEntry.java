@@ -1,14 +1,22 @@
 package domain;
 
+import utils.Ticker;
+
 import java.time.Duration;
 
 public class CacheEntry<V> {
     private final V value;
     private final long expiryTime;
+    private final Ticker ticker;
 
     public CacheEntry(V value, Duration ttl) {
+        this(value, ttl, Ticker.systemTicker());
+    }
+
+    public CacheEntry(V value, Duration ttl, Ticker ticker) {
         this.value = value;
-        this.expiryTime = System.currentTimeMillis() + ttl.toMillis();
+        this.expiryTime = CacheNode.expirationTime(ticker.read(), ttl);
+        this.ticker = ticker;
     }
 
     public V getValue() {
@@ -16,6 +24,10 @@ public class CacheEntry<V> {
     }
 
     public boolean isExpired() {
-        return System.currentTimeMillis() > expiryTime;
+        return isExpired(ticker.read());
+    }
+
+    public boolean isExpired(long now) {
+        return expiryTime != CacheNode.NO_EXPIRATION && now - expiryTime > 0;
     }
 }
@@ -1,22 +1,34 @@
 package domain;
 
+import utils.MemoryLayout;
+
 import java.time.Duration;
-import java.time.Instant;
 
 /**
  * A node in the doubly linked list used for LRU eviction in the cache.
  *
+ * Times are kept as primitive nanosecond readings of the cache's {@link utils.Ticker} rather than as
+ * {@code Instant} and {@code Duration} objects, so creating, updating and checking a node allocates nothing
+ * beyond the node itself.
+ *
  * @param <K> the type of the key in the cache
  * @param <V> the type of the value in the cache
  */
 public class CacheNode<K, V> {
 
-    private K key;
-    private V value;
+    /** The expiration time of an entry that never expires. */
+    public static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    private final K key;
+    private volatile V value;
     private CacheNode<K, V> prev;
     private CacheNode<K, V> next;
-    private Duration ttl;
-    private final Instant expirationTime;
+    private CacheNode<K, V> prevInTimer;
+    private CacheNode<K, V> nextInTimer;
+    private volatile long expirationTime;
+    private volatile long writeTime;
+    private int weight = 1;
+    private byte queueType;
 
     /**
      * Constructs a new CacheNode with the given key and value.
@@ -25,27 +37,52 @@ public class CacheNode<K, V> {
      * @param value the value of the node in the cache
      */
     public CacheNode(K key, V value) {
-        this.key = key;
-        this.value = value;
-        this.prev = null;
-        this.next = null;
-        this.ttl = Duration.ofSeconds(Integer.MAX_VALUE);
-        this.expirationTime = Instant.now().plus(ttl);
+        this(key, value, NO_EXPIRATION);
     }
     /**
-     * Constructs a new CacheNode with the given key and value.
+     * Constructs a new CacheNode with the given key, value and expiration time.
      *
-     * @param key   the key of the node in the cache
-     * @param value the value of the node in the cache
-     * @param ttl   the time-to-live duration of the entry in the cache
+     * @param key            the key of the node in the cache
+     * @param value          the value of the node in the cache
+     * @param expirationTime the ticker time at which the entry expires, or {@link #NO_EXPIRATION}
      */
-    public CacheNode(K key, V value, Duration ttl) {
+    public CacheNode(K key, V value, long expirationTime) {
         this.key = key;
         this.value = value;
         this.prev = null;
         this.next = null;
-        this.ttl = ttl != null ? ttl : Duration.ofSeconds(Long.MAX_VALUE);
-        this.expirationTime = Instant.now().plus(ttl);
+        this.expirationTime = expirationTime;
+    }
+
+    /**
+     * Returns the ticker time at which an entry written now with the given time-to-live expires,
+     * saturating to {@link #NO_EXPIRATION} when the sum does not fit in a long.
+     *
+     * @param now the current ticker time, in nanoseconds
+     * @param ttl the time-to-live duration of the entry
+     * @return the expiration time, in nanoseconds
+     */
+    public static long expirationTime(long now, Duration ttl) {
+        long nanos;
+        try {
+            nanos = ttl.toNanos();
+        } catch (ArithmeticException e) {
+            return NO_EXPIRATION;
+        }
+        long expiration = now + nanos;
+        if (((now ^ expiration) & (nanos ^ expiration)) < 0 || expiration == NO_EXPIRATION) {
+            return NO_EXPIRATION;
+        }
+        return expiration;
+    }
+
+    /**
+     * Returns the estimated size of a node on this JVM, in bytes, not counting the key and the value.
+     *
+     * @return the shallow size of a CacheNode
+     */
+    public static long shallowSizeInBytes() {
+        return MemoryLayout.shallowSize(6, 2, 1, 1);
     }
 
     /**
@@ -76,21 +113,49 @@ public class CacheNode<K, V> {
     }
 
     /**
-     * Returns the time-to-live (TTL) duration of the entry in the cache.
+     * Returns the expiration time of the entry in the cache.
      *
-     * @return the time-to-live (TTL) duration of the entry in the cache
+     * @return the ticker time at which the entry expires, or {@link #NO_EXPIRATION}
      */
-    public Duration getTTL() {
-        return ttl;
+    public long getExpirationTime() {
+        return expirationTime;
     }
 
     /**
-     * Returns the expiration time of the entry in the cache.
+     * Sets the expiration time of the entry in the cache.
      *
-     * @return the expiration time of the entry in the cache
+     * @param expirationTime the ticker time at which the entry expires, or {@link #NO_EXPIRATION}
      */
-    public Instant getExpirationTime() {
-        return expirationTime;
+    public void setExpirationTime(long expirationTime) {
+        this.expirationTime = expirationTime;
+    }
+
+    /**
+     * Returns whether the entry expires at all.
+     *
+     * @return true if the entry has an expiration time
+     */
+    public boolean hasExpiration() {
+        return expirationTime != NO_EXPIRATION;
+    }
+
+    /**
+     * Returns the time the entry's value was last written or refreshed. It is read without the cache's lock to
+     * decide whether the entry is due for a refresh.
+     *
+     * @return the ticker time of the last write, in nanoseconds
+     */
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    /**
+     * Sets the time the entry's value was last written or refreshed.
+     *
+     * @param writeTime the ticker time of the write, in nanoseconds
+     */
+    public void setWriteTime(long writeTime) {
+        this.writeTime = writeTime;
     }
     /**
      * Sets the previous node in the doubly linked list.
@@ -127,22 +192,97 @@ public class CacheNode<K, V> {
     public void setValue(V value){
         this.value = value;
     }
+
+    /**
+     * Returns the previous node in the timer wheel bucket holding this node.
+     *
+     * @return the previous node in the timer wheel bucket, or null if the node is not scheduled
+     */
+    public CacheNode<K, V> getPrevInTimer() {
+        return prevInTimer;
+    }
+
+    /**
+     * Sets the previous node in the timer wheel bucket holding this node.
+     *
+     * @param prevInTimer the previous node in the timer wheel bucket
+     */
+    public void setPrevInTimer(CacheNode<K, V> prevInTimer) {
+        this.prevInTimer = prevInTimer;
+    }
+
+    /**
+     * Returns the next node in the timer wheel bucket holding this node.
+     *
+     * @return the next node in the timer wheel bucket, or null if the node is not scheduled
+     */
+    public CacheNode<K, V> getNextInTimer() {
+        return nextInTimer;
+    }
+
+    /**
+     * Sets the next node in the timer wheel bucket holding this node.
+     *
+     * @param nextInTimer the next node in the timer wheel bucket
+     */
+    public void setNextInTimer(CacheNode<K, V> nextInTimer) {
+        this.nextInTimer = nextInTimer;
+    }
+
+    /**
+     * Returns which of its cache's queues the node belongs to, for caches that keep several lists.
+     *
+     * @return the queue the node belongs to
+     */
+    public byte getQueueType() {
+        return queueType;
+    }
+
+    /**
+     * Sets which of its cache's queues the node belongs to.
+     *
+     * @param queueType the queue the node belongs to
+     */
+    public void setQueueType(byte queueType) {
+        this.queueType = queueType;
+    }
+
+    /**
+     * Returns the weight of the entry, as measured by its cache's weigher. Entries weigh 1 by default.
+     *
+     * @return the weight of the entry
+     */
+    public int getWeight() {
+        return weight;
+    }
+
     /**
-     * Sets the value of the ttl in the cache.
+     * Sets the weight of the entry.
      *
-     * @param ttl the next node in the doubly linked list
+     * @param weight the weight of the entry
      */
-    public void setTtl(Duration ttl){
-        this.ttl = ttl;
+    public void setWeight(int weight) {
+        this.weight = weight;
     }
 
     /**
      * Checks if the entry in the cache is expired.
      *
+     * @param now the current ticker time, in nanoseconds
      * @return true if the entry in the cache is expired, false otherwise
      */
-    public boolean isExpired() {
-        return Instant.now().isAfter(expirationTime);
+    public boolean isExpired(long now) {
+        return expirationTime != NO_EXPIRATION && now - expirationTime > 0;
+    }
+
+    /**
+     * Checks if the garbage collector reclaimed the key or the value of the entry, which only happens to the
+     * entries of a cache holding them through references.
+     *
+     * @return true if the key or the value was reclaimed, false otherwise
+     */
+    public boolean isCollected() {
+        return false;
     }
 
     /**
@@ -153,8 +293,8 @@ public class CacheNode<K, V> {
     @Override
     public String toString() {
         return "CacheEntry{" +
-                "key=" + key +
-                ", value=" + value +
+                "key=" + getKey() +
+                ", value=" + getValue() +
                 ", expirationTime=" + expirationTime +
                 '}';
     }
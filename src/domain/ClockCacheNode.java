@@ -0,0 +1,93 @@
+package domain;
+
+import utils.MemoryLayout;
+
+/**
+ * A cache node that also holds the small access counter of the CLOCK policy and its slot on the clock.
+ *
+ * The counter saturates at {@link #MAX_FREQUENCY}, and an access only writes it while it is below that, so
+ * reading a hot entry writes nothing at all. Accesses racing with each other or with the clock hand may lose
+ * an increment, which only makes the counter slightly less precise.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class ClockCacheNode<K, V> extends CacheNode<K, V> {
+
+    /** The highest value of the access counter. */
+    public static final int MAX_FREQUENCY = 3;
+
+    private volatile int frequency;
+    private int slot;
+
+    /**
+     * Constructs a new ClockCacheNode with the given key, value and expiration time, not yet accessed.
+     *
+     * @param key            the key of the node in the cache
+     * @param value          the value of the node in the cache
+     * @param expirationTime the ticker time at which the entry expires, or {@link #NO_EXPIRATION}
+     */
+    public ClockCacheNode(K key, V value, long expirationTime) {
+        super(key, value, expirationTime);
+    }
+
+    /**
+     * Returns the estimated size of a node on this JVM, in bytes, not counting the key and the value.
+     *
+     * @return the shallow size of a ClockCacheNode
+     */
+    public static long shallowSizeInBytes() {
+        return MemoryLayout.shallowSize(6, 2, 3, 1);
+    }
+
+    /**
+     * Records an access, incrementing the counter unless it is saturated.
+     */
+    public void recordAccess() {
+        int current = frequency;
+        if (current < MAX_FREQUENCY) {
+            frequency = current + 1;
+        }
+    }
+
+    /**
+     * Gives the entry another chance as the clock hand passes it: decrements the counter if it is positive.
+     *
+     * @return true if the counter was 0, so the entry can be evicted
+     */
+    public boolean tryAge() {
+        int current = frequency;
+        if (current == 0) {
+            return true;
+        }
+        frequency = current - 1;
+        return false;
+    }
+
+    /**
+     * Returns the access counter.
+     *
+     * @return the access counter, between 0 and {@link #MAX_FREQUENCY}
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Returns the slot of the node on the clock.
+     *
+     * @return the slot of the node
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Sets the slot of the node on the clock.
+     *
+     * @param slot the slot of the node
+     */
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+}
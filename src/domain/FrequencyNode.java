@@ -0,0 +1,91 @@
+package domain;
+
+import utils.Utility;
+
+/**
+ * A node in the doubly linked list of access frequencies used for LFU eviction in the cache.
+ * Each node holds the entries that share its frequency, ordered from most to least recently used.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class FrequencyNode<K, V> {
+
+    private int frequency;
+    private final Utility<K, V> entries;
+    private FrequencyNode<K, V> prev;
+    private FrequencyNode<K, V> next;
+
+    /**
+     * Constructs a new, empty FrequencyNode for the given frequency.
+     *
+     * @param frequency the access frequency shared by the node's entries
+     */
+    public FrequencyNode(int frequency) {
+        this.frequency = frequency;
+        this.entries = new Utility<>();
+    }
+
+    /**
+     * Returns the access frequency shared by the node's entries.
+     *
+     * @return the access frequency
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Sets the access frequency shared by the node's entries.
+     *
+     * @param frequency the access frequency
+     */
+    public void setFrequency(int frequency) {
+        this.frequency = frequency;
+    }
+
+    /**
+     * Returns the list of entries that share this frequency.
+     *
+     * @return the list of entries
+     */
+    public Utility<K, V> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the node with the next lower frequency.
+     *
+     * @return the previous node in the frequency list
+     */
+    public FrequencyNode<K, V> getPrev() {
+        return prev;
+    }
+
+    /**
+     * Sets the node with the next lower frequency.
+     *
+     * @param prev the previous node in the frequency list
+     */
+    public void setPrev(FrequencyNode<K, V> prev) {
+        this.prev = prev;
+    }
+
+    /**
+     * Returns the node with the next higher frequency.
+     *
+     * @return the next node in the frequency list
+     */
+    public FrequencyNode<K, V> getNext() {
+        return next;
+    }
+
+    /**
+     * Sets the node with the next higher frequency.
+     *
+     * @param next the next node in the frequency list
+     */
+    public void setNext(FrequencyNode<K, V> next) {
+        this.next = next;
+    }
+}
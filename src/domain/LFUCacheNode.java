@@ -0,0 +1,63 @@
+package domain;
+
+import utils.MemoryLayout;
+
+/**
+ * A cache node that also knows the frequency node it currently belongs to, so that an access can
+ * move it to the next frequency in constant time.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class LFUCacheNode<K, V> extends CacheNode<K, V> {
+
+    private FrequencyNode<K, V> frequencyNode;
+
+    /**
+     * Constructs a new LFUCacheNode with the given key and value.
+     *
+     * @param key   the key of the node in the cache
+     * @param value the value of the node in the cache
+     */
+    public LFUCacheNode(K key, V value) {
+        super(key, value);
+    }
+
+    /**
+     * Constructs a new LFUCacheNode with the given key, value and expiration time.
+     *
+     * @param key            the key of the node in the cache
+     * @param value          the value of the node in the cache
+     * @param expirationTime the ticker time at which the entry expires, or {@link #NO_EXPIRATION}
+     */
+    public LFUCacheNode(K key, V value, long expirationTime) {
+        super(key, value, expirationTime);
+    }
+
+    /**
+     * Returns the estimated size of a node on this JVM, in bytes, not counting the key and the value.
+     *
+     * @return the shallow size of an LFUCacheNode
+     */
+    public static long shallowSizeInBytes() {
+        return MemoryLayout.shallowSize(7, 2, 1, 1);
+    }
+
+    /**
+     * Returns the frequency node that holds this entry.
+     *
+     * @return the frequency node that holds this entry
+     */
+    public FrequencyNode<K, V> getFrequencyNode() {
+        return frequencyNode;
+    }
+
+    /**
+     * Sets the frequency node that holds this entry.
+     *
+     * @param frequencyNode the frequency node that holds this entry
+     */
+    public void setFrequencyNode(FrequencyNode<K, V> frequencyNode) {
+        this.frequencyNode = frequencyNode;
+    }
+}
@@ -0,0 +1,69 @@
+package domain;
+
+import utils.MemoryLayout;
+
+/**
+ * A cache node whose value lives outside the Java heap. The node keeps the LRU and timer links of
+ * {@link CacheNode} but its value field stays null; instead it records where the serialized value was
+ * allocated and how many bytes it takes.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class OffHeapNode<K, V> extends CacheNode<K, V> {
+
+    private long address;
+    private int length;
+
+    /**
+     * Constructs a new OffHeapNode for the given key and the given off-heap allocation.
+     *
+     * @param key            the key of the node in the cache
+     * @param address        the address of the serialized value
+     * @param length         the length of the serialized value in bytes
+     * @param expirationTime the ticker time at which the entry expires, or {@link #NO_EXPIRATION}
+     */
+    public OffHeapNode(K key, long address, int length, long expirationTime) {
+        super(key, null, expirationTime);
+        this.address = address;
+        this.length = length;
+    }
+
+    /**
+     * Returns the estimated size of a node on this JVM, in bytes, not counting the key.
+     *
+     * @return the shallow size of an OffHeapNode
+     */
+    public static long shallowSizeInBytes() {
+        return MemoryLayout.shallowSize(6, 3, 2, 1);
+    }
+
+    /**
+     * Returns the address of the serialized value.
+     *
+     * @return the address of the serialized value
+     */
+    public long getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the length of the serialized value in bytes.
+     *
+     * @return the length of the serialized value
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Points the node at a new allocation holding its serialized value.
+     *
+     * @param address the address of the serialized value
+     * @param length  the length of the serialized value in bytes
+     */
+    public void setAllocation(long address, int length) {
+        this.address = address;
+        this.length = length;
+    }
+}
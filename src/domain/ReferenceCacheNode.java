@@ -0,0 +1,173 @@
+package domain;
+
+import utils.MemoryLayout;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+/**
+ * A cache node that holds its key through a weak reference, its value through a soft reference, or both, so that
+ * the garbage collector can reclaim them.
+ *
+ * A weakly held key is stored in the cache's map as the {@link KeyReference} itself, which compares keys by
+ * identity like {@link java.util.IdentityHashMap}: two equal but distinct keys are different entries, since the
+ * cache cannot keep a key alive for the sake of an equal one. Lookups wrap the key with {@link #lookupKey(Object)}.
+ *
+ * Both kinds of references are registered with the cache's {@link ReferenceQueue} and point back to their node,
+ * so once one of them is cleared the cache can find the node and remove it. A value reference that was replaced
+ * by a newer value is no longer current, and is ignored when it reaches the queue.
+ *
+ * @param <K> the type of the key in the cache
+ * @param <V> the type of the value in the cache
+ */
+public class ReferenceCacheNode<K, V> extends CacheNode<K, V> {
+
+    private final Object keyReference;
+    private final ReferenceQueue<Object> valueQueue;
+    private volatile Object valueReference;
+
+    /**
+     * Constructs a new ReferenceCacheNode with the given key, value and expiration time.
+     *
+     * @param key            the key of the node in the cache
+     * @param value          the value of the node in the cache
+     * @param expirationTime the ticker time at which the entry expires, or {@link #NO_EXPIRATION}
+     * @param keyQueue       the queue to register the weak key reference with, or null to hold the key strongly
+     * @param valueQueue     the queue to register the soft value references with, or null to hold the value
+     *                       strongly
+     */
+    public ReferenceCacheNode(K key, V value, long expirationTime,
+                              ReferenceQueue<Object> keyQueue, ReferenceQueue<Object> valueQueue) {
+        super(null, null, expirationTime);
+        this.keyReference = keyQueue == null ? key : new KeyReference<>(key, keyQueue, this);
+        this.valueQueue = valueQueue;
+        setValue(value);
+    }
+
+    /**
+     * Returns the estimated size of a node and its reference objects on this JVM, in bytes, not counting the key
+     * and the value.
+     *
+     * @param weakKeys   whether the key is held by a weak reference
+     * @param softValues whether the value is held by a soft reference
+     * @return the shallow size of a ReferenceCacheNode and its references
+     */
+    public static long shallowSizeInBytes(boolean weakKeys, boolean softValues) {
+        long size = MemoryLayout.shallowSize(9, 2, 1, 1);
+        if (weakKeys) {
+            size += MemoryLayout.shallowSize(5, 0, 1, 0);
+        }
+        if (softValues) {
+            size += MemoryLayout.shallowSize(5, 1, 0, 0);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the object to look a weakly held key up with in the cache's map.
+     *
+     * @param key the key to look up
+     * @return a reference to the key that equals the stored reference to the same key
+     */
+    public static Object lookupKey(Object key) {
+        return new KeyReference<>(key, null, null);
+    }
+
+    /**
+     * Returns the node a reference taken from the cache's queue belongs to, or null if the reference is no
+     * longer the node's current key or value reference.
+     *
+     * @param reference a reference polled from the queue
+     * @return the node whose key or value was reclaimed, or null
+     */
+    public static ReferenceCacheNode<?, ?> nodeOf(Reference<?> reference) {
+        ReferenceCacheNode<?, ?> node = null;
+        if (reference instanceof KeyReference) {
+            node = ((KeyReference<?>) reference).node;
+        } else if (reference instanceof ValueReference) {
+            node = ((ValueReference<?>) reference).node;
+        }
+        if (node == null || (node.keyReference != reference && node.valueReference != reference)) {
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the object the node is stored under in the cache's map: the key, or its weak reference.
+     *
+     * @return the map key of the node
+     */
+    public Object getMapKey() {
+        return keyReference;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public K getKey() {
+        Object key = keyReference;
+        return key instanceof KeyReference ? ((KeyReference<K>) key).get() : (K) key;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getValue() {
+        Object value = valueReference;
+        return valueQueue == null ? (V) value : ((ValueReference<V>) value).get();
+    }
+
+    @Override
+    public void setValue(V value) {
+        valueReference = valueQueue == null ? value : new ValueReference<>(value, valueQueue, this);
+    }
+
+    @Override
+    public boolean isCollected() {
+        return getKey() == null || (valueQueue != null && getValue() == null);
+    }
+
+    /**
+     * A weak reference to a key that compares by the identity of its referent.
+     */
+    static final class KeyReference<K> extends WeakReference<K> {
+        final int hash;
+        final ReferenceCacheNode<?, ?> node;
+
+        KeyReference(K key, ReferenceQueue<Object> queue, ReferenceCacheNode<?, ?> node) {
+            super(key, queue);
+            this.hash = System.identityHashCode(key);
+            this.node = node;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof KeyReference)) {
+                return false;
+            }
+            Object key = get();
+            return key != null && key == ((KeyReference<?>) other).get();
+        }
+    }
+
+    /**
+     * A soft reference to a value that knows its node.
+     */
+    static final class ValueReference<V> extends SoftReference<V> {
+        final ReferenceCacheNode<?, ?> node;
+
+        ValueReference(V value, ReferenceQueue<Object> queue, ReferenceCacheNode<?, ?> node) {
+            super(value, queue);
+            this.node = node;
+        }
+    }
+}
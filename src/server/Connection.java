@@ -0,0 +1,467 @@
+package server;
+
+import Interface.Cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * One client connection of a {@link MemcachedServer}, served by a single {@link EventLoop} thread.
+ *
+ * The connection owns an input and an output buffer that live as long as it does; they only grow, when a
+ * command or a reply does not fit, and are never reallocated otherwise. Every command found complete in the
+ * input is executed in turn, so pipelined commands sent in one packet are answered in one write. Replies are
+ * encoded straight from the input bytes and the cached arrays, so the only allocations of a request are the
+ * key string the cache is looked up with and, for a set, the stored item.
+ *
+ * Once the pending output passes {@link #OUTPUT_HIGH_WATER}, the connection stops executing commands and
+ * stops reading until the client has taken the replies, so a client that pipelines without reading cannot make
+ * the server buffer without bound.
+ */
+final class Connection {
+    static final int MAX_KEY_LENGTH = 250;
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+    static final int OUTPUT_HIGH_WATER = 64 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    private static final long MAX_RELATIVE_EXPIRATION = 60L * 60 * 24 * 30;
+
+    private static final byte[] VALUE = ascii("VALUE ");
+    private static final byte[] END = ascii("END\r\n");
+    private static final byte[] STORED = ascii("STORED\r\n");
+    private static final byte[] DELETED = ascii("DELETED\r\n");
+    private static final byte[] NOT_FOUND = ascii("NOT_FOUND\r\n");
+    private static final byte[] OK = ascii("OK\r\n");
+    private static final byte[] ERROR = ascii("ERROR\r\n");
+    private static final byte[] BAD_FORMAT = ascii("CLIENT_ERROR bad command line format\r\n");
+    private static final byte[] BAD_CHUNK = ascii("CLIENT_ERROR bad data chunk\r\n");
+    private static final byte[] LINE_TOO_LONG = ascii("CLIENT_ERROR line too long\r\n");
+    private static final byte[] TOO_LARGE = ascii("SERVER_ERROR object too large for cache\r\n");
+    private static final byte[] CRLF = ascii("\r\n");
+    private static final byte[] NOREPLY = ascii("noreply");
+
+    private final SocketChannel channel;
+    private final Cache<String, byte[]> cache;
+    private final MemcachedServer server;
+    private SelectionKey key;
+    private ByteBuffer in;
+    private ByteBuffer out;
+    private int[] tokenStarts;
+    private int[] tokenEnds;
+    private int tokenCount;
+    private int requiredInput;
+    private long discarding;
+    private boolean closing;
+
+    Connection(SocketChannel channel, Cache<String, byte[]> cache, MemcachedServer server) {
+        this.channel = channel;
+        this.cache = cache;
+        this.server = server;
+        this.in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.out = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.tokenStarts = new int[8];
+        this.tokenEnds = new int[8];
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Reads what the client sent and answers the commands it completes.
+     *
+     * @return false if the connection should be closed
+     */
+    boolean onReadable() throws IOException {
+        if (channel.read(in) < 0) {
+            return false;
+        }
+        return drive();
+    }
+
+    /**
+     * Writes the pending replies, and resumes the commands held back while they were pending.
+     *
+     * @return false if the connection should be closed
+     */
+    boolean onWritable() throws IOException {
+        return drive();
+    }
+
+    /**
+     * Alternates between flushing the output and executing buffered commands until either the socket cannot
+     * take more or no complete command is left, then sets the interest accordingly.
+     */
+    private boolean drive() throws IOException {
+        while (true) {
+            if (!flush()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return true;
+            }
+            if (closing) {
+                return false;
+            }
+            in.flip();
+            process();
+            in.compact();
+            if (requiredInput > in.capacity()) {
+                in = grow(in, requiredInput);
+            }
+            if (out.position() == 0 && !closing) {
+                key.interestOps(SelectionKey.OP_READ);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Writes as much of the output as the socket takes.
+     *
+     * @return true if the output is empty
+     */
+    private boolean flush() throws IOException {
+        if (out.position() == 0) {
+            return true;
+        }
+        out.flip();
+        channel.write(out);
+        boolean done = !out.hasRemaining();
+        out.compact();
+        return done;
+    }
+
+    /**
+     * Executes the complete commands at the start of the input, which is in read mode, stopping at the first
+     * incomplete one or when enough output is pending.
+     */
+    private void process() {
+        byte[] bytes = in.array();
+        requiredInput = 0;
+        while (!closing && out.position() < OUTPUT_HIGH_WATER) {
+            if (discarding > 0) {
+                int skipped = (int) Math.min(discarding, in.remaining());
+                in.position(in.position() + skipped);
+                discarding -= skipped;
+                if (discarding > 0) {
+                    return;
+                }
+            }
+            int start = in.position();
+            int limit = in.limit();
+            int newline = indexOf(bytes, start, limit, (byte) '\n');
+            if (newline < 0) {
+                if (limit - start >= MAX_LINE_LENGTH) {
+                    reply(LINE_TOO_LONG);
+                    closing = true;
+                } else {
+                    requiredInput = limit - start + 1;
+                }
+                return;
+            }
+            int lineEnd = newline > start && bytes[newline - 1] == '\r' ? newline - 1 : newline;
+            tokenize(bytes, start, lineEnd);
+            int next = execute(bytes, newline + 1, limit);
+            if (next < 0) {
+                requiredInput = -next - start;
+                return;
+            }
+            in.position(next);
+        }
+    }
+
+    /**
+     * Executes the tokenized command whose line ends right before {@code dataStart}.
+     *
+     * @return the position after the command, or minus the position the input must reach for the command to be
+     *         complete
+     */
+    private int execute(byte[] bytes, int dataStart, int limit) {
+        if (tokenCount == 0) {
+            reply(ERROR);
+            return dataStart;
+        }
+        if (tokenIs(bytes, 0, "get")) {
+            retrieve(bytes, false);
+        } else if (tokenIs(bytes, 0, "gets")) {
+            retrieve(bytes, true);
+        } else if (tokenIs(bytes, 0, "set")) {
+            return store(bytes, dataStart, limit);
+        } else if (tokenIs(bytes, 0, "delete")) {
+            delete(bytes);
+        } else if (tokenIs(bytes, 0, "flush_all")) {
+            flushAll(bytes);
+        } else if (tokenIs(bytes, 0, "quit")) {
+            closing = true;
+        } else {
+            reply(ERROR);
+        }
+        return dataStart;
+    }
+
+    private void retrieve(byte[] bytes, boolean withCas) {
+        if (tokenCount < 2) {
+            reply(ERROR);
+            return;
+        }
+        for (int i = 1; i < tokenCount; i++) {
+            int length = tokenEnds[i] - tokenStarts[i];
+            if (length > MAX_KEY_LENGTH) {
+                reply(BAD_FORMAT);
+                return;
+            }
+        }
+        for (int i = 1; i < tokenCount; i++) {
+            byte[] item = cache.get(keyOf(bytes, i));
+            if (item == null) {
+                continue;
+            }
+            int dataLength = Item.dataLength(item);
+            ensureOutput(VALUE.length + MAX_KEY_LENGTH + 3 * 21 + dataLength + 4);
+            out.put(VALUE);
+            out.put(bytes, tokenStarts[i], tokenEnds[i] - tokenStarts[i]);
+            out.put((byte) ' ');
+            putNumber(Integer.toUnsignedLong(Item.flags(item)));
+            out.put((byte) ' ');
+            putNumber(dataLength);
+            if (withCas) {
+                out.put((byte) ' ');
+                putNumber(Item.cas(item));
+            }
+            out.put(CRLF);
+            out.put(item, Item.HEADER_SIZE, dataLength);
+            out.put(CRLF);
+        }
+        reply(END);
+    }
+
+    private int store(byte[] bytes, int dataStart, int limit) {
+        boolean noreply = tokenCount == 6 && tokenIs(bytes, 5, NOREPLY);
+        long flags = tokenCount >= 5 ? parseNumber(bytes, 2) : -1;
+        long length = tokenCount >= 5 ? parseNumber(bytes, 4) : -1;
+        long expiration = tokenCount >= 5 ? parseSignedNumber(bytes, 3) : Long.MIN_VALUE;
+        if ((tokenCount != 5 && !noreply) || tokenEnds[1] - tokenStarts[1] > MAX_KEY_LENGTH
+                || flags < 0 || flags > 0xffffffffL || length < 0 || expiration == Long.MIN_VALUE) {
+            reply(BAD_FORMAT);
+            discarding = length < 0 ? 0 : length + 2;
+            return dataStart;
+        }
+        if (length > server.maxItemSize()) {
+            reply(TOO_LARGE);
+            discarding = length + 2;
+            return dataStart;
+        }
+        int dataEnd = dataStart + (int) length;
+        if (dataEnd + 2 > limit) {
+            return -(dataEnd + 2);
+        }
+        if (bytes[dataEnd] != '\r' || bytes[dataEnd + 1] != '\n') {
+            reply(BAD_CHUNK);
+            closing = true;
+            return dataEnd + 2;
+        }
+        String key = keyOf(bytes, 1);
+        byte[] item = Item.create((int) flags, server.nextCas(), bytes, dataStart, (int) length);
+        long ttl = timeToLive(expiration);
+        if (ttl == 0) {
+            cache.put(key, item);
+        } else if (ttl > 0) {
+            cache.put(key, item, Duration.ofSeconds(ttl));
+        } else {
+            cache.remove(key);
+        }
+        if (!noreply) {
+            reply(STORED);
+        }
+        return dataEnd + 2;
+    }
+
+    private void delete(byte[] bytes) {
+        boolean noreply = tokenCount >= 3 && tokenIs(bytes, tokenCount - 1, NOREPLY);
+        int arguments = tokenCount - (noreply ? 1 : 0);
+        if (arguments < 2 || arguments > 3 || (arguments == 3 && parseNumber(bytes, 2) != 0)
+                || tokenEnds[1] - tokenStarts[1] > MAX_KEY_LENGTH) {
+            reply(BAD_FORMAT);
+            return;
+        }
+        boolean removed = cache.remove(keyOf(bytes, 1)) != null;
+        if (!noreply) {
+            reply(removed ? DELETED : NOT_FOUND);
+        }
+    }
+
+    private void flushAll(byte[] bytes) {
+        boolean noreply = tokenCount == 2 && tokenIs(bytes, 1, NOREPLY);
+        if (tokenCount > 1 && !noreply) {
+            reply(BAD_FORMAT);
+            return;
+        }
+        cache.clear();
+        if (!noreply) {
+            reply(OK);
+        }
+    }
+
+    /**
+     * Converts a memcached expiration time into a time-to-live in seconds: 0 for none, and a negative value for
+     * an item that is already expired. Times beyond 30 days are absolute Unix times, as in memcached.
+     */
+    private static long timeToLive(long expiration) {
+        if (expiration <= MAX_RELATIVE_EXPIRATION) {
+            return expiration < 0 ? -1 : expiration;
+        }
+        long ttl = expiration - System.currentTimeMillis() / 1000;
+        return ttl > 0 ? ttl : -1;
+    }
+
+    /**
+     * Splits the line into the offsets of its space-separated tokens, without copying it.
+     */
+    private void tokenize(byte[] bytes, int start, int end) {
+        tokenCount = 0;
+        int i = start;
+        while (i < end) {
+            while (i < end && bytes[i] == ' ') {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+            int tokenStart = i;
+            while (i < end && bytes[i] != ' ') {
+                i++;
+            }
+            if (tokenCount == tokenStarts.length) {
+                tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+                tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+            }
+            tokenStarts[tokenCount] = tokenStart;
+            tokenEnds[tokenCount] = i;
+            tokenCount++;
+        }
+    }
+
+    private boolean tokenIs(byte[] bytes, int token, String expected) {
+        int length = tokenEnds[token] - tokenStarts[token];
+        if (length != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[tokenStarts[token] + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tokenIs(byte[] bytes, int token, byte[] expected) {
+        int length = tokenEnds[token] - tokenStarts[token];
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[tokenStarts[token] + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String keyOf(byte[] bytes, int token) {
+        return new String(bytes, tokenStarts[token], tokenEnds[token] - tokenStarts[token],
+                StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Parses an unsigned decimal token, returning -1 if it is not one.
+     */
+    private long parseNumber(byte[] bytes, int token) {
+        int start = tokenStarts[token];
+        int end = tokenEnds[token];
+        if (end == start || end - start > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses an optionally negative decimal token, returning {@link Long#MIN_VALUE} if it is not one.
+     */
+    private long parseSignedNumber(byte[] bytes, int token) {
+        boolean negative = tokenEnds[token] > tokenStarts[token] && bytes[tokenStarts[token]] == '-';
+        if (negative) {
+            tokenStarts[token]++;
+        }
+        long value = parseNumber(bytes, token);
+        if (negative) {
+            tokenStarts[token]--;
+        }
+        return value < 0 ? Long.MIN_VALUE : negative ? -value : value;
+    }
+
+    private void putNumber(long value) {
+        if (value == 0) {
+            out.put((byte) '0');
+            return;
+        }
+        int digits = 0;
+        for (long rest = value; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = out.position() + digits;
+        for (int i = end - 1; value != 0; i--) {
+            out.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(end);
+    }
+
+    private void reply(byte[] message) {
+        ensureOutput(message.length);
+        out.put(message);
+    }
+
+    private void ensureOutput(int bytes) {
+        if (out.remaining() < bytes) {
+            out = grow(out, out.position() + bytes);
+        }
+    }
+
+    /**
+     * Returns a buffer of at least the given capacity holding the buffer's content, which is in write mode.
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,121 @@
+package server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A worker thread of a {@link MemcachedServer}, multiplexing its share of the connections over one selector.
+ *
+ * The acceptor hands new connections over through a queue, since a channel cannot be registered with a selector
+ * while another thread is blocked selecting on it; the loop registers them itself after waking up. Everything
+ * else about a connection, reading, executing and writing, happens on this thread only.
+ */
+final class EventLoop implements Runnable {
+    private final Selector selector;
+    private final Queue<Connection> pending;
+    private volatile boolean running;
+
+    EventLoop() throws IOException {
+        this.selector = Selector.open();
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.running = true;
+    }
+
+    /**
+     * Hands a connection over to this loop. Safe to call from any thread.
+     */
+    void register(Connection connection) {
+        pending.add(connection);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                registerPending();
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                throw new IllegalStateException("Event loop failed", e);
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void registerPending() {
+        Connection connection;
+        while ((connection = pending.poll()) != null) {
+            try {
+                connection.channel().configureBlocking(false);
+                connection.attach(connection.channel().register(selector, SelectionKey.OP_READ, connection));
+            } catch (IOException e) {
+                close(connection);
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        boolean open;
+        try {
+            if (!key.isValid()) {
+                open = false;
+            } else if (key.isWritable()) {
+                open = connection.onWritable();
+            } else {
+                open = connection.onReadable();
+            }
+        } catch (IOException e) {
+            open = false;
+        }
+        if (!open) {
+            key.cancel();
+            close(connection);
+        }
+    }
+
+    private void closeAll() {
+        Connection connection;
+        while ((connection = pending.poll()) != null) {
+            close(connection);
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                close((Connection) key.attachment());
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException ignored) {
+            // Closing is best effort on the way out.
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.channel().close();
+        } catch (IOException ignored) {
+            // Nothing left to do with it.
+        }
+    }
+
+    /**
+     * Stops the loop, which closes its connections on the way out.
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
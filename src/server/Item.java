@@ -0,0 +1,45 @@
+package server;
+
+/**
+ * The layout of the values the server stores in its cache: a 12-byte header holding the client's flags and the
+ * CAS unique of the item, followed by the data. Keeping everything in one array means a hit is served by copying
+ * a single array into the output buffer, and a set allocates nothing beyond that array.
+ */
+final class Item {
+    static final int HEADER_SIZE = 12;
+
+    private Item() {
+    }
+
+    /**
+     * Creates an item from data held in a larger array.
+     */
+    static byte[] create(int flags, long cas, byte[] source, int offset, int length) {
+        byte[] item = new byte[HEADER_SIZE + length];
+        item[0] = (byte) (flags >>> 24);
+        item[1] = (byte) (flags >>> 16);
+        item[2] = (byte) (flags >>> 8);
+        item[3] = (byte) flags;
+        for (int i = 0; i < 8; i++) {
+            item[4 + i] = (byte) (cas >>> (56 - 8 * i));
+        }
+        System.arraycopy(source, offset, item, HEADER_SIZE, length);
+        return item;
+    }
+
+    static int flags(byte[] item) {
+        return (item[0] & 0xff) << 24 | (item[1] & 0xff) << 16 | (item[2] & 0xff) << 8 | (item[3] & 0xff);
+    }
+
+    static long cas(byte[] item) {
+        long cas = 0;
+        for (int i = 0; i < 8; i++) {
+            cas = cas << 8 | (item[4 + i] & 0xff);
+        }
+        return cas;
+    }
+
+    static int dataLength(byte[] item) {
+        return item.length - HEADER_SIZE;
+    }
+}
@@ -0,0 +1,340 @@
+package server;
+
+import utils.KeyGenerator;
+import utils.LatencyHistogram;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A load generator for {@link MemcachedServer}, or any server speaking the memcached text protocol.
+ *
+ * <pre>
+ * [--host localhost] [--port 11211] [--connections 4] [--duration 10] [--keys 100000] [--value-size 100]
+ * [--read-percentage 90] [--pipeline 1] [--multi-get 1] [--distribution zipfian|uniform] [--prefill true]
+ * </pre>
+ *
+ * Every connection is driven by its own thread, which sends {@code pipeline} requests in one write and then
+ * reads their replies, so the measured latency is that of a batch. A read is a get of {@code multi-get} keys,
+ * and a write a set of a value of {@code value-size} bytes; the keys are drawn from the distribution. The buffers
+ * are reused and the requests encoded in place, so that the generator measures the server rather than itself.
+ * At the end it prints the throughput in requests and keys per second, the hit ratio of the gets and the
+ * latency percentiles of the batches.
+ */
+public final class LoadGenerator {
+    private static final byte[] GET = ascii("get");
+    private static final byte[] SET = ascii("set ");
+    private static final byte[] KEY_PREFIX = ascii(" key:");
+    private static final byte[] CRLF = ascii("\r\n");
+
+    private final InetSocketAddress address;
+    private final int keys;
+    private final int valueSize;
+    private final int readPercentage;
+    private final int pipeline;
+    private final int multiGet;
+    private final boolean zipfian;
+    private final LatencyHistogram latencies;
+
+    private LoadGenerator(Map<String, String> options) {
+        this.address = new InetSocketAddress(options.getOrDefault("host", "localhost"),
+                Integer.parseInt(options.getOrDefault("port", String.valueOf(MemcachedServer.DEFAULT_PORT))));
+        this.keys = Integer.parseInt(options.getOrDefault("keys", "100000"));
+        this.valueSize = Integer.parseInt(options.getOrDefault("value-size", "100"));
+        this.readPercentage = Integer.parseInt(options.getOrDefault("read-percentage", "90"));
+        this.pipeline = Integer.parseInt(options.getOrDefault("pipeline", "1"));
+        this.multiGet = Integer.parseInt(options.getOrDefault("multi-get", "1"));
+        String distribution = options.getOrDefault("distribution", "zipfian").toLowerCase(Locale.ROOT);
+        if (!distribution.equals("zipfian") && !distribution.equals("uniform")) {
+            throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        this.zipfian = distribution.equals("zipfian");
+        this.latencies = new LatencyHistogram();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        LoadGenerator generator = new LoadGenerator(options);
+        int connections = Integer.parseInt(options.getOrDefault("connections", "4"));
+        long duration = Long.parseLong(options.getOrDefault("duration", "10"));
+        if (Boolean.parseBoolean(options.getOrDefault("prefill", "true"))) {
+            generator.prefill();
+        }
+        List<Client> clients = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long deadline = System.nanoTime() + duration * 1_000_000_000L;
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            Client client = generator.new Client(i + 1, deadline);
+            Thread thread = new Thread(client, "load-" + i);
+            clients.add(client);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long requests = 0;
+        long gets = 0;
+        long hits = 0;
+        long keysRequested = 0;
+        for (Client client : clients) {
+            if (client.failure != null) {
+                throw client.failure;
+            }
+            requests += client.requests;
+            gets += client.gets;
+            hits += client.hits;
+            keysRequested += client.keysRequested;
+        }
+        LatencyHistogram.Snapshot snapshot = generator.latencies.snapshot();
+        System.out.printf(Locale.ROOT, "requests=%d (%.0f/s), keys=%.0f/s, hitRatio=%.3f, "
+                        + "batchLatency p50=%.1fus p99=%.1fus p999=%.1fus%n",
+                requests, requests / seconds, keysRequested / seconds, gets == 0 ? 0.0 : (double) hits / gets,
+                snapshot.getP50() / 1e3, snapshot.getP99() / 1e3, snapshot.getP999() / 1e3);
+    }
+
+    /**
+     * Sets every key once, so that the hit ratio of the run reflects the server's eviction rather than cold
+     * misses.
+     */
+    private void prefill() throws IOException {
+        Client client = new Client(0, Long.MAX_VALUE);
+        try (SocketChannel channel = client.connect()) {
+            int batchSize = Math.max(1, client.out.capacity() / (valueSize + 64));
+            for (int key = 0; key < keys; ) {
+                int batch = Math.min(batchSize, keys - key);
+                client.out.clear();
+                for (int i = 0; i < batch; i++) {
+                    client.encodeSet(key + i);
+                }
+                key += batch;
+                client.exchange(channel, batch);
+            }
+        }
+    }
+
+    /**
+     * The state of one connection: its buffers, its random numbers and its counters.
+     */
+    private final class Client implements Runnable {
+        private final long deadline;
+        private final SplittableRandom random;
+        private final KeyGenerator generator;
+        private final byte[] value;
+        private final ByteBuffer out;
+        private ByteBuffer in;
+        private long requests;
+        private long gets;
+        private long hits;
+        private long keysRequested;
+        private volatile Exception failure;
+
+        Client(long seed, long deadline) {
+            this.deadline = deadline;
+            this.random = new SplittableRandom(seed);
+            this.generator = zipfian
+                    ? KeyGenerator.scrambledZipfian(keys, 0.99, seed)
+                    : KeyGenerator.uniform(keys, seed);
+            this.value = new byte[valueSize];
+            Arrays.fill(value, (byte) 'x');
+            this.out = ByteBuffer.allocate(Math.max(16 * 1024, pipeline * (valueSize + 64 * multiGet)));
+            this.in = ByteBuffer.allocate(Math.max(16 * 1024, 2 * (valueSize + 64)));
+        }
+
+        SocketChannel connect() throws IOException {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            return channel;
+        }
+
+        @Override
+        public void run() {
+            try (SocketChannel channel = connect()) {
+                while (System.nanoTime() < deadline) {
+                    out.clear();
+                    for (int i = 0; i < pipeline; i++) {
+                        if (random.nextInt(100) < readPercentage) {
+                            encodeGet();
+                        } else {
+                            encodeSet(generator.nextKey());
+                        }
+                    }
+                    long start = System.nanoTime();
+                    exchange(channel, pipeline);
+                    latencies.record(System.nanoTime() - start);
+                    requests += pipeline;
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        private void encodeGet() {
+            out.put(GET);
+            for (int i = 0; i < multiGet; i++) {
+                out.put(KEY_PREFIX);
+                putNumber(generator.nextKey());
+            }
+            out.put(CRLF);
+            gets += multiGet;
+            keysRequested += multiGet;
+        }
+
+        void encodeSet(long key) {
+            out.put(SET);
+            out.put(KEY_PREFIX, 1, KEY_PREFIX.length - 1);
+            putNumber(key);
+            out.put((byte) ' ');
+            out.put((byte) '0');
+            out.put((byte) ' ');
+            out.put((byte) '0');
+            out.put((byte) ' ');
+            putNumber(valueSize);
+            out.put(CRLF);
+            out.put(value);
+            out.put(CRLF);
+            keysRequested++;
+        }
+
+        private void putNumber(long number) {
+            int digits = 1;
+            for (long rest = number / 10; rest != 0; rest /= 10) {
+                digits++;
+            }
+            int end = out.position() + digits;
+            for (int i = end - 1; i >= out.position(); i--) {
+                out.put(i, (byte) ('0' + number % 10));
+                number /= 10;
+            }
+            out.position(end);
+        }
+
+        /**
+         * Sends the encoded requests and reads the replies until every request is answered: a get by its END
+         * line, after any number of VALUE blocks, and a set by its single reply line.
+         */
+        void exchange(SocketChannel channel, int replies) throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            in.clear();
+            int position = 0;
+            while (replies > 0) {
+                int newline = indexOf(in.array(), position, in.position());
+                if (newline < 0) {
+                    read(channel, position);
+                    position = 0;
+                    continue;
+                }
+                byte[] bytes = in.array();
+                if (startsWith(bytes, position, "VALUE ")) {
+                    int dataEnd = newline + 1 + valueLength(bytes, position, newline) + 2;
+                    if (dataEnd > in.position()) {
+                        if (dataEnd - position > in.capacity()) {
+                            ByteBuffer grown = ByteBuffer.allocate(2 * (dataEnd - position));
+                            in.flip().position(position);
+                            grown.put(in);
+                            in = grown;
+                            position = 0;
+                        }
+                        read(channel, position);
+                        position = 0;
+                        continue;
+                    }
+                    hits++;
+                    position = dataEnd;
+                } else if (startsWith(bytes, position, "END") || startsWith(bytes, position, "STORED")) {
+                    replies--;
+                    position = newline + 1;
+                } else {
+                    throw new IOException("Unexpected reply: "
+                            + new String(bytes, position, newline - position, StandardCharsets.ISO_8859_1).trim());
+                }
+            }
+        }
+
+        /**
+         * Drops the consumed part of the input and reads more.
+         */
+        private void read(SocketChannel channel, int consumed) throws IOException {
+            in.flip().position(consumed);
+            in.compact();
+            if (!in.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                grown.put(in);
+                in = grown;
+            }
+            if (channel.read(in) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+    }
+
+    /**
+     * Returns the byte count of a VALUE line, its fourth token.
+     */
+    private static int valueLength(byte[] bytes, int start, int end) {
+        int spaces = 0;
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == ' ') {
+                spaces++;
+            } else if (spaces == 3 && bytes[i] >= '0' && bytes[i] <= '9') {
+                length = length * 10 + bytes[i] - '0';
+            }
+        }
+        return length;
+    }
+
+    private static boolean startsWith(byte[] bytes, int start, String prefix) {
+        if (start + prefix.length() > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,586 @@
+package server;
+
+import Interface.Cache;
+import core.CacheMonitor;
+import utils.Maps;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Cache} stored in a remote memcached server, such as a {@link MemcachedServer}, so that it can serve as
+ * a remote node of a {@link core.PartitionedCache}.
+ *
+ * The cache holds one connection, opened on first use and reopened after a failure, and its operations take
+ * turns on it. Bulk operations are pipelined: a getAll sends multi-key gets of 100 keys, and putAll and removeAll
+ * send their commands before reading the replies, so they cost one round trip per thousand keys. Bounding the
+ * commands in flight keeps both ends from blocking on full socket buffers while the other is still writing. The
+ * memcached protocol does not return the value of a deleted key, so {@link #remove(Object)} pipelines a get in
+ * front of the delete; another client writing the key in between could make the returned value stale.
+ *
+ * Keys must be 1 to 250 characters of ISO-8859-1 without spaces or control characters. Time-to-lives are
+ * rounded up to whole seconds. The statistics count the hits and misses seen by this client and the latencies of
+ * its round trips; the size of the remote cache is not known and is reported as 0. Network failures are thrown
+ * as {@link UncheckedIOException}, and error replies of the server as {@link IllegalStateException}.
+ *
+ * Connecting, and every wait for the server to accept or send more bytes, is bounded by a timeout, 5 seconds by
+ * default, so that a hung server fails the operation instead of blocking the caller forever. A timed-out
+ * connection is dropped, as its late replies could no longer be matched with their commands.
+ */
+public final class MemcachedCache implements Cache<String, byte[]>, AutoCloseable {
+    private static final int MAX_KEYS_PER_GET = 100;
+    private static final int MAX_PIPELINED_GETS = 10;
+    private static final int MAX_PIPELINED_COMMANDS = 1000;
+    private static final long MAX_RELATIVE_EXPIRATION = 60L * 60 * 24 * 30;
+
+    /** The default timeout of the connection and of every wait for the server. */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final byte[] GET = ascii("get");
+    private static final byte[] SET = ascii("set ");
+    private static final byte[] DELETE = ascii("delete ");
+    private static final byte[] FLUSH_ALL = ascii("flush_all\r\n");
+    private static final byte[] CRLF = ascii("\r\n");
+
+    private final InetSocketAddress address;
+    private final long timeoutMillis;
+    private final ReentrantLock lock;
+    private final CacheMonitor<String> monitor;
+    private SocketChannel channel;
+    private Selector selector;
+    private ByteBuffer out;
+    private ByteBuffer in;
+
+    /**
+     * Constructs a cache stored in the server at the given address. No connection is made until the first
+     * operation.
+     *
+     * @param address the address of the memcached server
+     */
+    public MemcachedCache(InetSocketAddress address) {
+        this(address, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Constructs a cache stored in the server at the given address, failing an operation once connecting or
+     * waiting for the server takes longer than the timeout. No connection is made until the first operation.
+     *
+     * @param address the address of the memcached server
+     * @param timeout the timeout of the connection and of every wait for the server
+     */
+    public MemcachedCache(InetSocketAddress address, Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout should be positive");
+        }
+        this.address = address;
+        this.timeoutMillis = Math.max(1, timeout.toMillis());
+        this.lock = new ReentrantLock();
+        this.monitor = new CacheMonitor<>();
+        this.out = ByteBuffer.allocate(16 * 1024);
+        this.in = ByteBuffer.allocate(16 * 1024);
+    }
+
+    @Override
+    public void put(String key, byte[] value) {
+        store(key, value, 0);
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL value cannot be negative");
+        }
+        long seconds = ttl.getSeconds() + (ttl.getNano() > 0 ? 1 : 0);
+        if (seconds == 0) {
+            remove(key);
+            return;
+        }
+        store(key, value, seconds <= MAX_RELATIVE_EXPIRATION
+                ? seconds
+                : System.currentTimeMillis() / 1000 + seconds);
+    }
+
+    private void store(String key, byte[] value, long expiration) {
+        checkKey(key);
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            out.clear();
+            encodeSet(key, value, expiration);
+            send();
+            expectReply("STORED");
+        } finally {
+            lock.unlock();
+        }
+        monitor.onPut(key);
+        monitor.recordPut(start);
+    }
+
+    @Override
+    public byte[] get(String key) {
+        checkKey(key);
+        long start = monitor.startTimer();
+        byte[] value = fetch(key);
+        if (value == null) {
+            monitor.onMiss(key);
+        } else {
+            monitor.onHit(key);
+        }
+        monitor.recordGet(start);
+        return value;
+    }
+
+    /**
+     * Fetches the value like {@link #get(String)}, without counting the hit or miss in this client's statistics;
+     * the server still counts the request as a get.
+     */
+    @Override
+    public byte[] peek(String key) {
+        checkKey(key);
+        return fetch(key);
+    }
+
+    private byte[] fetch(String key) {
+        lock.lock();
+        try {
+            out.clear();
+            encodeGet(key);
+            send();
+            return readValues(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] remove(String key) {
+        checkKey(key);
+        lock.lock();
+        try {
+            out.clear();
+            encodeGet(key);
+            encodeDelete(key);
+            send();
+            byte[] value = readValues(null);
+            String reply = readLine();
+            if (!reply.equals("DELETED") && !reply.equals("NOT_FOUND")) {
+                throw unexpected(reply);
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> getAll(Collection<? extends String> keys) {
+        for (String key : keys) {
+            checkKey(key);
+        }
+        long start = monitor.startTimer();
+        Map<String, byte[]> result = Maps.newHashMapWithExpectedSize(keys.size());
+        List<String> batch = new ArrayList<>(Math.min(keys.size(), MAX_KEYS_PER_GET));
+        lock.lock();
+        try {
+            out.clear();
+            int gets = 0;
+            int remaining = keys.size();
+            for (String key : keys) {
+                batch.add(key);
+                remaining--;
+                if (batch.size() == MAX_KEYS_PER_GET || remaining == 0) {
+                    encodeGet(batch);
+                    batch.clear();
+                    gets++;
+                }
+                if (gets == MAX_PIPELINED_GETS || (remaining == 0 && gets > 0)) {
+                    send();
+                    for (int i = 0; i < gets; i++) {
+                        readValues(result);
+                    }
+                    out.clear();
+                    gets = 0;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            if (i < result.size()) {
+                monitor.onHit(null);
+            } else {
+                monitor.onMiss(null);
+            }
+        }
+        monitor.recordGet(start);
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends byte[]> entries) {
+        for (String key : entries.keySet()) {
+            checkKey(key);
+        }
+        long start = monitor.startTimer();
+        lock.lock();
+        try {
+            out.clear();
+            int pending = 0;
+            int remaining = entries.size();
+            for (Map.Entry<? extends String, ? extends byte[]> entry : entries.entrySet()) {
+                encodeSet(entry.getKey(), entry.getValue(), 0);
+                pending++;
+                remaining--;
+                if (pending == MAX_PIPELINED_COMMANDS || remaining == 0) {
+                    send();
+                    for (; pending > 0; pending--) {
+                        expectReply("STORED");
+                    }
+                    out.clear();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (String key : entries.keySet()) {
+            monitor.onPut(key);
+        }
+        monitor.recordPut(start);
+    }
+
+    @Override
+    public void removeAll(Collection<? extends String> keys) {
+        for (String key : keys) {
+            checkKey(key);
+        }
+        lock.lock();
+        try {
+            out.clear();
+            int pending = 0;
+            int remaining = keys.size();
+            for (String key : keys) {
+                encodeDelete(key);
+                pending++;
+                remaining--;
+                if (pending == MAX_PIPELINED_COMMANDS || remaining == 0) {
+                    send();
+                    for (; pending > 0; pending--) {
+                        String reply = readLine();
+                        if (!reply.equals("DELETED") && !reply.equals("NOT_FOUND")) {
+                            throw unexpected(reply);
+                        }
+                    }
+                    out.clear();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every item of the remote server, including those written by other clients.
+     */
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            out.clear();
+            ensureOutput(FLUSH_ALL.length);
+            out.put(FLUSH_ALL);
+            send();
+            expectReply("OK");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheMonitor.CacheStats getStats() {
+        return monitor.getStats();
+    }
+
+    /**
+     * Closes the connection. The cache can still be used afterwards; it then opens a new one.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            disconnect();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void encodeGet(String key) {
+        ensureOutput(GET.length + key.length() + 3);
+        out.put(GET);
+        out.put((byte) ' ');
+        putKey(key);
+        out.put(CRLF);
+    }
+
+    private void encodeGet(List<String> keys) {
+        int length = GET.length + 2;
+        for (String key : keys) {
+            length += key.length() + 1;
+        }
+        ensureOutput(length);
+        out.put(GET);
+        for (String key : keys) {
+            out.put((byte) ' ');
+            putKey(key);
+        }
+        out.put(CRLF);
+    }
+
+    private void encodeSet(String key, byte[] value, long expiration) {
+        ensureOutput(SET.length + key.length() + 3 * 21 + value.length + 4);
+        out.put(SET);
+        putKey(key);
+        out.put((byte) ' ');
+        out.put((byte) '0');
+        out.put((byte) ' ');
+        putNumber(expiration);
+        out.put((byte) ' ');
+        putNumber(value.length);
+        out.put(CRLF);
+        out.put(value);
+        out.put(CRLF);
+    }
+
+    private void encodeDelete(String key) {
+        ensureOutput(DELETE.length + key.length() + 2);
+        out.put(DELETE);
+        putKey(key);
+        out.put(CRLF);
+    }
+
+    private void putKey(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            out.put((byte) key.charAt(i));
+        }
+    }
+
+    private void putNumber(long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = out.position() + digits;
+        for (int i = end - 1; i >= out.position(); i--) {
+            out.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(end);
+    }
+
+    private void ensureOutput(int bytes) {
+        if (out.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(out.position() + bytes, out.capacity() * 2));
+            out.flip();
+            grown.put(out);
+            out = grown;
+        }
+    }
+
+    /**
+     * Writes the encoded commands, connecting first if needed, and prepares the input for the replies.
+     */
+    private void send() {
+        try {
+            if (channel == null) {
+                connect();
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                if (channel.write(out) == 0) {
+                    await(SelectionKey.OP_WRITE);
+                }
+            }
+            in.clear().flip();
+        } catch (IOException e) {
+            disconnect();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens the connection in blocking mode to bound the connect by the timeout, then switches it to
+     * non-blocking mode so that the reads and writes can wait on a selector with the timeout.
+     */
+    private void connect() throws IOException {
+        channel = SocketChannel.open();
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.socket().connect(address, (int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        channel.register(selector, 0);
+    }
+
+    /**
+     * Waits until the connection is ready for the given operation, failing once the timeout elapses.
+     */
+    private void await(int operation) throws IOException {
+        SelectionKey key = channel.keyFor(selector);
+        key.interestOps(operation);
+        int ready = selector.select(timeoutMillis);
+        selector.selectedKeys().clear();
+        key.interestOps(0);
+        if (ready == 0) {
+            throw new SocketTimeoutException("No reply from " + address + " within " + timeoutMillis + " ms");
+        }
+    }
+
+    /**
+     * Reads the VALUE blocks of one get up to its END line, adding them to the result if there is one.
+     *
+     * @return the value of the last block, or null if there was none
+     */
+    private byte[] readValues(Map<String, byte[]> result) {
+        byte[] value = null;
+        while (true) {
+            String line = readLine();
+            if (line.equals("END")) {
+                return value;
+            }
+            String[] tokens = line.split(" ");
+            if (tokens.length < 4 || !tokens[0].equals("VALUE")) {
+                throw unexpected(line);
+            }
+            int length;
+            try {
+                length = Integer.parseInt(tokens[3]);
+            } catch (NumberFormatException e) {
+                throw unexpected(line);
+            }
+            if (length < 0) {
+                throw unexpected(line);
+            }
+            value = readData(length);
+            if (result != null) {
+                result.put(tokens[1], value);
+            }
+        }
+    }
+
+    private void expectReply(String expected) {
+        String reply = readLine();
+        if (!reply.equals(expected)) {
+            throw unexpected(reply);
+        }
+    }
+
+    /**
+     * Drops the connection, whose remaining replies can no longer be matched with their commands, and returns
+     * the exception to throw.
+     */
+    private IllegalStateException unexpected(String reply) {
+        disconnect();
+        return new IllegalStateException("Unexpected reply: " + reply);
+    }
+
+    private String readLine() {
+        int scanned = in.position();
+        while (true) {
+            for (int i = scanned; i < in.limit(); i++) {
+                if (in.get(i) == '\n') {
+                    int end = i > in.position() && in.get(i - 1) == '\r' ? i - 1 : i;
+                    String line = new String(in.array(), in.position(), end - in.position(),
+                            StandardCharsets.ISO_8859_1);
+                    in.position(i + 1);
+                    return line;
+                }
+            }
+            scanned = in.remaining();
+            fill(0);
+        }
+    }
+
+    private byte[] readData(int length) {
+        while (in.remaining() < length + 2) {
+            fill(length + 2);
+        }
+        byte[] data = new byte[length];
+        in.get(data);
+        in.position(in.position() + 2);
+        return data;
+    }
+
+    /**
+     * Reads more of the replies, making room for at least {@code needed} unread bytes.
+     */
+    private void fill(int needed) {
+        in.compact();
+        if (!in.hasRemaining() || in.capacity() < needed) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(in.capacity() * 2, needed));
+            in.flip();
+            grown.put(in);
+            in = grown;
+        }
+        try {
+            int read;
+            while ((read = channel.read(in)) == 0) {
+                await(SelectionKey.OP_READ);
+            }
+            if (read < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        } catch (IOException e) {
+            disconnect();
+            throw new UncheckedIOException(e);
+        }
+        in.flip();
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // The connection is dropped either way.
+            }
+            channel = null;
+        }
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Nothing is registered with it anymore.
+            }
+            selector = null;
+        }
+    }
+
+    private static void checkKey(String key) {
+        if (key.isEmpty() || key.length() > Connection.MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key should be 1 to 250 characters long: " + key);
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c <= ' ' || c == 0x7F || c > 0xFF) {
+                throw new IllegalArgumentException("Invalid character in key: " + key);
+            }
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,211 @@
+package server;
+
+import Interface.Cache;
+import core.LRUCache;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A network server exposing a {@link Cache} through the text protocol of memcached, so that any memcached client
+ * or tool can use it.
+ *
+ * <pre>
+ * get|gets key [key ...]
+ * set key flags exptime bytes [noreply]
+ * delete key [noreply]
+ * flush_all [noreply]
+ * quit
+ * </pre>
+ *
+ * Keys are up to 250 bytes, and are mapped to strings one byte per character. The stored values are byte arrays
+ * holding the client's flags and a CAS unique in front of the data; a {@link core.CacheMonitor.CacheStats} of
+ * the cache therefore counts the hits and misses of the clients. Expiration times follow memcached: 0 for none,
+ * seconds up to 30 days, and an absolute Unix time beyond that.
+ *
+ * The threading model is that of memcached: an acceptor thread hands the connections round-robin to a fixed
+ * number of worker threads, each multiplexing its connections over a selector. A worker executes every complete
+ * command of a read before writing the replies, so clients that pipeline requests get them answered in batches,
+ * and the buffers of a connection are reused from one request to the next. When accepting fails, typically
+ * because the process ran out of file descriptors, the acceptor backs off, up to a second between attempts,
+ * instead of retrying in a busy loop.
+ */
+public final class MemcachedServer implements AutoCloseable {
+    /** The port memcached listens on by default. */
+    public static final int DEFAULT_PORT = 11211;
+    /** The largest value accepted by default, as in memcached. */
+    public static final int DEFAULT_MAX_ITEM_SIZE = 1024 * 1024;
+
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private final Cache<String, byte[]> cache;
+    private final InetSocketAddress address;
+    private final int maxItemSize;
+    private final EventLoop[] workers;
+    private final AtomicLong cas;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    /**
+     * Constructs a server for the cache on the given port of every interface, with one worker per processor.
+     *
+     * @param cache the cache holding the items
+     * @param port  the port to listen on, or 0 for any free port
+     */
+    public MemcachedServer(Cache<String, byte[]> cache, int port) {
+        this(cache, new InetSocketAddress(port), Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_ITEM_SIZE);
+    }
+
+    /**
+     * Constructs a server for the cache.
+     *
+     * @param cache       the cache holding the items
+     * @param address     the address to listen on
+     * @param workers     the number of worker threads serving the connections
+     * @param maxItemSize the largest value accepted, in bytes
+     */
+    public MemcachedServer(Cache<String, byte[]> cache, InetSocketAddress address, int workers, int maxItemSize) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Workers should be greater than 0.");
+        }
+        if (maxItemSize <= 0) {
+            throw new IllegalArgumentException("Maximum item size should be greater than 0.");
+        }
+        this.cache = cache;
+        this.address = address;
+        this.maxItemSize = maxItemSize;
+        this.workers = new EventLoop[workers];
+        this.cas = new AtomicLong();
+    }
+
+    /**
+     * Binds the server and starts its threads.
+     *
+     * @return this server
+     * @throws IOException if the address cannot be bound
+     */
+    public synchronized MemcachedServer start() throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        running = true;
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new EventLoop();
+            Thread thread = new Thread(workers[i], "memcached-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        acceptor = new Thread(this::accept, "memcached-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    private void accept() {
+        int next = 0;
+        long backoffMillis = 0;
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (!running) {
+                    return;
+                }
+                backoffMillis = Math.min(Math.max(2 * backoffMillis, 10), MAX_ACCEPT_BACKOFF_MILLIS);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            backoffMillis = 0;
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException ignored) {
+                // Only a latency hint.
+            }
+            workers[next].register(new Connection(channel, cache, this));
+            next = (next + 1) % workers.length;
+        }
+    }
+
+    /**
+     * Returns the port the server listens on, which is the one picked by the system if it was started on port 0.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    long nextCas() {
+        return cas.incrementAndGet();
+    }
+
+    int maxItemSize() {
+        return maxItemSize;
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (serverChannel == null || !running) {
+            return;
+        }
+        running = false;
+        serverChannel.close();
+        acceptor.interrupt();
+        for (EventLoop worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    /**
+     * Runs a server over an {@link LRUCache} bounded by the memory its keys and values take.
+     *
+     * <pre>
+     * [--port 11211] [--workers N] [--maximum-bytes 67108864] [--max-item-size 1048576]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = parseOptions(args);
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(DEFAULT_PORT)));
+        int workers = Integer.parseInt(options.getOrDefault("workers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long maximumBytes = Long.parseLong(options.getOrDefault("maximum-bytes", String.valueOf(64L << 20)));
+        int maxItemSize = Integer.parseInt(options.getOrDefault("max-item-size",
+                String.valueOf(DEFAULT_MAX_ITEM_SIZE)));
+        LRUCache<String, byte[]> cache = LRUCache.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((String key, byte[] item) -> key.length() + item.length)
+                .build();
+        MemcachedServer server = new MemcachedServer(cache, new InetSocketAddress(port), workers, maxItemSize)
+                .start();
+        System.err.printf("Listening on port %d with %d workers%n", server.getPort(), workers);
+        server.acceptor.join();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,74 @@
+package simulator;
+
+import Interface.Cache;
+import core.ARCCache;
+import core.ClockCache;
+import core.ConcurrentLRUCache;
+import core.FIFOEvictionPolicy;
+import core.LFUCache;
+import core.LRUCache;
+import core.PolicyCache;
+
+/**
+ * The eviction policies the simulator can replay a trace against, each backed by the cache implementing it, or
+ * by a {@link PolicyCache} for the policies that only exist as an {@link Interface.EvictionPolicy}.
+ * Statistics are turned off where the cache allows it, since the simulator counts hits itself.
+ */
+public enum Policy {
+    LRU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return LRUCache.newBuilder().maximumSize(maximumSize).recordStats(false).build();
+        }
+    },
+    LRU_TINYLFU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return LRUCache.newBuilder().maximumSize(maximumSize).tinyLfuAdmission(true).recordStats(false).build();
+        }
+    },
+    LFU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return LFUCache.newBuilder().maximumSize(maximumSize).recordStats(false).build();
+        }
+    },
+    LFU_TINYLFU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return LFUCache.newBuilder().maximumSize(maximumSize).tinyLfuAdmission(true).recordStats(false).build();
+        }
+    },
+    SEGMENTED_LRU {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new ConcurrentLRUCache<>(maximumSize);
+        }
+    },
+    FIFO {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new PolicyCache<>(maximumSize, new FIFOEvictionPolicy<>());
+        }
+    },
+    CLOCK {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new ClockCache<>(maximumSize);
+        }
+    },
+    ARC {
+        @Override
+        Cache<Long, Long> create(int maximumSize) {
+            return new ARCCache<>(maximumSize);
+        }
+    };
+
+    /**
+     * Returns a new, empty cache applying this policy.
+     *
+     * @param maximumSize the maximum number of entries
+     * @return the cache
+     */
+    abstract Cache<Long, Long> create(int maximumSize);
+}
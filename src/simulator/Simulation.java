@@ -0,0 +1,194 @@
+package simulator;
+
+import Interface.Cache;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Replays a trace against every combination of a set of policies and cache sizes, and collects their hit ratios.
+ *
+ * The trace is read once, one chunk at a time. Every chunk is boxed once and then replayed by one fork-join task
+ * per policy and size, all running in parallel; the caches keep their contents from one chunk to the next. Only
+ * a chunk of the trace is ever held in memory, so the length of the trace is not limited by the heap. An access
+ * is a hit if the cache returns a value for the key; on a miss the key is put into the cache.
+ */
+public final class Simulation {
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final List<Run> runs;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Constructs a simulation of every policy at every size, running on the common fork-join pool.
+     *
+     * @param policies the policies to compare
+     * @param sizes    the cache sizes to simulate
+     */
+    public Simulation(List<Policy> policies, List<Integer> sizes) {
+        this(policies, sizes, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a simulation of every policy at every size.
+     *
+     * @param policies  the policies to compare
+     * @param sizes     the cache sizes to simulate
+     * @param pool      the pool running the replay tasks
+     * @param chunkSize the number of accesses read and replayed at a time
+     */
+    public Simulation(List<Policy> policies, List<Integer> sizes, ForkJoinPool pool, int chunkSize) {
+        if (policies.isEmpty() || sizes.isEmpty()) {
+            throw new IllegalArgumentException("At least one policy and one size are required.");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be greater than 0.");
+        }
+        this.runs = new ArrayList<>();
+        for (Policy policy : policies) {
+            for (int size : sizes) {
+                runs.add(new Run(policy, size));
+            }
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Replays the whole trace. The trace is not closed.
+     *
+     * @param trace the trace to replay
+     * @return the number of accesses replayed
+     * @throws IOException if the trace cannot be read
+     */
+    public long replay(TraceReader trace) throws IOException {
+        long[] keys = new long[chunkSize];
+        Long[] boxed = new Long[chunkSize];
+        long total = 0;
+        int count;
+        while ((count = trace.read(keys)) > 0) {
+            for (int i = 0; i < count; i++) {
+                boxed[i] = keys[i];
+            }
+            List<ReplayTask> tasks = new ArrayList<>(runs.size());
+            for (Run run : runs) {
+                tasks.add(new ReplayTask(run, boxed, count));
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the results, ordered by policy and then by size.
+     *
+     * @return the result of every policy and size
+     */
+    public List<Run> results() {
+        return Collections.unmodifiableList(runs);
+    }
+
+    /**
+     * Writes the results as CSV, with a header line and one line per policy and size, so that the lines of a
+     * policy form its hit-ratio curve.
+     *
+     * @param out the writer receiving the CSV
+     * @throws IOException if the writer fails
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("policy,size,accesses,hits,misses,hit_ratio\n");
+        for (Run run : runs) {
+            out.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.6f%n", run.policy, run.size,
+                    run.hits + run.misses, run.hits, run.misses, run.hitRatio()));
+        }
+        out.flush();
+    }
+
+    /**
+     * The cache of one policy at one size, and the hits and misses it has seen.
+     */
+    public static final class Run {
+        private final Policy policy;
+        private final int size;
+        private final Cache<Long, Long> cache;
+        private long hits;
+        private long misses;
+
+        Run(Policy policy, int size) {
+            this.policy = policy;
+            this.size = size;
+            this.cache = policy.create(size);
+        }
+
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the fraction of the accesses that were hits, or 0 before any access.
+         *
+         * @return the hit ratio, between 0 and 1
+         */
+        public double hitRatio() {
+            long accesses = hits + misses;
+            return accesses == 0 ? 0.0 : (double) hits / accesses;
+        }
+    }
+
+    /**
+     * Replays one chunk of the trace against one run. Tasks of the same run never overlap, since every chunk
+     * is finished before the next one is read.
+     */
+    private static final class ReplayTask extends RecursiveAction {
+        private final Run run;
+        private final Long[] keys;
+        private final int count;
+
+        ReplayTask(Run run, Long[] keys, int count) {
+            this.run = run;
+            this.keys = keys;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            Cache<Long, Long> cache = run.cache;
+            long hits = 0;
+            for (int i = 0; i < count; i++) {
+                Long key = keys[i];
+                if (cache.get(key) != null) {
+                    hits++;
+                } else {
+                    cache.put(key, key);
+                }
+            }
+            run.hits += hits;
+            run.misses += count - hits;
+        }
+    }
+}
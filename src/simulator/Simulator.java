@@ -0,0 +1,166 @@
+package simulator;
+
+import utils.KeyGenerator;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The command line of the hit-ratio simulator.
+ *
+ * <pre>
+ * simulate --trace FILE [--format text|binary] [--policies LRU,LFU,...] --sizes 1000,10000,... [--output FILE]
+ * simulate --synthetic zipfian|scrambled_zipfian|uniform --items N --events N [--exponent 0.99] [--seed N] ...
+ * generate --synthetic zipfian|scrambled_zipfian|uniform --items N --events N [--exponent 0.99] [--seed N] --output FILE
+ * </pre>
+ *
+ * {@code simulate} replays the trace against every policy at every size and prints the CSV of the hit ratios,
+ * or writes it to the output file. {@code generate} writes a synthetic trace in the binary format.
+ */
+public final class Simulator {
+
+    private Simulator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Map<String, String> options = parseOptions(args);
+        switch (args[0]) {
+            case "simulate":
+                simulate(options);
+                break;
+            case "generate":
+                generate(options);
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void simulate(Map<String, String> options) throws IOException {
+        List<Policy> policies = new ArrayList<>();
+        for (String name : options.getOrDefault("policies", joinPolicies()).split(",")) {
+            policies.add(Policy.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        }
+        List<Integer> sizes = new ArrayList<>();
+        for (String size : required(options, "sizes").split(",")) {
+            sizes.add(Integer.parseInt(size.trim()));
+        }
+        Simulation simulation = new Simulation(policies, sizes);
+        long start = System.nanoTime();
+        long accesses;
+        try (TraceReader trace = openTrace(options)) {
+            accesses = simulation.replay(trace);
+        }
+        System.err.printf(Locale.ROOT, "Replayed %d accesses in %.1f s%n", accesses,
+                (System.nanoTime() - start) / 1e9);
+        String output = options.get("output");
+        if (output == null) {
+            simulation.writeCsv(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        } else {
+            try (Writer out = Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+                simulation.writeCsv(out);
+            }
+        }
+    }
+
+    private static void generate(Map<String, String> options) throws IOException {
+        Path output = Paths.get(required(options, "output"));
+        try (TraceReader trace = synthetic(options)) {
+            long written = TraceWriter.write(trace, output);
+            System.err.printf(Locale.ROOT, "Wrote %d accesses to %s%n", written, output);
+        }
+    }
+
+    private static TraceReader openTrace(Map<String, String> options) throws IOException {
+        if (options.containsKey("synthetic")) {
+            return synthetic(options);
+        }
+        Path file = Paths.get(required(options, "trace"));
+        String format = options.getOrDefault("format", "text");
+        switch (format) {
+            case "text":
+                return TraceReader.text(file);
+            case "binary":
+                return TraceReader.binary(file);
+            default:
+                throw new IllegalArgumentException("Unknown trace format: " + format);
+        }
+    }
+
+    private static TraceReader synthetic(Map<String, String> options) {
+        long items = Long.parseLong(required(options, "items"));
+        long events = Long.parseLong(required(options, "events"));
+        double exponent = Double.parseDouble(options.getOrDefault("exponent", "0.99"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        String distribution = required(options, "synthetic").toLowerCase(Locale.ROOT);
+        KeyGenerator generator;
+        switch (distribution) {
+            case "zipfian":
+                generator = KeyGenerator.zipfian(items, exponent, seed);
+                break;
+            case "scrambled_zipfian":
+                generator = KeyGenerator.scrambledZipfian(items, exponent, seed);
+                break;
+            case "uniform":
+                generator = KeyGenerator.uniform(items, seed);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        return TraceReader.synthetic(generator, events);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing --" + name);
+        }
+        return value;
+    }
+
+    private static String joinPolicies() {
+        StringBuilder names = new StringBuilder();
+        for (Policy policy : Policy.values()) {
+            if (names.length() > 0) {
+                names.append(',');
+            }
+            names.append(policy.name());
+        }
+        return names.toString();
+    }
+
+    private static void usage() {
+        System.err.println("Usage:");
+        System.err.println("  simulate --trace FILE [--format text|binary] [--policies LRU,LFU,...] "
+                + "--sizes 1000,10000 [--output FILE]");
+        System.err.println("  simulate --synthetic zipfian|scrambled_zipfian|uniform --items N --events N "
+                + "[--exponent 0.99] [--seed N] --sizes ...");
+        System.err.println("  generate --synthetic zipfian|scrambled_zipfian|uniform --items N --events N "
+                + "[--exponent 0.99] [--seed N] --output FILE");
+    }
+}
@@ -0,0 +1,150 @@
+package simulator;
+
+import utils.KeyGenerator;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A stream of the keys of an access trace, read in chunks so that traces much larger than the heap can be
+ * replayed. Keys are primitive {@code long}s; traces of other keys are mapped to longs when they are read.
+ */
+public interface TraceReader extends Closeable {
+
+    /**
+     * Reads the next keys of the trace into the buffer.
+     *
+     * @param buffer the array receiving the keys, from index 0
+     * @return the number of keys read, or 0 at the end of the trace
+     * @throws IOException if the trace cannot be read
+     */
+    int read(long[] buffer) throws IOException;
+
+    /**
+     * Opens a text trace with one access per line. The first whitespace-separated token of the line is the key:
+     * a decimal number is used as it is, and any other token is hashed. Blank lines and lines starting with
+     * {@code #} are skipped.
+     *
+     * @param file the trace file
+     * @return a reader of the trace
+     * @throws IOException if the file cannot be opened
+     */
+    static TraceReader text(Path file) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        return new TraceReader() {
+            @Override
+            public int read(long[] buffer) throws IOException {
+                int count = 0;
+                String line;
+                while (count < buffer.length && (line = reader.readLine()) != null) {
+                    String token = firstToken(line);
+                    if (!token.isEmpty() && token.charAt(0) != '#') {
+                        buffer[count++] = parseKey(token);
+                    }
+                }
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * Opens a binary trace: a sequence of keys written as eight big-endian bytes each, with no header, as
+     * written by {@link TraceWriter}.
+     *
+     * @param file the trace file
+     * @return a reader of the trace
+     * @throws IOException if the file cannot be opened
+     */
+    static TraceReader binary(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(1 << 16);
+        bytes.flip();
+        return new TraceReader() {
+            @Override
+            public int read(long[] buffer) throws IOException {
+                int count = 0;
+                while (count < buffer.length) {
+                    if (bytes.remaining() < Long.BYTES) {
+                        bytes.compact();
+                        int read = channel.read(bytes);
+                        bytes.flip();
+                        if (read < 0) {
+                            break;
+                        }
+                        continue;
+                    }
+                    buffer[count++] = bytes.getLong();
+                }
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Returns a synthetic trace of the given number of keys drawn from a generator.
+     *
+     * @param generator the source of the keys
+     * @param events    the number of accesses in the trace
+     * @return a reader of the trace
+     */
+    static TraceReader synthetic(KeyGenerator generator, long events) {
+        return new TraceReader() {
+            private long remaining = events;
+
+            @Override
+            public int read(long[] buffer) {
+                int count = (int) Math.min(buffer.length, remaining);
+                for (int i = 0; i < count; i++) {
+                    buffer[i] = generator.nextKey();
+                }
+                remaining -= count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static String firstToken(String line) {
+        int start = 0;
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+            end++;
+        }
+        return line.substring(start, end);
+    }
+
+    private static long parseKey(String token) {
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < token.length(); i++) {
+                hash ^= token.charAt(i);
+                hash *= 0x100000001B3L;
+            }
+            return hash;
+        }
+    }
+}
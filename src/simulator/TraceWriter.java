@@ -0,0 +1,48 @@
+package simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes traces in the binary format of {@link TraceReader#binary(Path)}, for instance to save a synthetic
+ * trace once and replay it many times.
+ */
+public final class TraceWriter {
+    private static final int CHUNK = 1 << 16;
+
+    private TraceWriter() {
+    }
+
+    /**
+     * Copies every key of the trace to the file, replacing it if it exists.
+     *
+     * @param trace the trace to copy; it is not closed
+     * @param file  the file to write
+     * @return the number of keys written
+     * @throws IOException if the trace cannot be read or the file cannot be written
+     */
+    public static long write(TraceReader trace, Path file) throws IOException {
+        long[] keys = new long[CHUNK];
+        ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK * Long.BYTES);
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            int count;
+            while ((count = trace.read(keys)) > 0) {
+                bytes.clear();
+                for (int i = 0; i < count; i++) {
+                    bytes.putLong(keys[i]);
+                }
+                bytes.flip();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                total += count;
+            }
+        }
+        return total;
+    }
+}
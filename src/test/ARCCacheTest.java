@@ -0,0 +1,73 @@
+package test;
+
+import core.ARCCache;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ARCCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsedOfOneTimeKeys() {
+        ARCCache<Integer, String> cache = new ARCCache<>(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+        assertEquals("three", cache.get(3));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void testScanDoesNotFlushFrequentKeys() {
+        ARCCache<Integer, Integer> cache = new ARCCache<>(10);
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, i);
+            cache.get(i);
+        }
+        for (int i = 100; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), cache.get(i));
+        }
+    }
+
+    @Test
+    public void testGhostHitsMoveTheTarget() {
+        ARCCache<Integer, Integer> cache = new ARCCache<>(2);
+        cache.put(1, 1);
+        cache.get(1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+        assertEquals(0, cache.getTargetRecencySize());
+        // Key 2 was evicted from the recency list, so its return asks for a larger one.
+        cache.put(2, 2);
+        assertEquals(1, cache.getTargetRecencySize());
+        assertEquals(1, cache.getStats().getAdaptationParameter());
+        // Making room for it evicted the frequent key 1, whose return shrinks the recency list again.
+        cache.put(1, 1);
+        assertEquals(0, cache.getTargetRecencySize());
+        assertEquals(Integer.valueOf(2), cache.get(2));
+        assertNull(cache.get(3));
+    }
+
+    @Test
+    public void testExpiredEntryDoesNotBecomeAGhost() {
+        AtomicLong time = new AtomicLong();
+        ARCCache<Integer, String> cache = new ARCCache<>(2, time::get);
+        cache.put(1, "one", Duration.ofSeconds(1));
+        cache.put(2, "two");
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.get(1));
+        cache.put(1, "one");
+        assertEquals(0, cache.getTargetRecencySize());
+        assertEquals(1, cache.getStats().getExpirations());
+        assertEquals(2, cache.size());
+    }
+}
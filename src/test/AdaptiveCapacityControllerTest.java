@@ -0,0 +1,83 @@
+package test;
+
+import core.AdaptiveCapacityController;
+import core.LRUCache;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveCapacityControllerTest {
+
+    @Test
+    public void testSetMaximumShrinksInLruOrder() {
+        LRUCache<Integer, Integer> cache = new LRUCache<>(5000);
+        for (int i = 0; i < 5000; i++) {
+            cache.put(i, i);
+        }
+        cache.setMaximum(100);
+        assertEquals(100, cache.getMaximum());
+        assertEquals(100, cache.size());
+        assertNull(cache.get(4899));
+        assertEquals(Integer.valueOf(4999), cache.get(4999));
+        assertEquals(4900, cache.getStats().getEvictions());
+        cache.setMaximum(200);
+        for (int i = 0; i < 200; i++) {
+            cache.put(-i - 1, i);
+        }
+        assertEquals(200, cache.size());
+    }
+
+    @Test
+    public void testShrinksUnderMemoryPressureAtMostOncePerInterval() {
+        LRUCache<Integer, Integer> cache = new LRUCache<>(1000);
+        double[] occupancy = {0.9};
+        AtomicLong time = new AtomicLong();
+        AdaptiveCapacityController controller = AdaptiveCapacityController.newBuilder(cache)
+                .capacityRange(100, 1000)
+                .heapOccupancy(() -> occupancy[0])
+                .ticker(time::get)
+                .build();
+        controller.evaluate();
+        assertEquals(750, cache.getMaximum());
+        controller.evaluate();
+        assertEquals(750, cache.getMaximum());
+        time.addAndGet(10_000_000_000L);
+        controller.evaluate();
+        assertEquals(562, cache.getMaximum());
+        occupancy[0] = 0.8;
+        time.addAndGet(10_000_000_000L);
+        controller.evaluate();
+        assertEquals(562, cache.getMaximum());
+        controller.close();
+    }
+
+    @Test
+    public void testGrowthStopsWhenHitRatioFlattens() {
+        LRUCache<Integer, Integer> cache = new LRUCache<>(100);
+        AdaptiveCapacityController controller = AdaptiveCapacityController.newBuilder(cache)
+                .capacityRange(100, 10_000)
+                .heapOccupancy(() -> 0.1)
+                .minimumGain(0.01, 100)
+                .build();
+        // Uniform reads of 150 keys: every growth step helps until all of them fit.
+        Random random = new Random(42);
+        long previous = cache.getMaximum();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 2000; i++) {
+                int key = random.nextInt(150);
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+            controller.evaluate();
+            assertTrue(cache.getMaximum() >= previous);
+            previous = cache.getMaximum();
+        }
+        assertTrue(cache.getMaximum() >= 150);
+        assertTrue(cache.getMaximum() < 300);
+        controller.close();
+    }
+}
@@ -0,0 +1,79 @@
+package test;
+
+import core.CacheMonitor;
+import core.LRUCache;
+import org.junit.Test;
+import utils.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CacheMonitorTest {
+
+    @Test
+    public void testStatsCountHitsMissesPutsAndRemovalCauses() {
+        AtomicLong time = new AtomicLong();
+        LRUCache<Integer, String> cache = LRUCache.newBuilder()
+                .maximumSize(2)
+                .ticker(time::get)
+                .build();
+        cache.put(1, "one");
+        cache.put(2, "two", Duration.ofSeconds(1));
+        cache.get(1);
+        cache.get(3);
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.get(2);
+        cache.put(3, "three");
+        cache.put(4, "four");
+
+        CacheMonitor.CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1.0 / 3, stats.getHitRatio(), 1e-9);
+        assertEquals(4, stats.getPuts());
+        assertEquals(1, stats.getEvictionCount(CacheMonitor.RemovalCause.SIZE));
+        assertEquals(1, stats.getExpirations());
+        assertEquals(2, stats.getEvictions());
+        assertEquals(3, stats.getGetLatency().getCount());
+        assertEquals(4, stats.getPutLatency().getCount());
+    }
+
+    @Test
+    public void testDisabledMonitorRecordsNothing() {
+        LRUCache<Integer, String> cache = LRUCache.newBuilder()
+                .maximumSize(1)
+                .recordStats(false)
+                .build();
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(2);
+
+        CacheMonitor.CacheStats stats = cache.getStats();
+        assertEquals(0, stats.getHits());
+        assertEquals(0, stats.getPuts());
+        assertEquals(0, stats.getEvictions());
+        assertEquals(0, stats.getGetLatency().getCount());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    public void testHistogramPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertWithin(5_000_000, snapshot.getP50());
+        assertWithin(9_900_000, snapshot.getP99());
+        assertWithin(9_990_000, snapshot.getP999());
+        assertEquals(0, LatencyHistogram.Snapshot.EMPTY.getP99());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
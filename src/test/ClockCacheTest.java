@@ -0,0 +1,96 @@
+package test;
+
+import core.ClockCache;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ClockCacheTest {
+
+    @Test
+    public void testEvictsEntriesThatWereNotRead() {
+        ClockCache<Integer, String> cache = new ClockCache<>(3);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        cache.get(1);
+        cache.get(3);
+        cache.put(4, "four");
+        assertNull(cache.get(2));
+        assertEquals("one", cache.get(1));
+        assertEquals("three", cache.get(3));
+        assertEquals("four", cache.get(4));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void testFrequentlyReadEntriesSurviveAScan() {
+        ClockCache<Integer, Integer> cache = new ClockCache<>(10);
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, i);
+        }
+        for (int i = 100; i < 1000; i++) {
+            for (int j = 0; j < 5; j++) {
+                cache.get(j);
+            }
+            cache.put(i, i);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), cache.get(i));
+        }
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testRemovedSlotIsReused() {
+        ClockCache<Integer, String> cache = new ClockCache<>(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals("one", cache.remove(1));
+        cache.put(3, "three");
+        assertEquals("two", cache.get(2));
+        assertEquals("three", cache.get(3));
+        assertEquals(0, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void testExpiredEntryIsMissed() {
+        AtomicLong time = new AtomicLong();
+        ClockCache<Integer, String> cache = new ClockCache<>(2, time::get);
+        cache.put(1, "one", Duration.ofSeconds(1));
+        cache.put(2, "two");
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.get(1));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getStats().getExpirations());
+    }
+
+    @Test
+    public void testConcurrentReadersAndWritersStayWithinCapacity() throws InterruptedException {
+        ClockCache<Integer, Integer> cache = new ClockCache<>(64);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 1000;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    int key = offset + i % 200;
+                    if (cache.get(key) == null) {
+                        cache.put(key, key);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(cache.size() <= 64);
+    }
+}
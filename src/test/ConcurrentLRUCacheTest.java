@@ -0,0 +1,106 @@
+package test;
+
+import core.ConcurrentLRUCache;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentLRUCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWithinSegment() {
+        ConcurrentLRUCache<Integer, String> cache = new ConcurrentLRUCache<>(2, 1);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.put(3, "three");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        ConcurrentLRUCache<Integer, String> cache = new ConcurrentLRUCache<>(100, 8);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, "v" + i);
+        }
+        assertEquals("v7", cache.remove(7));
+        assertNull(cache.get(7));
+        assertEquals(49, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiredEntryIsRemoved() throws InterruptedException {
+        ConcurrentLRUCache<Integer, String> cache = new ConcurrentLRUCache<>(4);
+        cache.put(1, "one", Duration.ofMillis(10));
+        Thread.sleep(50);
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testConcurrentWritersStayWithinCapacity() throws InterruptedException {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(1024, 16);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 10_000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cache.put(offset + i, i);
+                    cache.get(offset + i / 2);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(cache.size() <= 1024);
+        assertEquals(cache.size(), cache.getStats().getSize());
+    }
+
+    @Test
+    public void testSizeNeverExceedsCapacityNotDivisibleBySegments() {
+        int[][] configurations = {{10, 16}, {1000, 16}, {7, 4}, {100, 3}, {33, 32}};
+        for (int[] configuration : configurations) {
+            int capacity = configuration[0];
+            ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(capacity, configuration[1]);
+            for (int i = 0; i < 10 * capacity; i++) {
+                cache.put(i, i);
+            }
+            assertTrue("capacity " + capacity + " but size " + cache.size(), cache.size() <= capacity);
+        }
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(1000);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+        }
+        assertTrue(cache.size() <= 1000);
+    }
+
+    @Test
+    public void testBulkOperationsSpanSegments() {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(1024, 16);
+        Map<Integer, Integer> entries = new HashMap<>();
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            entries.put(i, i * 2);
+            keys.add(i);
+        }
+        cache.putAll(entries);
+        assertEquals(500, cache.size());
+        assertEquals(entries, cache.getAll(keys));
+        cache.removeAll(keys.subList(0, 250));
+        assertEquals(250, cache.size());
+        assertEquals(250, cache.getAll(keys).size());
+    }
+}
@@ -0,0 +1,104 @@
+package test;
+
+import core.DiskTier;
+import core.LRUCache;
+import domain.CacheNode;
+import Interface.Serializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class DiskTierTest {
+
+    private Path directory;
+    private DiskTier<Integer, String> tier;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("disk-tier");
+        tier = new DiskTier<>(directory, 64 * 1024, 4096, Serializer.utf8());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        tier.close();
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testEvictedEntriesArePromotedBack() {
+        LRUCache<Integer, String> cache = LRUCache.newBuilder()
+                .maximumSize(2)
+                .secondTier(tier)
+                .build();
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        assertEquals(1, tier.size());
+        assertEquals("one", cache.get(1));
+        assertEquals(2, cache.size());
+        assertEquals("two", cache.get(2));
+        assertEquals("three", cache.get(3));
+        assertEquals("one", cache.remove(1));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testOverwrittenEntriesAreCompacted() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            for (int key = 0; key < 10; key++) {
+                tier.put(key, "value-" + round + "-" + key, CacheNode.NO_EXPIRATION);
+            }
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (tier.diskBytes() > 4 * 4096 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(tier.diskBytes() <= 4 * 4096);
+        for (int key = 0; key < 10; key++) {
+            assertEquals("value-199-" + key, tier.take(key, 0).getValue());
+        }
+        assertEquals(0, tier.size());
+    }
+
+    @Test
+    public void testFailedPutDropsPreviousValue() throws IOException {
+        Serializer<String> failing = new Serializer<String>() {
+            @Override
+            public int serializedSize(String value) {
+                return Serializer.utf8().serializedSize(value);
+            }
+
+            @Override
+            public void serialize(String value, ByteBuffer buffer) {
+                if (value.equals("bad")) {
+                    throw new IllegalStateException("Cannot serialize " + value);
+                }
+                Serializer.utf8().serialize(value, buffer);
+            }
+
+            @Override
+            public String deserialize(ByteBuffer buffer) {
+                return Serializer.utf8().deserialize(buffer);
+            }
+        };
+        Path failingDirectory = Files.createTempDirectory("disk-tier");
+        DiskTier<Integer, String> failingTier = new DiskTier<>(failingDirectory, 64 * 1024, 4096, failing);
+        try {
+            failingTier.put(1, "one", CacheNode.NO_EXPIRATION);
+            assertThrows(IllegalStateException.class, () -> failingTier.put(1, "bad", CacheNode.NO_EXPIRATION));
+            assertNull(failingTier.take(1, 0));
+            assertEquals(0, failingTier.size());
+        } finally {
+            failingTier.close();
+            Files.deleteIfExists(failingDirectory);
+        }
+    }
+}
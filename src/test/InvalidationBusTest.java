@@ -0,0 +1,237 @@
+package test;
+
+import Interface.InvalidationTransport;
+import Interface.Serializer;
+import core.InvalidationBus;
+import core.LRUCache;
+import core.LoopbackTransport;
+import core.UdpTransport;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class InvalidationBusTest {
+
+    private static LRUCache<String, String> filledCache() {
+        LRUCache<String, String> cache = new LRUCache<>(100);
+        for (int i = 0; i < 10; i++) {
+            cache.put("k" + i, "v" + i);
+        }
+        return cache;
+    }
+
+    @Test
+    public void testBatchedInvalidationsAreCoalesced() throws IOException {
+        LoopbackTransport.Group group = new LoopbackTransport.Group();
+        InvalidationBus<String> sender = InvalidationBus.newBuilder(group.newTransport(), Serializer.utf8())
+                .flushDelay(Duration.ofHours(1))
+                .build();
+        InvalidationBus<String> receiver = InvalidationBus.newBuilder(group.newTransport(), Serializer.utf8())
+                .build();
+        LRUCache<String, String> local = filledCache();
+        LRUCache<String, String> remote = filledCache();
+        sender.register(local);
+        receiver.register(remote);
+        sender.start();
+        receiver.start();
+
+        sender.invalidate("k1");
+        sender.invalidateAll(Arrays.asList("k2", "k1", "k2"));
+        assertEquals("v1", remote.get("k1"));
+        sender.flush();
+
+        assertNull(remote.get("k1"));
+        assertNull(remote.get("k2"));
+        assertEquals("v3", remote.get("k3"));
+        assertEquals("v1", local.get("k1"));
+        assertEquals(1, sender.getSentMessages());
+        assertEquals(2, sender.getSentKeys());
+        assertEquals(2, receiver.getReceivedKeys());
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void testFullBatchAndDelayTriggerFlush() throws Exception {
+        LoopbackTransport.Group group = new LoopbackTransport.Group();
+        InvalidationBus<String> sender = InvalidationBus.newBuilder(group.newTransport(), Serializer.utf8())
+                .maxBatchKeys(3)
+                .flushDelay(Duration.ofMillis(20))
+                .build();
+        InvalidationBus<String> receiver = InvalidationBus.newBuilder(group.newTransport(), Serializer.utf8())
+                .build();
+        LRUCache<String, String> remote = filledCache();
+        receiver.register(remote);
+        receiver.start();
+
+        sender.invalidateAll(Arrays.asList("k1", "k2", "k3"));
+        assertNull(remote.get("k3"));
+
+        sender.invalidate("k4");
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (remote.get("k4") != null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertNull(remote.get("k4"));
+        assertEquals(2, sender.getSentMessages());
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void testLostMessageClearsReceivers() throws IOException {
+        LoopbackTransport.Group group = new LoopbackTransport.Group();
+        LoopbackTransport delegate = group.newTransport();
+        InvalidationTransport lossy = new InvalidationTransport() {
+            private int sent;
+
+            @Override
+            public int maxMessageSize() {
+                return delegate.maxMessageSize();
+            }
+
+            @Override
+            public void send(ByteBuffer message) {
+                if (++sent != 2) {
+                    delegate.send(message);
+                }
+            }
+
+            @Override
+            public void start(Consumer<ByteBuffer> receiver) {
+                delegate.start(receiver);
+            }
+
+            @Override
+            public void close() {
+                delegate.close();
+            }
+        };
+        InvalidationBus<String> sender = InvalidationBus.newBuilder(lossy, Serializer.utf8()).build();
+        InvalidationBus<String> receiver = InvalidationBus.newBuilder(group.newTransport(), Serializer.utf8())
+                .build();
+        LRUCache<String, String> remote = filledCache();
+        receiver.register(remote);
+        receiver.start();
+
+        sender.invalidate("k1");
+        sender.flush();
+        sender.invalidate("k2");
+        sender.flush();
+        assertEquals("v2", remote.get("k2"));
+        sender.invalidate("k3");
+        sender.flush();
+
+        assertEquals(1, receiver.getLostMessages());
+        assertEquals(0, remote.getStats().getSize());
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void testDuplicateAndLateMessagesAreIgnored() throws IOException {
+        LoopbackTransport.Group group = new LoopbackTransport.Group();
+        LoopbackTransport delegate = group.newTransport();
+        List<ByteBuffer> held = new ArrayList<>();
+        InvalidationTransport unreliable = new InvalidationTransport() {
+            private int sent;
+
+            @Override
+            public int maxMessageSize() {
+                return delegate.maxMessageSize();
+            }
+
+            @Override
+            public void send(ByteBuffer message) {
+                // Every message is delivered twice, and the third one only after the fourth.
+                ByteBuffer copy = ByteBuffer.allocate(message.remaining()).put(message.duplicate());
+                copy.flip();
+                if (++sent == 3) {
+                    held.add(copy);
+                    return;
+                }
+                delegate.send(copy.duplicate());
+                delegate.send(copy.duplicate());
+                for (ByteBuffer late : held) {
+                    delegate.send(late);
+                }
+                held.clear();
+            }
+
+            @Override
+            public void start(Consumer<ByteBuffer> receiver) {
+                delegate.start(receiver);
+            }
+
+            @Override
+            public void close() {
+                delegate.close();
+            }
+        };
+        InvalidationBus<String> sender = InvalidationBus.newBuilder(unreliable, Serializer.utf8()).build();
+        InvalidationBus<String> receiver = InvalidationBus.newBuilder(group.newTransport(), Serializer.utf8())
+                .build();
+        LRUCache<String, String> remote = filledCache();
+        receiver.register(remote);
+        receiver.start();
+
+        sender.invalidate("k1");
+        sender.flush();
+        sender.invalidate("k2");
+        sender.flush();
+        assertNull(remote.get("k2"));
+        assertEquals(0, receiver.getLostMessages());
+        assertEquals(8, remote.getStats().getSize());
+
+        sender.invalidate("k3");
+        sender.flush();
+        sender.invalidate("k4");
+        sender.flush();
+        assertEquals(1, receiver.getLostMessages());
+        assertEquals(0, remote.getStats().getSize());
+
+        remote.put("k1", "v1");
+        sender.invalidate("k5");
+        sender.flush();
+        assertEquals(1, receiver.getLostMessages());
+        assertEquals("v1", remote.get("k1"));
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void testUdpTransport() throws Exception {
+        InetSocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        UdpTransport receiving = new UdpTransport(any, Collections.emptyList());
+        UdpTransport sending = new UdpTransport(any, Collections.singletonList(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), receiving.getLocalAddress().getPort())));
+        InvalidationBus<String> sender = InvalidationBus.newBuilder(sending, Serializer.utf8()).build();
+        InvalidationBus<String> receiver = InvalidationBus.newBuilder(receiving, Serializer.utf8()).build();
+        LRUCache<String, String> remote = filledCache();
+        receiver.register(remote);
+        receiver.start();
+
+        sender.invalidateAll(Arrays.asList("k5", "k6"));
+        sender.flush();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (remote.get("k6") != null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertNull(remote.get("k5"));
+        assertNull(remote.get("k6"));
+        assertEquals("v7", remote.get("k7"));
+        sender.close();
+        receiver.close();
+    }
+}
@@ -0,0 +1,133 @@
+package test;
+
+import core.LFUCache;
+import Interface.Serializer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LFUCacheTest {
+
+    @Test
+    public void testEvictsLeastFrequentlyUsed() {
+        LFUCache<Integer, String> cache = new LFUCache<>(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+        cache.put(3, "three");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("three", cache.get(3));
+    }
+
+    @Test
+    public void testTiesEvictLeastRecentlyUsed() {
+        LFUCache<Integer, String> cache = new LFUCache<>(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+    }
+
+    @Test
+    public void testRemove() {
+        LFUCache<Integer, String> cache = new LFUCache<>(2);
+        cache.put(1, "one");
+        assertEquals("one", cache.remove(1));
+        assertNull(cache.remove(1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTTL() throws InterruptedException {
+        LFUCache<Integer, String> cache = new LFUCache<>(2);
+        cache.put(1, "one", Duration.ofMillis(10));
+        Thread.sleep(50);
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testUpdateWithTtlRecordsPutLatency() {
+        LFUCache<Integer, String> cache = new LFUCache<>(2);
+        cache.put(1, "one", Duration.ofMinutes(1));
+        cache.put(1, "uno", Duration.ofMinutes(1));
+        assertEquals("uno", cache.get(1));
+        assertEquals(2, cache.getStats().getPutLatency().getCount());
+    }
+
+    @Test
+    public void testAgingHalvesFrequencies() {
+        LFUCache<Integer, String> cache = new LFUCache<>(2, 8);
+        cache.put(1, "one");
+        for (int i = 0; i < 6; i++) {
+            cache.get(1);
+        }
+        assertEquals(7, cache.frequencyOf(1));
+        cache.put(2, "two");
+        assertEquals(3, cache.frequencyOf(1));
+        assertEquals(1, cache.frequencyOf(2));
+    }
+
+    @Test
+    public void testTinyLfuAdmissionRejectsOneHitKeys() {
+        LFUCache<Integer, String> cache = LFUCache.newBuilder().maximumSize(1).tinyLfuAdmission(true).build();
+        cache.put(1, "one");
+        cache.get(1);
+        cache.put(2, "two");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    public void testSnapshotRestoresFrequencies() throws IOException {
+        LFUCache<String, String> cache = new LFUCache<>(3);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        Path file = Files.createTempFile("lfu", ".snapshot");
+        try {
+            cache.snapshot(file, Serializer.utf8(), Serializer.utf8());
+            LFUCache<String, String> restored = new LFUCache<>(2);
+            assertEquals(2, restored.load(file, Serializer.utf8(), Serializer.utf8()));
+            assertEquals(3, restored.frequencyOf("a"));
+            assertEquals(2, restored.frequencyOf("b"));
+            assertEquals(0, restored.frequencyOf("c"));
+            restored.put("d", "4");
+            assertNull(restored.get("b"));
+            assertEquals("1", restored.get("a"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testBulkOperationsApplyToEveryKey() {
+        LFUCache<Integer, String> cache = new LFUCache<>(2);
+        Map<Integer, String> entries = new LinkedHashMap<>();
+        entries.put(1, "one");
+        entries.put(2, "two");
+        cache.putAll(entries);
+        cache.getAll(Arrays.asList(1, 1));
+        cache.put(3, "three");
+        Map<Integer, String> found = cache.getAll(Arrays.asList(1, 2, 3));
+        assertEquals(2, found.size());
+        assertEquals("one", found.get(1));
+        cache.removeAll(Arrays.asList(1, 3));
+        assertTrue(cache.getAll(Arrays.asList(1, 2, 3)).isEmpty());
+    }
+}
@@ -1,9 +1,21 @@
 package test;
 
 import core.LRUCache;
+import domain.CacheNode;
+import Interface.Serializer;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -29,4 +41,177 @@ public class LRUCacheTest {
         LRUCache<Integer, String> cache = new LRUCache<>(2);
         assertNull(cache.get(1));
     }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        LRUCache<Integer, String> cache = new LRUCache<>(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.put(3, "three");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testBufferedReadsKeepRecentEntries() {
+        LRUCache<Integer, String> cache = LRUCache.newBuilder().maximumSize(2).bufferedReads(true).build();
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals("one", cache.get(1));
+        cache.put(3, "three");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testTinyLfuAdmissionSurvivesScan() {
+        LRUCache<Integer, Integer> cache = LRUCache.newBuilder().maximumSize(100).tinyLfuAdmission(true).build();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (cache.get(i) == null) {
+                    cache.put(i, i);
+                }
+            }
+        }
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(i, i);
+        }
+        int hotHits = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get(i) != null) {
+                hotHits++;
+            }
+        }
+        assertTrue(hotHits >= 45);
+        assertEquals(100, cache.size());
+        assertTrue(cache.getStats().getSketchMemoryBytes() > 0);
+    }
+
+    @Test
+    public void testExpiredEntriesAreReclaimedWithoutReads() {
+        AtomicLong time = new AtomicLong();
+        LRUCache<Integer, String> cache = LRUCache.newBuilder().maximumSize(10).ticker(time::get).build();
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, "v" + i, Duration.ofMillis(50));
+        }
+        cache.put(100, "forever");
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.cleanUp();
+        assertEquals(1, cache.size());
+        assertEquals("forever", cache.get(100));
+    }
+
+    @Test
+    public void testEstimatedEntryOverhead() {
+        LRUCache<Integer, String> cache = new LRUCache<>(2);
+        assertTrue(cache.estimatedEntryOverhead() > CacheNode.shallowSizeInBytes());
+    }
+
+    @Test
+    public void testSnapshotRestoresOrderAndTtl() throws IOException {
+        AtomicLong time = new AtomicLong();
+        LRUCache<String, String> cache = LRUCache.newBuilder().maximumSize(3).ticker(time::get).build();
+        cache.put("a", "1");
+        cache.put("b", "2", Duration.ofSeconds(10));
+        cache.put("c", "3", Duration.ofSeconds(1));
+        cache.get("a");
+        Path file = Files.createTempFile("lru", ".snapshot");
+        try {
+            cache.snapshot(file, Serializer.utf8(), Serializer.utf8());
+            LRUCache<String, String> restored = LRUCache.newBuilder().maximumSize(3).ticker(time::get).build();
+            assertEquals(3, restored.load(file, Serializer.utf8(), Serializer.utf8()));
+            time.addAndGet(Duration.ofSeconds(2).toNanos());
+            restored.cleanUp();
+            assertEquals(2, restored.size());
+            restored.put("d", "4");
+            restored.put("e", "5");
+            assertEquals("1", restored.get("a"));
+            assertNull(restored.get("b"));
+            assertNull(restored.get("c"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testMaximumWeightEvictsUntilWeightFits() {
+        LRUCache<Integer, String> cache = LRUCache.newBuilder()
+                .maximumWeight(10)
+                .weigher((Integer key, String value) -> value.length())
+                .build();
+        cache.put(1, "aaaa");
+        cache.put(2, "bbbb");
+        assertEquals(8, cache.getStats().getTotalWeight());
+        cache.put(1, "a");
+        assertEquals(5, cache.getStats().getTotalWeight());
+        cache.put(3, "cccccc");
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(7, cache.getStats().getTotalWeight());
+        cache.put(4, "dddddddddddd");
+        assertNull(cache.get(4));
+        assertEquals("cccccc", cache.get(3));
+    }
+
+    @Test
+    public void testRefreshAfterWriteServesStaleValueWhileReloading() {
+        AtomicLong time = new AtomicLong();
+        AtomicInteger version = new AtomicInteger();
+        List<Runnable> refreshes = new ArrayList<>();
+        LRUCache<Integer, String> cache = LRUCache.newBuilder()
+                .maximumSize(10)
+                .ticker(time::get)
+                .refreshExecutor(refreshes::add)
+                .refreshAfterWrite(Duration.ofSeconds(1), (Integer key) -> "v" + version.incrementAndGet())
+                .build();
+        cache.put(1, "v0");
+        assertEquals("v0", cache.get(1));
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals("v0", cache.get(1));
+        assertEquals("v0", cache.get(1));
+        assertEquals(1, refreshes.size());
+        refreshes.get(0).run();
+        assertEquals("v1", cache.get(1));
+        assertEquals(1, cache.getStats().getRefreshSuccessCount());
+        assertEquals(0, cache.getStats().getRefreshFailureCount());
+    }
+
+    @Test
+    public void testRefreshDoesNotOverwriteNewerWrite() {
+        AtomicLong time = new AtomicLong();
+        List<Runnable> refreshes = new ArrayList<>();
+        LRUCache<Integer, String> cache = LRUCache.newBuilder()
+                .maximumSize(10)
+                .ticker(time::get)
+                .refreshExecutor(refreshes::add)
+                .refreshAfterWrite(Duration.ofSeconds(1), (Integer key) -> "reloaded")
+                .build();
+        cache.put(1, "v0");
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals("v0", cache.get(1));
+        cache.put(1, "NEW-WRITE");
+        refreshes.get(0).run();
+        assertEquals("NEW-WRITE", cache.get(1));
+    }
+
+    @Test
+    public void testBulkOperationsApplyToEveryKey() {
+        LRUCache<Integer, String> cache = new LRUCache<>(3);
+        Map<Integer, String> entries = new LinkedHashMap<>();
+        entries.put(1, "one");
+        entries.put(2, "two");
+        entries.put(3, "three");
+        cache.putAll(entries);
+        Map<Integer, String> found = cache.getAll(Arrays.asList(1, 3, 4));
+        assertEquals(2, found.size());
+        assertEquals("one", found.get(1));
+        assertEquals("three", found.get(3));
+        cache.put(4, "four");
+        assertNull(cache.get(2));
+        cache.removeAll(Arrays.asList(1, 4));
+        assertEquals(1, cache.getAll(Arrays.asList(1, 2, 3, 4)).size());
+    }
 }
@@ -0,0 +1,137 @@
+package test;
+
+import core.LRUCache;
+import core.LoadingCache;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LoadingCacheTest {
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        LoadingCache<Integer, String> cache = new LoadingCache<>(new LRUCache<>(10));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            Future<?>[] results = new Future<?>[16];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = pool.submit(() -> cache.get(1, key -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "one";
+                }));
+            }
+            while (cache.inFlightLoads() == 0) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<?> result : results) {
+                assertEquals("one", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals("one", cache.get(1));
+    }
+
+    @Test
+    public void testGetAllLoadsMissingKeysInOneCall() {
+        LoadingCache<Integer, String> cache = new LoadingCache<>(new LRUCache<>(10));
+        cache.put(1, "one");
+        AtomicInteger calls = new AtomicInteger();
+        Map<Integer, String> values = cache.getAll(Arrays.asList(1, 2, 3), keys -> {
+            calls.incrementAndGet();
+            assertFalse(keys.contains(1));
+            Map<Integer, String> loaded = new HashMap<>();
+            loaded.put(2, "two");
+            return loaded;
+        });
+        assertEquals(1, calls.get());
+        assertEquals(2, values.size());
+        assertEquals("two", values.get(2));
+        assertFalse(values.containsKey(3));
+        assertEquals("two", cache.get(2));
+    }
+
+    @Test
+    public void testFailedLoadIsRetried() throws Exception {
+        LoadingCache<Integer, String> cache = new LoadingCache<>(new LRUCache<>(10));
+        try {
+            cache.get(1, key -> {
+                throw new IllegalStateException("backend down");
+            });
+            fail("expected the loader's exception");
+        } catch (IllegalStateException expected) {
+            assertEquals(0, cache.inFlightLoads());
+        }
+        assertEquals("one", cache.getAsync(1, key -> "one").get(5, TimeUnit.SECONDS));
+        assertEquals("one", cache.get(1));
+    }
+
+    @Test
+    public void testLoadFinishedBeforeClaimIsNotRepeated() throws Exception {
+        // The first lookup of each key misses, and another load caches the value right after it.
+        LRUCache<Integer, String> backing = new LRUCache<Integer, String>(10) {
+            private final Map<Integer, Boolean> looked = new HashMap<>();
+
+            @Override
+            public String get(Integer key) {
+                if (looked.put(key, true) == null) {
+                    put(key, "other-" + key);
+                    return null;
+                }
+                return super.get(key);
+            }
+        };
+        LoadingCache<Integer, String> cache = new LoadingCache<>(backing);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("other-1", cache.get(1, key -> "loaded-" + loads.incrementAndGet()));
+        assertEquals("other-2", cache.getAsync(2, key -> "loaded-" + loads.incrementAndGet())
+                .get(5, TimeUnit.SECONDS));
+        Map<Integer, String> all = cache.getAll(Arrays.asList(3, 4), keys -> {
+            loads.incrementAndGet();
+            return new HashMap<>();
+        });
+        assertEquals("other-3", all.get(3));
+        assertEquals("other-4", all.get(4));
+        assertEquals(0, loads.get());
+        assertEquals(0, cache.inFlightLoads());
+    }
+
+    @Test
+    public void testLoadingMissIsCountedOnce() throws Exception {
+        LoadingCache<Integer, String> cache = new LoadingCache<>(new LRUCache<>(10));
+        assertEquals("v1", cache.get(1, key -> "v" + key));
+        assertEquals("v1", cache.get(1, key -> "v" + key));
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+        assertEquals(0.5, cache.getStats().getHitRatio(), 1e-9);
+
+        assertEquals("v2", cache.getAsync(2, key -> "v" + key).get(5, TimeUnit.SECONDS));
+        cache.getAll(Arrays.asList(3, 4), keys -> {
+            Map<Integer, String> values = new HashMap<>();
+            keys.forEach(key -> values.put(key, "v" + key));
+            return values;
+        });
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(4, cache.getStats().getMisses());
+    }
+}
@@ -0,0 +1,72 @@
+package test;
+
+import core.LongLRUCache;
+import core.LongLongLRUCache;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class LongLRUCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        LongLRUCache<String> cache = new LongLRUCache<>(2);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.get(1L);
+        cache.put(3L, "three");
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("three", cache.get(3L));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void testRemoveKeepsOtherKeysReachable() {
+        LongLongLRUCache cache = new LongLongLRUCache(1000);
+        for (long i = 0; i < 1000; i++) {
+            cache.put(i * 1024, i);
+        }
+        for (long i = 0; i < 1000; i += 2) {
+            assertTrue(cache.remove(i * 1024));
+        }
+        assertEquals(500, cache.size());
+        for (long i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0 ? -1L : i, cache.getOrDefault(i * 1024, -1L));
+        }
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(-1L, cache.getOrDefault(1024L, -1L));
+    }
+
+    @Test
+    public void testExpiredEntryIsMissed() {
+        AtomicLong time = new AtomicLong();
+        LongLongLRUCache cache = new LongLongLRUCache(10, time::get);
+        cache.put(1L, 10L, Duration.ofSeconds(1));
+        cache.put(2L, 20L);
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.get(Long.valueOf(1L)));
+        assertEquals(Long.valueOf(20L), cache.get(Long.valueOf(2L)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testPutWithoutTtlKeepsExpiration() {
+        AtomicLong time = new AtomicLong();
+        LongLongLRUCache longs = new LongLongLRUCache(10, time::get);
+        LongLRUCache<String> objects = new LongLRUCache<>(10, time::get);
+        longs.put(1L, 10L, Duration.ofSeconds(1));
+        longs.put(1L, 11L);
+        objects.put(1L, "one", Duration.ofSeconds(1));
+        objects.put(1L, "uno");
+        assertEquals(Long.valueOf(11L), longs.get(Long.valueOf(1L)));
+        assertEquals("uno", objects.get(1L));
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(longs.get(Long.valueOf(1L)));
+        assertNull(objects.get(1L));
+    }
+}
@@ -0,0 +1,165 @@
+package test;
+
+import core.LRUCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import server.MemcachedCache;
+import server.MemcachedServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class MemcachedServerTest {
+    private LRUCache<String, byte[]> cache;
+    private MemcachedServer server;
+    private Socket socket;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new LRUCache<>(100);
+        server = new MemcachedServer(cache, new InetSocketAddress("localhost", 0), 2, 1024).start();
+        socket = new Socket("localhost", server.getPort());
+        socket.setSoTimeout(5000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        socket.close();
+        server.close();
+    }
+
+    @Test
+    public void testSetGetAndDelete() throws IOException {
+        assertEquals("STORED\r\n", send("set a 42 0 5\r\nhello\r\n", 8));
+        assertEquals("VALUE a 42 5\r\nhello\r\nEND\r\n", send("get a\r\n", 26));
+        assertEquals("VALUE a 42 5 1\r\nhello\r\nEND\r\n", send("gets a\r\n", 28));
+        assertEquals("END\r\n", send("get b\r\n", 5));
+        assertEquals("DELETED\r\n", send("delete a\r\n", 9));
+        assertEquals("NOT_FOUND\r\n", send("delete a\r\n", 11));
+        send("set c 0 0 1 noreply\r\nx\r\n", 0);
+        assertEquals("VALUE c 0 1\r\nx\r\nEND\r\n", send("get c\r\n", 21));
+        assertEquals(3, cache.getStats().getHits());
+    }
+
+    @Test
+    public void testPipelinedCommandsAreAnsweredInOrder() throws IOException {
+        String expected = "STORED\r\nSTORED\r\nVALUE k2 0 2\r\nv2\r\nVALUE k1 0 2\r\nv1\r\nEND\r\nEND\r\n";
+        assertEquals(expected, send("set k1 0 0 2\r\nv1\r\nset k2 0 0 2\r\nv2\r\n"
+                + "get k2 missing k1\r\nget missing\r\n", expected.length()));
+    }
+
+    @Test
+    public void testValueSplitAcrossWrites() throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write("set big 0 0 10\r\n01234".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        assertEquals("STORED\r\nVALUE big 0 10\r\n0123456789\r\nEND\r\n", send("56789\r\nget big\r\n", 41));
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        assertEquals("ERROR\r\n", send("incr a 1\r\n", 7));
+        assertEquals("SERVER_ERROR object too large for cache\r\n",
+                send("set a 0 0 2000\r\n" + "x".repeat(2000) + "\r\n", 41));
+        assertEquals("END\r\n", send("get a\r\n", 5));
+        assertEquals("CLIENT_ERROR bad command line format\r\n", send("set a 0 0\r\n", 38));
+    }
+
+    @Test
+    public void testMemcachedCacheClient() {
+        try (MemcachedCache client = new MemcachedCache(new InetSocketAddress("localhost", server.getPort()))) {
+            client.put("a", "one".getBytes(StandardCharsets.US_ASCII));
+            client.put("b", "two".getBytes(StandardCharsets.US_ASCII), Duration.ofMinutes(1));
+            assertEquals("one", new String(client.get("a"), StandardCharsets.US_ASCII));
+            assertNull(client.get("missing"));
+
+            Map<String, byte[]> entries = new HashMap<>();
+            for (int i = 0; i < 50; i++) {
+                entries.put("k" + i, new byte[i]);
+            }
+            client.putAll(entries);
+            Map<String, byte[]> found = client.getAll(Arrays.asList("a", "k7", "missing", "k49"));
+            assertEquals(3, found.size());
+            assertEquals(49, found.get("k49").length);
+
+            assertEquals("two", new String(client.remove("b"), StandardCharsets.US_ASCII));
+            assertNull(client.remove("b"));
+            client.removeAll(Arrays.asList("k1", "k2"));
+            assertNull(cache.get("k1"));
+            client.clear();
+            assertEquals(0, cache.getStats().getSize());
+            assertEquals(4, client.getStats().getHits());
+        }
+    }
+
+    @Test
+    public void testMemcachedCacheTimesOutOnHungServer() throws IOException {
+        // The backlog completes the connection, but nothing ever accepts it or replies.
+        try (ServerSocket hung = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             MemcachedCache client = new MemcachedCache(
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), hung.getLocalPort()),
+                     Duration.ofMillis(200))) {
+            long start = System.nanoTime();
+            assertThrows(UncheckedIOException.class, () -> client.get("a"));
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        }
+    }
+
+    @Test
+    public void testMemcachedCacheDropsConnectionOnMalformedReply() throws Exception {
+        try (ServerSocket fake = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             MemcachedCache client = new MemcachedCache(
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), fake.getLocalPort()))) {
+            AtomicBoolean closed = new AtomicBoolean();
+            Thread replier = new Thread(() -> {
+                try (Socket connection = fake.accept()) {
+                    connection.setSoTimeout(5000);
+                    connection.getOutputStream().write("VALUE a 0 five\r\n".getBytes(StandardCharsets.US_ASCII));
+                    InputStream in = connection.getInputStream();
+                    while (in.read() >= 0) {
+                        // Skip the request until the client hangs up.
+                    }
+                    closed.set(true);
+                } catch (IOException ignored) {
+                    // Reported by the assertion below.
+                }
+            });
+            replier.start();
+            assertThrows(IllegalStateException.class, () -> client.get("a"));
+            replier.join(5000);
+            assertTrue(closed.get());
+        }
+    }
+
+    private String send(String request, int replyLength) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        InputStream in = socket.getInputStream();
+        byte[] reply = new byte[replyLength];
+        int read = 0;
+        while (read < replyLength) {
+            int count = in.read(reply, read, replyLength - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return new String(reply, 0, read, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,121 @@
+package test;
+
+import core.OffHeapCache;
+import core.SlabAllocator;
+import Interface.Serializer;
+import org.junit.Test;
+import utils.Ticker;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class OffHeapCacheTest {
+
+    @Test
+    public void testRoundTripsValues() {
+        OffHeapCache<Integer, String> cache = new OffHeapCache<>(1 << 20, Serializer.utf8());
+        cache.put(1, "one");
+        cache.put(2, "zwei \u00fc");
+        cache.put(1, "uno");
+        assertEquals("uno", cache.get(1));
+        assertEquals("zwei \u00fc", cache.get(2));
+        assertEquals("zwei \u00fc", cache.remove(2));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWhenMemoryRunsOut() {
+        // One 4 KiB slab holds four chunks of 872 bytes.
+        OffHeapCache<Integer, byte[]> cache =
+                new OffHeapCache<>(4096, 4096, Serializer.bytes(), Ticker.systemTicker());
+        for (int i = 0; i < 4; i++) {
+            cache.put(i, new byte[800]);
+        }
+        cache.get(0);
+        cache.put(4, new byte[800]);
+        assertNotNull(cache.get(0));
+        assertNull(cache.get(1));
+        assertEquals(4, cache.size());
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void testEmptySlabIsReusedByAnotherSizeClass() {
+        SlabAllocator allocator = new SlabAllocator(4096, 4096);
+        long small = allocator.allocate(100);
+        assertEquals(SlabAllocator.NO_ADDRESS, allocator.allocate(3000));
+        allocator.free(small);
+        long large = allocator.allocate(3000);
+        assertTrue(large != SlabAllocator.NO_ADDRESS);
+        assertEquals(allocator.chunkSize(3000), allocator.usedBytes());
+    }
+
+    @Test
+    public void testExpiredEntryIsFreed() {
+        AtomicLong time = new AtomicLong();
+        OffHeapCache<Integer, String> cache = new OffHeapCache<>(1 << 20, 1 << 16, Serializer.utf8(), time::get);
+        cache.put(1, "one", Duration.ofSeconds(1));
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.put(2, "two");
+        assertNull(cache.get(1));
+        assertEquals(1, cache.size());
+        assertEquals(64, cache.offHeapUsedBytes());
+    }
+
+    @Test
+    public void testEvictsWithinTheNeededSizeClass() {
+        // Eight 64 KiB slabs of 1024 chunks of 64 bytes each.
+        OffHeapCache<Integer, byte[]> cache =
+                new OffHeapCache<>(8 << 16, 1 << 16, Serializer.bytes(), Ticker.systemTicker());
+        for (int i = 0; i < 8192; i++) {
+            cache.put(i, new byte[60]);
+        }
+        assertEquals(0, cache.getStats().getEvictions());
+
+        // A new size class takes over a single slab, that of the least recently used small entry.
+        cache.put(-1, new byte[2000]);
+        assertEquals(1024, cache.getStats().getEvictions());
+        assertNull(cache.get(0));
+        assertNotNull(cache.get(1024));
+        cache.put(-2, new byte[2000]);
+        assertEquals(1024, cache.getStats().getEvictions());
+
+        // A small entry only evicts the least recently used small entry.
+        cache.put(8192, new byte[60]);
+        assertEquals(1025, cache.getStats().getEvictions());
+        assertNull(cache.get(1025));
+        assertNotNull(cache.get(-1));
+    }
+
+    @Test
+    public void testFailedUpdateKeepsPreviousValue() {
+        Serializer<String> failing = new Serializer<String>() {
+            @Override
+            public int serializedSize(String value) {
+                return Serializer.utf8().serializedSize(value);
+            }
+
+            @Override
+            public void serialize(String value, ByteBuffer buffer) {
+                if (value.equals("bad")) {
+                    throw new IllegalStateException("Cannot serialize " + value);
+                }
+                Serializer.utf8().serialize(value, buffer);
+            }
+
+            @Override
+            public String deserialize(ByteBuffer buffer) {
+                return Serializer.utf8().deserialize(buffer);
+            }
+        };
+        OffHeapCache<Integer, String> cache = new OffHeapCache<>(1 << 20, failing);
+        cache.put(1, "one");
+        assertThrows(IllegalStateException.class, () -> cache.put(1, "bad"));
+        assertEquals("one", cache.get(1));
+        assertEquals(64, cache.offHeapUsedBytes());
+    }
+}
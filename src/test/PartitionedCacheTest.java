@@ -0,0 +1,107 @@
+package test;
+
+import Interface.Cache;
+import core.LRUCache;
+import core.PartitionedCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PartitionedCacheTest {
+
+    private static Map<String, Cache<Integer, String>> nodes(int count) {
+        Map<String, Cache<Integer, String>> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            nodes.put("node-" + i, new LRUCache<>(10_000));
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testKeysAreSpreadAndBulkGetsFanOut() {
+        Map<String, Cache<Integer, String>> nodes = nodes(4);
+        PartitionedCache<Integer, String> cache = new PartitionedCache<>(nodes);
+        Map<Integer, String> entries = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            entries.put(i, "v" + i);
+        }
+        cache.putAll(entries);
+        for (Cache<Integer, String> node : nodes.values()) {
+            int size = node.getStats().getSize();
+            assertTrue("unbalanced node of " + size + " keys", size > 2000 && size < 3000);
+        }
+        assertEquals(10_000, cache.getStats().getSize());
+        assertEquals("v42", cache.get(42));
+        assertEquals("v42", nodes.get(cache.nodeFor(42)).get(42));
+
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 9_990; i < 10_010; i++) {
+            keys.add(i);
+        }
+        Map<Integer, String> found = cache.getAll(keys);
+        assertEquals(10, found.size());
+        assertEquals("v9995", found.get(9995));
+
+        cache.removeAll(keys);
+        assertNull(cache.get(9995));
+        assertEquals(9_990, cache.getStats().getSize());
+    }
+
+    @Test
+    public void testAddingNodeOnlyMovesKeysToIt() {
+        PartitionedCache<Integer, String> cache = new PartitionedCache<>(nodes(3));
+        String[] before = new String[10_000];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = cache.nodeFor(i);
+        }
+        cache.addNode("node-3", new LRUCache<>(10_000));
+        int moved = 0;
+        for (int i = 0; i < before.length; i++) {
+            String owner = cache.nodeFor(i);
+            if (!owner.equals(before[i])) {
+                assertEquals("node-3", owner);
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved + " keys", moved > 2000 && moved < 3000);
+    }
+
+    @Test
+    public void testRemovingNodeOnlyMovesItsKeys() {
+        PartitionedCache<Integer, String> cache = new PartitionedCache<>(nodes(4));
+        String[] before = new String[10_000];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = cache.nodeFor(i);
+            cache.put(i, "v" + i);
+        }
+        Cache<Integer, String> removed = cache.removeNode("node-1");
+        assertNotNull(removed);
+        assertEquals(3, cache.getNodes().size());
+        int misses = 0;
+        for (int i = 0; i < before.length; i++) {
+            String owner = cache.nodeFor(i);
+            if (before[i].equals("node-1")) {
+                assertTrue(!owner.equals("node-1"));
+            } else {
+                assertEquals(before[i], owner);
+            }
+            if (cache.get(i) == null) {
+                misses++;
+            }
+        }
+        assertEquals(removed.getStats().getSize(), misses);
+        assertNull(cache.removeNode("node-1"));
+    }
+
+    @Test
+    public void testLastNodeCannotBeRemoved() {
+        PartitionedCache<Integer, String> cache = new PartitionedCache<>(nodes(1));
+        assertThrows(IllegalStateException.class, () -> cache.removeNode("node-0"));
+    }
+}
@@ -0,0 +1,70 @@
+package test;
+
+import core.CacheMonitor;
+import core.FIFOEvictionPolicy;
+import core.LFUEvictionPolicy;
+import core.LRUEvictionPolicy;
+import core.PolicyCache;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class PolicyCacheTest {
+
+    @Test
+    public void testLruPolicyEvictsLeastRecentlyUsed() {
+        PolicyCache<Integer, String> cache = new PolicyCache<>(2, new LRUEvictionPolicy<>());
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.put(3, "three");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void testLfuPolicyEvictsLeastFrequentlyUsed() {
+        PolicyCache<Integer, String> cache = new PolicyCache<>(2, new LFUEvictionPolicy<>());
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+        cache.put(3, "three");
+        cache.put(4, "four");
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertNull(cache.get(3));
+        assertEquals("four", cache.get(4));
+    }
+
+    @Test
+    public void testFifoPolicyIgnoresAccesses() {
+        PolicyCache<Integer, String> cache = new PolicyCache<>(2, new FIFOEvictionPolicy<>());
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.put(3, "three");
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testExpiredEntryLeavesThePolicy() {
+        AtomicLong time = new AtomicLong();
+        PolicyCache<Integer, String> cache = new PolicyCache<>(2, new LRUEvictionPolicy<>(), time::get);
+        cache.put(1, "one", Duration.ofSeconds(1));
+        cache.put(2, "two");
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.put(3, "three");
+        assertEquals(2, cache.size());
+        assertEquals("two", cache.get(2));
+        assertEquals(1, cache.getStats().getExpirations());
+        assertEquals(0, cache.getStats().getEvictionCount(CacheMonitor.RemovalCause.SIZE));
+    }
+}
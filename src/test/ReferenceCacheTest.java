@@ -0,0 +1,74 @@
+package test;
+
+import core.CacheMonitor;
+import core.LRUCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReferenceCacheTest {
+
+    @Test
+    public void testWeakKeyIsRemovedOnceUnreachable() throws InterruptedException {
+        LRUCache<Object, String> cache = LRUCache.newBuilder().maximumSize(10).weakKeys(true).build();
+        Object kept = new Object();
+        cache.put(kept, "kept");
+        cache.put(new Object(), "dropped");
+        assertEquals(2, cache.size());
+        for (int i = 0; i < 50 && cache.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            cache.cleanUp();
+        }
+        assertEquals(1, cache.size());
+        assertEquals("kept", cache.get(kept));
+        assertEquals(1, cache.getStats().getEvictionCount(CacheMonitor.RemovalCause.COLLECTED));
+    }
+
+    @Test
+    public void testWeakKeysCompareByIdentity() {
+        LRUCache<String, Integer> cache = LRUCache.newBuilder().maximumSize(10).weakKeys(true).build();
+        String key = new String("key");
+        cache.put(key, 1);
+        assertEquals(Integer.valueOf(1), cache.get(key));
+        assertNull(cache.get(new String("key")));
+        assertEquals(Integer.valueOf(1), cache.remove(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSoftValuesAreReclaimedUnderMemoryPressure() {
+        LRUCache<Integer, byte[]> cache = LRUCache.newBuilder().maximumSize(1_000_000).softValues(true).build();
+        long budget = Runtime.getRuntime().maxMemory();
+        List<Integer> keys = new ArrayList<>();
+        // Puts more soft values than the heap can hold; the collector must reclaim some instead of failing.
+        for (int i = 0; (long) i * (1 << 20) < budget * 2 && cache.getStats().getCollections() == 0; i++) {
+            cache.put(i, new byte[1 << 20]);
+            keys.add(i);
+        }
+        int live = 0;
+        for (Integer key : keys) {
+            if (cache.get(key) != null) {
+                live++;
+            }
+        }
+        assertTrue(live < keys.size());
+        assertEquals(live, cache.size());
+        assertTrue(cache.getStats().getCollections() > 0);
+    }
+
+    @Test
+    public void testStrongValueReplacesReclaimableOne() {
+        LRUCache<Integer, String> cache = LRUCache.newBuilder().maximumSize(2).softValues(true).build();
+        cache.put(1, "one");
+        cache.put(1, "uno");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+        assertEquals("three", cache.get(3));
+    }
+}
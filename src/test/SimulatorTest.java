@@ -0,0 +1,67 @@
+package test;
+
+import org.junit.Test;
+import simulator.Policy;
+import simulator.Simulation;
+import simulator.TraceReader;
+import simulator.TraceWriter;
+import utils.KeyGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class SimulatorTest {
+
+    @Test
+    public void testReplaysTextTraceAcrossChunks() throws IOException {
+        Path file = Files.createTempFile("trace", ".txt");
+        try {
+            Files.write(file, Arrays.asList("# key", "1", "2", "", "1 extra", "3", "1", "2"), StandardCharsets.UTF_8);
+            Simulation simulation = new Simulation(Collections.singletonList(Policy.LRU), Arrays.asList(2, 3),
+                    ForkJoinPool.commonPool(), 4);
+            try (TraceReader trace = TraceReader.text(file)) {
+                assertEquals(6, simulation.replay(trace));
+            }
+            List<Simulation.Run> runs = simulation.results();
+            assertEquals(2, runs.get(0).getHits());
+            assertEquals(4, runs.get(0).getMisses());
+            assertEquals(3, runs.get(1).getHits());
+            StringWriter csv = new StringWriter();
+            simulation.writeCsv(csv);
+            assertTrue(csv.toString().contains("LRU,3,6,3,3,0.500000"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBinaryTraceReplaysLikeItsSource() throws IOException {
+        Path file = Files.createTempFile("trace", ".bin");
+        try {
+            long written = TraceWriter.write(TraceReader.synthetic(KeyGenerator.zipfian(1000, 0.99, 7), 100_000), file);
+            assertEquals(100_000, written);
+            List<Policy> policies = Arrays.asList(Policy.LRU, Policy.LFU);
+            Simulation fromFile = new Simulation(policies, Collections.singletonList(100));
+            try (TraceReader trace = TraceReader.binary(file)) {
+                fromFile.replay(trace);
+            }
+            Simulation direct = new Simulation(policies, Collections.singletonList(100));
+            direct.replay(TraceReader.synthetic(KeyGenerator.zipfian(1000, 0.99, 7), 100_000));
+            for (int i = 0; i < policies.size(); i++) {
+                assertEquals(direct.results().get(i).getHits(), fromFile.results().get(i).getHits());
+                assertTrue(fromFile.results().get(i).hitRatio() > 0.3);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
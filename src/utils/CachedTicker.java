@@ -0,0 +1,30 @@
+package utils;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A ticker whose time is refreshed every millisecond by a daemon thread, so that reading it does not call
+ * into the operating system's clock.
+ */
+final class CachedTicker implements Ticker {
+    static final CachedTicker INSTANCE = new CachedTicker(1_000_000L);
+
+    private volatile long nanos;
+
+    private CachedTicker(long resolutionNanos) {
+        nanos = System.nanoTime();
+        Thread updater = new Thread(() -> {
+            for (;;) {
+                LockSupport.parkNanos(resolutionNanos);
+                nanos = System.nanoTime();
+            }
+        }, "cache-ticker");
+        updater.setDaemon(true);
+        updater.start();
+    }
+
+    @Override
+    public long read() {
+        return nanos;
+    }
+}
@@ -0,0 +1,84 @@
+package utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * A source of synthetic keys between 0 and a number of items, drawn from a fixed distribution. The benchmarks
+ * use it to model access patterns without a recorded trace. Generators are not thread-safe; give every thread
+ * its own, or draw the keys up front with {@link #nextKeys(int)}.
+ */
+@FunctionalInterface
+public interface KeyGenerator {
+
+    /**
+     * Returns the next key.
+     *
+     * @return a key between 0 (inclusive) and the number of items (exclusive)
+     */
+    long nextKey();
+
+    /**
+     * Returns the given number of keys, in the order they are drawn.
+     *
+     * @param count the number of keys to draw
+     * @return the keys
+     */
+    default long[] nextKeys(int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = nextKey();
+        }
+        return keys;
+    }
+
+    /**
+     * Returns a generator drawing every item with the same probability.
+     *
+     * @param items the number of distinct keys
+     * @param seed  the seed of the random numbers
+     * @return a uniform generator
+     */
+    static KeyGenerator uniform(long items, long seed) {
+        if (items <= 0) {
+            throw new IllegalArgumentException("Item count should be greater than 0.");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        return () -> random.nextLong(items);
+    }
+
+    /**
+     * Returns a generator where key 0 is the most popular, key 1 the second most popular, and so on, following
+     * a Zipf law with the given exponent.
+     *
+     * @param items    the number of distinct keys
+     * @param exponent the skew of the distribution, between 0 and 1 exclusive; 0.99 is typical of web traffic
+     * @param seed     the seed of the random numbers
+     * @return a Zipfian generator
+     */
+    static KeyGenerator zipfian(long items, double exponent, long seed) {
+        return new ZipfianGenerator(items, exponent, seed);
+    }
+
+    /**
+     * Returns a Zipfian generator whose popular keys are scattered across the key space by a hash, instead of
+     * being the smallest ones, so that they do not share hash buckets or neighbouring memory.
+     *
+     * @param items    the number of distinct keys
+     * @param exponent the skew of the distribution, between 0 and 1 exclusive
+     * @param seed     the seed of the random numbers
+     * @return a scrambled Zipfian generator
+     */
+    static KeyGenerator scrambledZipfian(long items, double exponent, long seed) {
+        ZipfianGenerator zipfian = new ZipfianGenerator(items, exponent, seed);
+        return () -> Long.remainderUnsigned(fnv1a(zipfian.nextKey()), items);
+    }
+
+    private static long fnv1a(long value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
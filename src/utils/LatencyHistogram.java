@@ -0,0 +1,168 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, with logarithmic buckets.
+ *
+ * Every power of two is split into eight sub-buckets, so a recorded value is known to within 12.5%, and the
+ * whole range from 0 to about 18 minutes fits in 312 buckets; longer values land in the last one. Recording is
+ * a single atomic increment. To keep threads that record similar latencies from fighting over the same cache
+ * line, the buckets are striped: every thread increments its own copy of the array, picked from its id, and
+ * the copies are only summed when a {@link Snapshot} is taken.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final int MAX_STRIPES = 8;
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+
+    /**
+     * Constructs an empty histogram with one stripe per processor, up to eight.
+     */
+    public LatencyHistogram() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES);
+        int stripes = Integer.highestOneBit(processors);
+        if (stripes < processors) {
+            stripes <<= 1;
+        }
+        this.stripeMask = stripes - 1;
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        counts.getAndIncrement(stripe() * BUCKETS + bucketFor(nanos));
+    }
+
+    /**
+     * Returns the counts recorded so far, summed across the stripes. Values recorded while the snapshot is
+     * taken may or may not be part of it.
+     *
+     * @return a snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        long[] merged = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            merged[i % BUCKETS] += count;
+            total += count;
+        }
+        return new Snapshot(merged, total);
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & stripeMask;
+    }
+
+    static int bucketFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(value, 0L);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest value that falls into the bucket.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * The counts of a histogram at one point in time.
+     */
+    public static final class Snapshot {
+        /** A snapshot with no recorded values, used when statistics are disabled. */
+        public static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0);
+
+        private final long[] counts;
+        private final long count;
+
+        private Snapshot(long[] counts, long count) {
+            this.counts = counts;
+            this.count = count;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return the number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the value below which the given fraction of the recorded values fall, rounded up to the top of
+         * its bucket, or 0 if nothing was recorded.
+         *
+         * @param quantile the fraction of the values, between 0 and 1
+         * @return the latency at the quantile, in nanoseconds
+         */
+        public long getValueAtQuantile(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0) {
+                throw new IllegalArgumentException("Quantile should be between 0 and 1.");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueOf(i);
+                }
+            }
+            return highestValueOf(counts.length - 1);
+        }
+
+        /**
+         * Returns the median latency.
+         *
+         * @return the 50th percentile, in nanoseconds
+         */
+        public long getP50() {
+            return getValueAtQuantile(0.5);
+        }
+
+        /**
+         * Returns the latency that 99% of the recorded values do not exceed.
+         *
+         * @return the 99th percentile, in nanoseconds
+         */
+        public long getP99() {
+            return getValueAtQuantile(0.99);
+        }
+
+        /**
+         * Returns the latency that 99.9% of the recorded values do not exceed.
+         *
+         * @return the 99.9th percentile, in nanoseconds
+         */
+        public long getP999() {
+            return getValueAtQuantile(0.999);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-capacity hash index of primitive {@code long} keys that also keeps its keys in LRU order,
+ * without boxing and without an object per entry.
+ *
+ * Every key lives in a slot numbered from 0 to {@code capacity - 1}; callers keep their own per-entry data
+ * (values, expiration times) in parallel arrays indexed by that slot. The keys are found through an
+ * open-addressing table with linear probing and backward-shift deletion, and the recency order is a doubly
+ * linked list whose links are {@code int} slot numbers stored in two more arrays.
+ *
+ * The index is not thread-safe; callers use it only while holding their lock.
+ */
+public final class LongLinkedIndex {
+    /** The slot number returned when a key is absent. */
+    public static final int NONE = -1;
+
+    private final long[] keys;
+    private final int[] prev;
+    private final int[] next;
+    private final int[] table;
+    private final int tableMask;
+    private int head;
+    private int tail;
+    private int freeSlot;
+    private int size;
+
+    /**
+     * Constructs an empty index that can hold the given number of keys.
+     *
+     * @param capacity the maximum number of keys
+     */
+    public LongLinkedIndex(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 28)) {
+            throw new IllegalArgumentException("Capacity should be between 1 and 2^28.");
+        }
+        keys = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        int tableSize = Integer.highestOneBit(capacity) << 2;
+        table = new int[tableSize];
+        tableMask = tableSize - 1;
+        clear();
+    }
+
+    /**
+     * Returns the slot holding the key, or {@link #NONE} if the key is absent.
+     *
+     * @param key the key to look up
+     * @return the key's slot, or {@link #NONE}
+     */
+    public int find(long key) {
+        for (int i = indexFor(key); ; i = (i + 1) & tableMask) {
+            int entry = table[i];
+            if (entry == 0) {
+                return NONE;
+            }
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Adds an absent key as the most recently used one. The index must not be full.
+     *
+     * @param key the key to add
+     * @return the slot assigned to the key
+     */
+    public int insert(long key) {
+        if (freeSlot == NONE) {
+            throw new IllegalStateException("Index is full");
+        }
+        int slot = freeSlot;
+        freeSlot = next[slot];
+        keys[slot] = key;
+        int i = indexFor(key);
+        while (table[i] != 0) {
+            i = (i + 1) & tableMask;
+        }
+        table[i] = slot + 1;
+        linkFirst(slot);
+        size++;
+        return slot;
+    }
+
+    /**
+     * Removes the key held in the slot and frees the slot.
+     *
+     * @param slot the slot to remove
+     */
+    public void remove(int slot) {
+        int i = indexFor(keys[slot]);
+        while (table[i] != slot + 1) {
+            i = (i + 1) & tableMask;
+        }
+        deleteAt(i);
+        unlink(slot);
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+    }
+
+    /**
+     * Marks the key held in the slot as the most recently used one.
+     *
+     * @param slot the slot that was accessed
+     */
+    public void moveToHead(int slot) {
+        if (slot != head) {
+            unlink(slot);
+            linkFirst(slot);
+        }
+    }
+
+    /**
+     * Returns the key held in the slot.
+     *
+     * @param slot an occupied slot
+     * @return the slot's key
+     */
+    public long key(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Returns the slot of the most recently used key, or {@link #NONE} if the index is empty.
+     *
+     * @return the head slot
+     */
+    public int head() {
+        return head;
+    }
+
+    /**
+     * Returns the slot of the least recently used key, or {@link #NONE} if the index is empty.
+     *
+     * @return the tail slot
+     */
+    public int tail() {
+        return tail;
+    }
+
+    /**
+     * Returns the slot of the next less recently used key, or {@link #NONE} at the tail.
+     *
+     * @param slot an occupied slot
+     * @return the following slot in LRU order
+     */
+    public int next(int slot) {
+        return next[slot];
+    }
+
+    /**
+     * Returns the slot of the next more recently used key, or {@link #NONE} at the head.
+     *
+     * @param slot an occupied slot
+     * @return the preceding slot in LRU order
+     */
+    public int prev(int slot) {
+        return prev[slot];
+    }
+
+    /**
+     * Returns the number of keys in the index.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of keys the index can hold.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns whether no slot is free.
+     *
+     * @return true if the index is full
+     */
+    public boolean isFull() {
+        return size == keys.length;
+    }
+
+    /**
+     * Removes every key.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        for (int i = 0; i < keys.length; i++) {
+            next[i] = i + 1 < keys.length ? i + 1 : NONE;
+        }
+        freeSlot = 0;
+        head = NONE;
+        tail = NONE;
+        size = 0;
+    }
+
+    /**
+     * Returns the estimated memory used per key, in bytes: the key, the two links and the table's share.
+     *
+     * @return the bytes used per slot
+     */
+    public long bytesPerSlot() {
+        return Long.BYTES + 2L * Integer.BYTES + (long) Integer.BYTES * table.length / keys.length;
+    }
+
+    /**
+     * Empties the table position and shifts back the following entries of the probe sequence.
+     */
+    private void deleteAt(int i) {
+        table[i] = 0;
+        int j = i;
+        for (;;) {
+            j = (j + 1) & tableMask;
+            int entry = table[j];
+            if (entry == 0) {
+                return;
+            }
+            int ideal = indexFor(keys[entry - 1]);
+            boolean canMove = (j > i) ? (ideal <= i || ideal > j) : (ideal <= i && ideal > j);
+            if (canMove) {
+                table[i] = entry;
+                table[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    private void linkFirst(int slot) {
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head == NONE) {
+            tail = slot;
+        } else {
+            prev[head] = slot;
+        }
+        head = slot;
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p == NONE) {
+            head = n;
+        } else {
+            next[p] = n;
+        }
+        if (n == NONE) {
+            tail = p;
+        } else {
+            prev[n] = p;
+        }
+    }
+
+    private int indexFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) h & tableMask;
+    }
+}
@@ -0,0 +1,24 @@
+package utils;
+
+import java.util.HashMap;
+
+/**
+ * Helpers for the maps that caches return from their bulk operations.
+ */
+public final class Maps {
+
+    private Maps() {
+    }
+
+    /**
+     * Returns a hash map large enough to hold the given number of entries without resizing.
+     *
+     * @param expectedSize the number of entries the map will hold
+     * @param <K>          the type of the keys
+     * @param <V>          the type of the values
+     * @return an empty, presized hash map
+     */
+    public static <K, V> HashMap<K, V> newHashMapWithExpectedSize(int expectedSize) {
+        return new HashMap<>((int) Math.min((long) expectedSize * 4 / 3 + 1, 1 << 30));
+    }
+}
@@ -0,0 +1,77 @@
+package utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Estimates the shallow size of objects on the running JVM, taking compressed references and the object
+ * alignment into account, so that caches can report their per-entry overhead.
+ */
+public final class MemoryLayout {
+    private static final boolean COMPRESSED_OOPS = booleanOption("UseCompressedOops", true);
+    private static final boolean COMPRESSED_CLASS_POINTERS = booleanOption("UseCompressedClassPointers", true);
+    private static final int OBJECT_ALIGNMENT = intOption("ObjectAlignmentInBytes", 8);
+
+    private MemoryLayout() {
+    }
+
+    /**
+     * Returns the size of an object reference, in bytes.
+     *
+     * @return 4 with compressed references, 8 otherwise
+     */
+    public static int referenceSize() {
+        return COMPRESSED_OOPS ? 4 : 8;
+    }
+
+    /**
+     * Returns the size of an object header, in bytes.
+     *
+     * @return the size of the mark word plus the class pointer
+     */
+    public static int objectHeaderSize() {
+        return COMPRESSED_CLASS_POINTERS ? 12 : 16;
+    }
+
+    /**
+     * Returns the aligned size of an object with the given fields.
+     *
+     * @param references the number of reference fields
+     * @param longs      the number of long or double fields
+     * @param ints       the number of int or float fields
+     * @param bytes      the number of byte or boolean fields
+     * @return the estimated shallow size of the object, in bytes
+     */
+    public static long shallowSize(int references, int longs, int ints, int bytes) {
+        long size = objectHeaderSize() + (long) references * referenceSize() + longs * 8L + ints * 4L + bytes;
+        return align(size);
+    }
+
+    /**
+     * Rounds the size up to the object alignment.
+     *
+     * @param size an object size in bytes
+     * @return the aligned size in bytes
+     */
+    public static long align(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+    private static boolean booleanOption(String name, boolean defaultValue) {
+        String value = option(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static int intOption(String name, int defaultValue) {
+        String value = option(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static String option(String name) {
+        try {
+            return ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class)
+                    .getVMOption(name).getValue();
+        } catch (RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A striped, lossy buffer that records reads without taking a lock.
+ *
+ * Every thread is hashed to one of several small ring buffers. Producers claim a slot with a single
+ * compare-and-set, and an event is simply dropped when its ring is full or the slot is contended,
+ * because a lost recency hint only makes the LRU order slightly less precise. The rings are emptied
+ * by a single consumer, which must hold the owning cache's lock while calling {@link #drainTo}.
+ *
+ * @param <E> the type of the recorded events
+ */
+public final class ReadBuffer<E> {
+    /** The number of slots of every ring; must be a power of two. */
+    static final int BUFFER_SIZE = 16;
+    static final int BUFFER_MASK = BUFFER_SIZE - 1;
+    static final int MAX_STRIPES = 64;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Constructs a buffer with a number of stripes sized to the available processors.
+     */
+    public ReadBuffer() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a buffer with at least the given number of stripes, rounded up to a power of two.
+     *
+     * @param stripeCount the desired number of stripes
+     */
+    @SuppressWarnings("unchecked")
+    public ReadBuffer(int stripeCount) {
+        int count = 1;
+        while (count < Math.min(stripeCount, MAX_STRIPES)) {
+            count <<= 1;
+        }
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        stripeMask = count - 1;
+    }
+
+    /**
+     * Records the event in the calling thread's stripe, dropping it if the stripe is full.
+     *
+     * @param e the event to record
+     * @return true if the stripe is full and should be drained
+     */
+    public boolean offer(E e) {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return stripes[(h >>> 16) & stripeMask].offer(e);
+    }
+
+    /**
+     * Hands every buffered event to the consumer and empties the stripes. Only one thread at a
+     * time may drain the buffer.
+     *
+     * @param consumer the action applied to each event, in per-stripe order
+     */
+    public void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    private static final class Stripe<E> {
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+
+        boolean offer(E e) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            long size = tail - head;
+            if (size >= BUFFER_SIZE) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) tail & BUFFER_MASK, e);
+                return size + 1 >= BUFFER_SIZE;
+            }
+            return false;
+        }
+
+        void drainTo(Consumer<E> consumer) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            while (head < tail) {
+                int index = (int) head & BUFFER_MASK;
+                E e = buffer.get(index);
+                if (e == null) {
+                    // The producer claimed the slot but has not published its event yet.
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(e);
+                head++;
+            }
+            readCounter = head;
+        }
+    }
+}
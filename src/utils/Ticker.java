@@ -0,0 +1,45 @@
+package utils;
+
+/**
+ * A source of monotonic time, in nanoseconds, used by the caches for expiration and access times.
+ * Tests can substitute a ticker that they advance by hand.
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    /**
+     * Returns the current time in nanoseconds. The value only has a meaning relative to other readings
+     * of the same ticker.
+     *
+     * @return the current time in nanoseconds
+     */
+    long read();
+
+    /**
+     * Returns a ticker that reads {@link System#nanoTime()}.
+     *
+     * @return the system ticker
+     */
+    static Ticker systemTicker() {
+        return SystemTicker.INSTANCE;
+    }
+
+    /**
+     * Returns a shared ticker that a daemon thread refreshes every millisecond. Reading it costs a single
+     * volatile load, in exchange for a resolution of about one millisecond.
+     *
+     * @return the cached ticker
+     */
+    static Ticker cachedTicker() {
+        return CachedTicker.INSTANCE;
+    }
+
+    enum SystemTicker implements Ticker {
+        INSTANCE;
+
+        @Override
+        public long read() {
+            return System.nanoTime();
+        }
+    }
+}
@@ -2,47 +2,67 @@ package utils;
 
 import domain.CacheNode;
 
+import java.util.List;
+
 /**
  * A helper class for methods like
  * add node to list
  * remove node from list
  * move a node to head
  *
+ * The helper owns the head and tail of the doubly linked list it manipulates, so every
+ * cache (or cache segment) keeps one instance per list.
+ *
  * **/
 public class Utility<K, V> {
-    public void moveToHead(CacheNode<K, V> node, CacheNode<K,V> head, CacheNode<K,V> tail) {
+    private CacheNode<K, V> head;
+    private CacheNode<K, V> tail;
+
+    /**
+     * Returns the most recently used node of the list, or null if the list is empty.
+     *
+     * @return the head of the list
+     */
+    public CacheNode<K, V> getHead() {
+        return head;
+    }
+
+    /**
+     * Returns the least recently used node of the list, or null if the list is empty.
+     *
+     * @return the tail of the list
+     */
+    public CacheNode<K, V> getTail() {
+        return tail;
+    }
+
+    public void moveToHead(CacheNode<K, V> node) {
         if (node == head) {
             return;
         }
-
-        if (node == tail) {
-            tail = node.getPrev();
-            tail.setNext(null);
-        } else {
-            node.getPrev().setNext(node.getNext());
-            node.getNext().setPrev(node.getPrev());
-        }
-
-        node.setPrev(null);
-        node.setNext(head);
-        head.setPrev(node);
-        head = node;
+        removeFromList(node);
+        addNode(node);
     }
-    public void removeFromList(CacheNode<K, V> entry, CacheNode<K,V> head, CacheNode<K,V> tail) {
+
+    public void removeFromList(CacheNode<K, V> entry) {
         if (entry.getPrev() != null) {
             entry.getPrev().setNext(entry.getNext());
         } else {
-            head = entry.getNext() ;
+            head = entry.getNext();
         }
-        if (entry.getNext()  != null) {
+        if (entry.getNext() != null) {
             entry.getNext().setPrev(entry.getPrev());
         } else {
             tail = entry.getPrev();
         }
+        entry.setPrev(null);
+        entry.setNext(null);
     }
 
-    public void addNode(CacheNode<K, V> node, CacheNode<K,V> head, CacheNode<K,V> tail) {
+    public void addNode(CacheNode<K, V> node) {
+        node.setPrev(null);
         if (head == null) {
+            node.setNext(null);
             head = node;
             tail = node;
         } else {
@@ -52,4 +72,55 @@ public class Utility<K, V> {
         }
     }
 
+    /**
+     * Links the nodes, in order, after the current tail of the list, as when loading a snapshot. The first
+     * node is the most recently used one of the batch.
+     *
+     * @param nodes the nodes to append, none of which may already be linked
+     */
+    public void appendAll(List<? extends CacheNode<K, V>> nodes) {
+        CacheNode<K, V> last = tail;
+        for (CacheNode<K, V> node : nodes) {
+            node.setPrev(last);
+            node.setNext(null);
+            if (last == null) {
+                head = node;
+            } else {
+                last.setNext(node);
+            }
+            last = node;
+        }
+        tail = last;
+    }
+
+    /**
+     * Unlinks and returns the tail of the list, or returns null if the list is empty.
+     *
+     * @return the node that was removed
+     */
+    public CacheNode<K, V> removeTail() {
+        CacheNode<K, V> node = tail;
+        if (node != null) {
+            removeFromList(node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns whether the list holds no nodes.
+     *
+     * @return true if the list is empty
+     */
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    /**
+     * Forgets every node of the list.
+     */
+    public void clear() {
+        head = null;
+        tail = null;
+    }
+
 }
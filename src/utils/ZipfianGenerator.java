@@ -0,0 +1,75 @@
+package utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws keys from a Zipf distribution in constant time per key, using the rejection-free method of Gray et al.,
+ * "Quickly Generating Billion-Record Synthetic Databases" (SIGMOD 1994), as popularised by YCSB.
+ *
+ * The constructor computes the generalized harmonic number of the item count once, which takes time linear in
+ * the number of items; every key after that costs one random number and one {@link Math#pow(double, double)}.
+ */
+public final class ZipfianGenerator implements KeyGenerator {
+    private final long items;
+    private final double exponent;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+    private final double halfPowExponent;
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a generator of keys between 0 and {@code items}, key 0 being the most popular.
+     *
+     * @param items    the number of distinct keys
+     * @param exponent the skew of the distribution, between 0 and 1 exclusive
+     * @param seed     the seed of the random numbers
+     */
+    public ZipfianGenerator(long items, double exponent, long seed) {
+        if (items <= 0) {
+            throw new IllegalArgumentException("Item count should be greater than 0.");
+        }
+        if (!(exponent > 0.0 && exponent < 1.0)) {
+            throw new IllegalArgumentException("Exponent should be between 0 and 1 exclusive.");
+        }
+        this.items = items;
+        this.exponent = exponent;
+        this.alpha = 1.0 / (1.0 - exponent);
+        this.zetaN = zeta(items, exponent);
+        double zeta2 = zeta(2, exponent);
+        this.eta = (1.0 - Math.pow(2.0 / items, 1.0 - exponent)) / (1.0 - zeta2 / zetaN);
+        this.halfPowExponent = 1.0 + Math.pow(0.5, exponent);
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public long nextKey() {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < halfPowExponent) {
+            return Math.min(1, items - 1);
+        }
+        long key = (long) (items * Math.pow(eta * u - eta + 1.0, alpha));
+        return Math.min(key, items - 1);
+    }
+
+    /**
+     * Returns the skew of the distribution.
+     *
+     * @return the exponent
+     */
+    public double exponent() {
+        return exponent;
+    }
+
+    private static double zeta(long n, double exponent) {
+        double sum = 0.0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, exponent);
+        }
+        return sum;
+    }
+}